@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+
+/**
+ * <p>
+ * Measures the throughput and latency of {@link ContactEntityService} operations against an in-memory HSQL database
+ * at increasing numbers of stored contacts, and fails if any call runs more SQL statements than the budget of its
+ * operation. Statements are counted with Hibernate statistics, so an extra SELECT before a write, or a query per loaded
+ * contact, is caught even while it is fast on a small database.
+ *
+ * <p>
+ * Run with {@code mvn test -Pbench}. The database sizes can be set with {@code -Dbench.sizes=1000,10000} and the number
+ * of measured calls per operation with {@code -Dbench.iterations=500}.
+ *
+ * <p>
+ * There is no EJB container here, so the service is created directly and given a new resource-local
+ * {@link EntityManager} for every call. Like the container's transaction-scoped persistence context, it is discarded
+ * when the call's transaction ends.
+ */
+public class ContactPersistenceBenchmark {
+
+  private static final String TENANT = "bench";
+
+  private static final int SHARD = 0;
+
+  private static final int PAGE_SIZE = 100;
+
+  private static final int LOAD_CHUNK_SIZE = 1000;
+
+  /**
+   * The number of each kind of write in a measured batch.
+   */
+  private static final int BATCH_WRITES = 10;
+
+  /**
+   * A call to the service, run in its own transaction.
+   */
+  private interface Call {
+    void run() throws Exception;
+  }
+
+  /**
+   * A benchmarked operation. Each call may run at most {@code budget} SQL statements, including those run when its
+   * transaction is flushed.
+   */
+  private static class Operation {
+
+    private final String name;
+    private final int budget;
+    private final Call call;
+
+    private Operation(final String name, final int budget, final Call call) {
+      this.name = name;
+      this.budget = budget;
+      this.call = call;
+    }
+
+  }
+
+  private final EntityManagerFactory emf;
+
+  private final Statistics statistics;
+
+  private final EntityManager[] shards = new EntityManager[ContactEntityService.SHARD_COUNT];
+
+  private final ContactEntityService service = new ContactEntityService(shards);
+
+  private final Random random = new Random(42);
+
+  /**
+   * Ids of the stored contacts, for choosing contacts to read, update, and delete.
+   */
+  private final List<Long> ids = new ArrayList<>();
+
+  private long nextId = 1;
+
+  private final List<String> violations = new ArrayList<>();
+
+  private ContactPersistenceBenchmark(final EntityManagerFactory emf) {
+    this.emf = emf;
+    statistics = ((HibernateEntityManagerFactory) emf).getSessionFactory().getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final int[] sizes = Arrays.stream(System.getProperty("bench.sizes", "1000,10000,100000").split(","))
+            .mapToInt(size -> Integer.parseInt(size.trim())).sorted().toArray();
+    final int iterations = Integer.getInteger("bench.iterations", 200);
+
+    final EntityManagerFactory emf = Persistence.createEntityManagerFactory("contact-bench");
+    try {
+      final ContactPersistenceBenchmark benchmark = new ContactPersistenceBenchmark(emf);
+      for (final int size : sizes) {
+        benchmark.load(size);
+        benchmark.run(size, iterations);
+      }
+      benchmark.check();
+    }
+    finally {
+      emf.close();
+    }
+  }
+
+  /**
+   * Stores new contacts until there are {@code size} contacts.
+   */
+  private void load(final int size) throws Exception {
+    while (ids.size() < size) {
+      final List<Contact> chunk = new ArrayList<>();
+      while (chunk.size() < LOAD_CHUNK_SIZE && ids.size() + chunk.size() < size) {
+        chunk.add(newContact());
+      }
+      inTransaction(() -> service.importContacts(SHARD, TENANT, chunk).get());
+      for (final Contact contact : chunk) {
+        ids.add(contact.getId());
+      }
+    }
+  }
+
+  private void run(final int size, final int iterations) throws Exception {
+    final List<Operation> operations = new ArrayList<>();
+    operations.add(new Operation("list", 1, () -> service.getContacts(SHARD, TENANT, PAGE_SIZE).get()));
+    operations.add(new Operation("page", 1,
+            () -> service.getContactsAfter(SHARD, TENANT, anyId() - 1, PAGE_SIZE)));
+    operations.add(new Operation("find", 1, () -> service.find(SHARD, TENANT, anyId())));
+    operations.add(new Operation("reserve", 2, () -> service.reserveIds(SHARD, 1)));
+    // Every write also takes a revision: it locks and updates the shard's revision counter and records the revision as
+    // pending, which here runs in the write's own transaction, and then releases the pending revision.
+    operations.add(new Operation("create", 5, () -> {
+      final Contact contact = newContact();
+      service.create(SHARD, TENANT, contact);
+      ids.add(contact.getId());
+    }));
+    // The fields, then the revision once the contact is locked.
+    operations.add(new Operation("update", 6, () -> service.update(SHARD, TENANT, changed(anyId()))));
+    // The contact row and its tombstone.
+    operations.add(new Operation("delete", 6, () -> service.delete(SHARD, TENANT, removeAnyId())));
+    // One statement per update and delete. The whole batch takes one revision, which is set on the updated contacts
+    // with one statement. The inserts of contacts and of tombstones are each sent as one JDBC batch.
+    operations.add(new Operation("batch", 2 * BATCH_WRITES + 7, () -> {
+      final List<Contact> created = new ArrayList<>();
+      final List<Contact> updated = new ArrayList<>();
+      final List<Long> deleted = new ArrayList<>();
+      for (int i = 0; i < BATCH_WRITES; i++) {
+        created.add(newContact());
+        updated.add(changed(anyId()));
+        deleted.add(removeAnyId());
+      }
+      final List<Long> missing = service.applyBatch(SHARD, TENANT,
+              new ContactBatch(created, updated, deleted, null, null)).get().getResult().getMissing();
+      if (!missing.isEmpty()) {
+        throw new IllegalStateException("Writes of stored contacts were skipped: " + missing);
+      }
+      for (final Contact contact : created) {
+        ids.add(contact.getId());
+      }
+    }));
+
+    for (final Operation operation : operations) {
+      measure(size, operation, iterations);
+    }
+  }
+
+  private void measure(final int size, final Operation operation, final int iterations) throws Exception {
+    // Warm up the query plan cache and the JIT.
+    for (int i = 0; i < iterations / 10; i++) {
+      inTransaction(operation.call);
+    }
+
+    final long[] nanos = new long[iterations];
+    long maxStatements = 0;
+    final long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      final long statementsBefore = statistics.getPrepareStatementCount();
+      final long callStart = System.nanoTime();
+      inTransaction(operation.call);
+      nanos[i] = System.nanoTime() - callStart;
+      maxStatements = Math.max(maxStatements, statistics.getPrepareStatementCount() - statementsBefore);
+    }
+    final double seconds = (System.nanoTime() - start) / 1e9;
+
+    Arrays.sort(nanos);
+    System.out.println(String.format("%-8s %9d contacts %10.0f calls/s  p50 %8.3f ms  p99 %8.3f ms  %3d/%d statements",
+            operation.name, size, iterations / seconds, percentile(nanos, 0.5) / 1e6, percentile(nanos, 0.99) / 1e6,
+            maxStatements, operation.budget));
+    if (maxStatements > operation.budget) {
+      violations.add(operation.name + " at " + size + " contacts ran " + maxStatements + " SQL statements (budget "
+              + operation.budget + ")");
+    }
+  }
+
+  /**
+   * @throws IllegalStateException
+   *           If any operation exceeded its statement budget, which fails the build.
+   */
+  private void check() {
+    if (!violations.isEmpty()) {
+      throw new IllegalStateException("SQL statement budgets exceeded:\n" + String.join("\n", violations));
+    }
+  }
+
+  private void inTransaction(final Call call) throws Exception {
+    final EntityManager em = emf.createEntityManager();
+    shards[SHARD] = em;
+    try {
+      em.getTransaction().begin();
+      call.run();
+      em.getTransaction().commit();
+    }
+    finally {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+      em.close();
+    }
+  }
+
+  private Contact newContact() {
+    return contact(nextId++);
+  }
+
+  private Contact contact(final long id) {
+    final Contact contact = new Contact();
+    contact.setId(id);
+    contact.setFullname("Contact " + id);
+    contact.setNickname("c" + id);
+    contact.setPhonenumber(String.format("555-%07d", id));
+    contact.setEmail("contact" + id + "@example.com");
+    contact.setBirthday(new Date(random.nextInt(20000) * 86400000L));
+    contact.setNotes("Created by the persistence benchmark");
+    return contact;
+  }
+
+  /**
+   * @return A detached copy of a stored contact with a changed field, as sent by a client.
+   */
+  private Contact changed(final long id) {
+    final Contact contact = contact(id);
+    contact.setNotes("Updated at " + System.nanoTime());
+    return contact;
+  }
+
+  private long anyId() {
+    return ids.get(random.nextInt(ids.size()));
+  }
+
+  private long removeAnyId() {
+    final int index = random.nextInt(ids.size());
+    Collections.swap(ids, index, ids.size() - 1);
+    return ids.remove(ids.size() - 1);
+  }
+
+  private static long percentile(final long[] sorted, final double fraction) {
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * fraction) - 1)];
+  }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks which changes received from other nodes the {@link ContactChangeBroadcaster} publishes. Deletes are used
+ * because they carry no marshalled body.
+ */
+public class ContactChangeBroadcasterTest {
+
+  private static final String TENANT = "acme";
+
+  private final List<ContactChange> dispatched = new ArrayList<>();
+
+  private ContactChangeBroadcaster broadcaster;
+
+  @Before
+  public void setup() {
+    broadcaster = new ContactChangeBroadcaster(new ContactEventDispatcher() {
+      @Override
+      public void dispatch(final ContactChange change) {
+        dispatched.add(change);
+      }
+    }, new ContactCache());
+  }
+
+  @Test
+  public void publishesRedeliveredMessageOnce() {
+    broadcaster.receive("node-a", 1, DELETE, TENANT, 7, 100, "");
+    broadcaster.receive("node-a", 1, DELETE, TENANT, 7, 100, "");
+
+    assertEquals(1, dispatched.size());
+    assertEquals(7, dispatched.get(0).getId());
+    assertEquals(100, dispatched.get(0).getRevision());
+  }
+
+  @Test
+  public void publishesSameSequenceFromDifferentNodes() {
+    broadcaster.receive("node-a", 1, DELETE, TENANT, 7, 100, "");
+    broadcaster.receive("node-b", 1, DELETE, TENANT, 8, 100, "");
+
+    assertEquals(2, dispatched.size());
+  }
+
+  @Test
+  public void ignoresOwnMessages() {
+    broadcaster.receive(broadcaster.getNodeId(), 1, DELETE, TENANT, 7, 100, "");
+
+    assertEquals(0, dispatched.size());
+  }
+
+  @Test
+  public void dropsChangesOlderThanLastSeenForContact() {
+    broadcaster.receive("node-a", 1, DELETE, TENANT, 7, 200, "");
+    broadcaster.receive("node-b", 1, DELETE, TENANT, 7, 100, "");
+    broadcaster.receive("node-b", 2, DELETE, TENANT, 7, 200, "");
+
+    assertEquals(1, dispatched.size());
+    assertEquals(200, dispatched.get(0).getRevision());
+  }
+
+  @Test
+  public void publishesNewerChangesAndChangesOfOtherContacts() {
+    broadcaster.receive("node-a", 1, DELETE, TENANT, 7, 200, "");
+    broadcaster.receive("node-b", 1, DELETE, TENANT, 8, 100, "");
+    broadcaster.receive("node-b", 2, DELETE, TENANT, 7, 300, "");
+
+    assertEquals(3, dispatched.size());
+  }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.jms.JMSContext;
+import javax.jms.Topic;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactOperation;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+import org.jboss.errai.marshalling.server.ServerMarshalling;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Forwards {@link ContactChange ContactChanges} written on this server to the other servers in a cluster, and publishes
+ * changes received from them to the clients connected to this server. Changes are exchanged over the JMS topic
+ * {@link #TOPIC}, which the messaging subsystem of a clustered (for example, {@code standalone-full-ha}) server
+ * distributes to every node.
+ *
+ * <p>
+ * Changes are only forwarded once their transaction has committed. Every message carries the id of the sending node and
+ * a sequence number, so that messages redelivered by the broker are published only once, and a node ignores its own
+ * messages. Changes to the same {@link Contact} are published in {@link ContactChange#getRevision() revision} order: a
+ * change older than the last change seen for its contact (from any node) is dropped. Revisions are issued by the shard
+ * database that holds the contact, and a write takes its revision only after it has locked the contact (see
+ * {@link ContactEntityService}), so the revisions of a contact increase in the order in which its writes commit, on
+ * whichever node they were made, and do not depend on the nodes' clocks. Received changes are also applied to the
+ * {@link ContactCache} of this node.
+ */
+@ApplicationScoped
+public class ContactChangeBroadcaster {
+
+  static final String TOPIC = "java:app/jms/ContactChangesTopic";
+
+  static final String NODE_PROPERTY = "node";
+  static final String SEQUENCE_PROPERTY = "sequence";
+  static final String TYPE_PROPERTY = "type";
+  static final String TENANT_PROPERTY = "tenant";
+  static final String ID_PROPERTY = "contactId";
+  static final String REVISION_PROPERTY = "revision";
+
+  /**
+   * The number of message ids and contact revisions remembered. Duplicates and reordering only occur within a short
+   * window, so older entries are evicted.
+   */
+  private static final int HISTORY_SIZE = 10000;
+
+  private static final Logger logger = LoggerFactory.getLogger(ContactChangeBroadcaster.class);
+
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final AtomicLong nextSequence = new AtomicLong();
+
+  private final Map<String, Boolean> receivedMessages = new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+      return size() > HISTORY_SIZE;
+    }
+  };
+
+  private final Map<Long, Long> revisionById = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Long, Long> eldest) {
+      return size() > HISTORY_SIZE;
+    }
+  };
+
+  @Inject
+  private JMSContext jms;
+
+  @Resource(lookup = TOPIC)
+  private Topic topic;
+
+  @Inject
+  private ContactEventDispatcher dispatcher;
+
+  @Inject
+  private ContactCache cache;
+
+  public ContactChangeBroadcaster() {
+  }
+
+  /**
+   * Creates a broadcaster that receives changes without a container, as in tests. It cannot forward changes.
+   */
+  ContactChangeBroadcaster(final ContactEventDispatcher dispatcher, final ContactCache cache) {
+    this.dispatcher = dispatcher;
+    this.cache = cache;
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  public void forward(final @Observes(during = TransactionPhase.AFTER_SUCCESS) ContactChange change) {
+    recordRevision(change.getId(), change.getRevision());
+    final String body = (change.getOperation() == null ? "" : ServerMarshalling.toJSON(change.getOperation()));
+    jms.createProducer()
+            .setProperty(NODE_PROPERTY, nodeId)
+            .setProperty(SEQUENCE_PROPERTY, nextSequence.getAndIncrement())
+            .setProperty(TYPE_PROPERTY, change.getType().name())
+            .setProperty(TENANT_PROPERTY, change.getTenant())
+            .setProperty(ID_PROPERTY, change.getId())
+            .setProperty(REVISION_PROPERTY, change.getRevision())
+            .send(topic, body);
+  }
+
+  /**
+   * Publishes a change received from another node to the clients of this node, unless it is a duplicate, was sent by
+   * this node, or is older than the last change seen for the same contact.
+   */
+  public void receive(final String node, final long sequence, final OperationType type, final String tenant,
+          final long id, final long revision, final String body) {
+    if (nodeId.equals(node) || !recordMessage(node + ":" + sequence)) {
+      return;
+    }
+    if (!recordRevision(id, revision)) {
+      logger.debug("Dropped out-of-order " + type + " of contact " + id + " from node " + node);
+      return;
+    }
+
+    final ContactOperation operation = (type == OperationType.DELETE ? null
+            : ServerMarshalling.fromJSON(body, ContactOperation.class));
+    final ContactChange change = new ContactChange(type, tenant, id, revision, operation);
+    cache.apply(change);
+    dispatcher.dispatch(change);
+  }
+
+  /**
+   * @return True iff the message had not been received before.
+   */
+  private synchronized boolean recordMessage(final String messageId) {
+    return receivedMessages.put(messageId, true) == null;
+  }
+
+  /**
+   * @return True iff the revision is newer than any seen before for the contact. Ids are unique across tenants, so
+   *         revisions are recorded by id alone.
+   */
+  private synchronized boolean recordRevision(final long id, final long revision) {
+    final Long last = revisionById.get(id);
+    if (last != null && last >= revision) {
+      return false;
+    }
+    revisionById.put(id, revision);
+    return true;
+  }
+
+}
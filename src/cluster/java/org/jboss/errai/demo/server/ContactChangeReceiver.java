@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.MessageDriven;
+import javax.inject.Inject;
+import javax.jms.JMSDestinationDefinition;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.TextMessage;
+
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+
+/**
+ * Receives the changes sent by the {@link ContactChangeBroadcaster} of every node (including this one) and hands them
+ * back to it for publishing. A single session is used so that messages are processed in the order they arrive.
+ */
+@JMSDestinationDefinition(
+        name = ContactChangeBroadcaster.TOPIC,
+        interfaceName = "javax.jms.Topic",
+        destinationName = "ContactChanges")
+@MessageDriven(activationConfig = {
+        @ActivationConfigProperty(propertyName = "destinationLookup", propertyValue = ContactChangeBroadcaster.TOPIC),
+        @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Topic"),
+        @ActivationConfigProperty(propertyName = "maxSession", propertyValue = "1") })
+public class ContactChangeReceiver implements MessageListener {
+
+  @Inject
+  private ContactChangeBroadcaster broadcaster;
+
+  @Override
+  public void onMessage(final Message message) {
+    try {
+      broadcaster.receive(message.getStringProperty(ContactChangeBroadcaster.NODE_PROPERTY),
+              message.getLongProperty(ContactChangeBroadcaster.SEQUENCE_PROPERTY),
+              OperationType.valueOf(message.getStringProperty(ContactChangeBroadcaster.TYPE_PROPERTY)),
+              message.getStringProperty(ContactChangeBroadcaster.TENANT_PROPERTY),
+              message.getLongProperty(ContactChangeBroadcaster.ID_PROPERTY),
+              message.getLongProperty(ContactChangeBroadcaster.REVISION_PROPERTY),
+              ((TextMessage) message).getText());
+    }
+    catch (final JMSException e) {
+      throw new RuntimeException("Could not read contact change message", e);
+    }
+  }
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import org.jboss.errai.demo.client.shared.ContactPage;
+import org.jboss.errai.marshalling.client.Marshalling;
+
+/**
+ * Reads the {@link ContactPage} embedded by the server in the host page ({@code index.jsp}).
+ */
+public class BootstrapContacts {
+
+  private BootstrapContacts() {
+  }
+
+  /**
+   * Reads and discards the embedded {@link ContactPage}. Subsequent calls return null.
+   *
+   * @return The embedded page, or null if the host page did not contain one.
+   */
+  public static ContactPage take() {
+    final String json = takeJson();
+    return (json == null ? null : Marshalling.fromJSON(json, ContactPage.class));
+  }
+
+  private static native String takeJson() /*-{
+    var json = $wnd.erraiContactBootstrap || null;
+    $wnd.erraiContactBootstrap = null;
+    return json;
+  }-*/;
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.user.client.Timer;
+
+/**
+ * <p>
+ * Measures what users of this client experience (page startup, service calls, the delay of remote changes, and list
+ * sorting and rendering) and reports it to the server, where samples are aggregated into histograms (see
+ * {@code MetricsService}).
+ *
+ * <p>
+ * Only a sample of {@link #SAMPLE_RATE} of all sessions is measured, so that instrumentation costs most users
+ * nothing. Samples are buffered and sent in one beacon every {@link #FLUSH_INTERVAL_MS} milliseconds, when
+ * {@link #MAX_BATCH_SIZE} samples are buffered, and when the page is hidden. Beacons are sent with
+ * {@code navigator.sendBeacon}, which does not hold up navigation and is delivered even while the page is being
+ * unloaded. Samples are dropped in browsers without it.
+ */
+@ApplicationScoped
+public class ClientMetrics {
+
+  /**
+   * The fraction of sessions that are measured.
+   */
+  public static final double SAMPLE_RATE = 0.1;
+
+  private static final int MAX_BATCH_SIZE = 200;
+
+  private static final int FLUSH_INTERVAL_MS = 30000;
+
+  private final boolean sampled = Math.random() < SAMPLE_RATE;
+
+  private final List<String> batch = new ArrayList<>();
+
+  private final Timer flushTimer = new Timer() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  /**
+   * The server clock minus the client clock, in milliseconds. Only valid if {@link #clockOffsetKnown}.
+   */
+  private double clockOffset;
+
+  private boolean clockOffsetKnown;
+
+  @PostConstruct
+  private void setup() {
+    if (sampled) {
+      flushTimer.scheduleRepeating(FLUSH_INTERVAL_MS);
+      onPageHidden(this::flush);
+    }
+  }
+
+  /**
+   * @return True iff this session is measured. Callers can skip the work of taking measurements otherwise.
+   */
+  public boolean isSampled() {
+    return sampled;
+  }
+
+  /**
+   * @return A high resolution timestamp in milliseconds, for measuring durations with {@link #recordSince}.
+   */
+  public static native double now() /*-{
+    return $wnd.performance && $wnd.performance.now ? $wnd.performance.now() : new Date().getTime();
+  }-*/;
+
+  /**
+   * Records a duration that started at the given {@link #now() timestamp} and ends now.
+   */
+  public void recordSince(final String name, final double start) {
+    record(name, now() - start);
+  }
+
+  /**
+   * @param name
+   *          The name of the measurement. Names consist of letters, digits, dots and underscores.
+   * @param millis
+   *          A duration in milliseconds.
+   */
+  public void record(final String name, final double millis) {
+    if (!sampled) {
+      return;
+    }
+    batch.add(name + " " + Math.round(Math.max(0, millis)));
+    if (batch.size() >= MAX_BATCH_SIZE) {
+      flush();
+    }
+  }
+
+  /**
+   * Estimates the offset of the server clock from a server timestamp taken while a round-trip call was in flight.
+   *
+   * @param serverTime
+   *          The server clock when it handled the call, in milliseconds since the epoch.
+   * @param sentAt
+   *          The client clock when the call was sent, from {@link Duration#currentTimeMillis()}.
+   */
+  public void setServerTime(final long serverTime, final double sentAt) {
+    final double midpoint = (sentAt + Duration.currentTimeMillis()) / 2;
+    clockOffset = serverTime - midpoint;
+    clockOffsetKnown = true;
+  }
+
+  /**
+   * Records the delay from a write on the server, identified by its revision (roughly the server clock at the time of
+   * the write), until now. Ignored until the {@link #setServerTime server clock} is known.
+   */
+  public void recordRemoteDelay(final long revision) {
+    if (sampled && clockOffsetKnown) {
+      record("remote.delay", Duration.currentTimeMillis() + clockOffset - revision);
+    }
+  }
+
+  private void flush() {
+    if (batch.isEmpty()) {
+      return;
+    }
+    final StringBuilder body = new StringBuilder();
+    for (final String sample : batch) {
+      body.append(sample).append('\n');
+    }
+    batch.clear();
+    sendBeacon(GWT.getHostPageBaseURL() + "rest/metrics/client", body.toString());
+  }
+
+  private static native void sendBeacon(String url, String body) /*-{
+    if ($wnd.navigator.sendBeacon) {
+      $wnd.navigator.sendBeacon(url, body);
+    }
+  }-*/;
+
+  private static native void onPageHidden(Runnable handler) /*-{
+    var flush = function() {
+      handler.@java.lang.Runnable::run()();
+    };
+    $wnd.addEventListener("pagehide", flush);
+    $doc.addEventListener("visibilitychange", function() {
+      if ($doc.visibilityState === "hidden") {
+        flush();
+      }
+    });
+  }-*/;
+
+}
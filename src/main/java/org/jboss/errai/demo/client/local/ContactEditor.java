@@ -26,6 +26,8 @@ import org.jboss.errai.common.client.dom.TextArea;
 import org.jboss.errai.common.client.dom.TextInput;
 import org.jboss.errai.databinding.client.api.StateSync;
 import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.ioc.client.api.LoadAsync;
+import org.jboss.errai.ioc.client.container.async.AsyncBeanManager;
 import org.jboss.errai.ui.shared.api.annotations.Bound;
 import org.jboss.errai.ui.shared.api.annotations.DataField;
 import org.jboss.errai.ui.shared.api.annotations.Templated;
@@ -53,7 +55,12 @@ import org.jboss.errai.ui.shared.api.annotations.Templated;
  * <p>
  * Instances of this type should be obtained via Errai IoC, either by using {@link Inject} in another container managed
  * bean, or by programmatic lookup through the bean manager.
+ *
+ * <p>
+ * Because of {@link LoadAsync}, this component (and the code only it uses) is compiled into a separate JavaScript
+ * fragment that is downloaded the first time it is looked up through the {@link AsyncBeanManager}.
  */
+@LoadAsync
 @Templated(value = "contact-page.html#modal-fields", stylesheet = "contact-page.css")
 public class ContactEditor extends ContactPresenter implements IsElement {
 
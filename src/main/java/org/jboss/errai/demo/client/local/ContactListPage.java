@@ -16,12 +16,15 @@
 
 package org.jboss.errai.demo.client.local;
 
+import static org.jboss.errai.common.client.dom.Window.getDocument;
+import static org.jboss.errai.demo.client.local.ContactSortKey.FULLNAME;
+import static org.jboss.errai.demo.client.local.ContactSortKey.NICKNAME;
 import static org.jboss.errai.demo.client.shared.Operation.OperationType.CREATE;
 import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
-import static org.jboss.errai.demo.client.shared.Operation.OperationType.UPDATE;
 
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import javax.annotation.PostConstruct;
@@ -29,20 +32,29 @@ import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
 import org.jboss.errai.bus.client.api.ClientMessageBus;
-import org.jboss.errai.common.client.api.Caller;
+import org.jboss.errai.bus.client.api.messaging.Message;
 import org.jboss.errai.common.client.dom.DOMUtil;
 import org.jboss.errai.common.client.dom.Anchor;
 import org.jboss.errai.common.client.dom.Button;
 import org.jboss.errai.common.client.dom.Div;
-import org.jboss.errai.common.client.function.Function;
+import org.jboss.errai.common.client.dom.HTMLElement;
+import org.jboss.errai.common.client.dom.Span;
+import org.jboss.errai.common.client.dom.TextInput;
+import org.jboss.errai.common.client.function.Consumer;
 import org.jboss.errai.databinding.client.api.DataBinder;
 import org.jboss.errai.databinding.client.api.StateSync;
-import org.jboss.errai.databinding.client.components.ListComponent;
+import org.jboss.errai.demo.client.local.RemoteChangeQueue.Change;
 import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactEventsDropped;
+import org.jboss.errai.demo.client.shared.ContactInterest;
 import org.jboss.errai.demo.client.shared.ContactOperation;
+import org.jboss.errai.demo.client.shared.ContactPage;
 import org.jboss.errai.demo.client.shared.ContactStorageService;
-import org.jboss.errai.demo.client.shared.Operation;
-import org.jboss.errai.enterprise.client.jaxrs.api.ResponseCallback;
+import org.jboss.errai.demo.client.shared.ContactsImported;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+import org.jboss.errai.ioc.client.api.LoadAsync;
+import org.jboss.errai.ioc.client.container.IOC;
 import org.jboss.errai.ui.nav.client.local.DefaultPage;
 import org.jboss.errai.ui.nav.client.local.Page;
 import org.jboss.errai.ui.nav.client.local.PageHiding;
@@ -51,12 +63,13 @@ import org.jboss.errai.ui.shared.api.annotations.AutoBound;
 import org.jboss.errai.ui.shared.api.annotations.Bound;
 import org.jboss.errai.ui.shared.api.annotations.DataField;
 import org.jboss.errai.ui.shared.api.annotations.EventHandler;
+import org.jboss.errai.ui.shared.api.annotations.ForEvent;
 import org.jboss.errai.ui.shared.api.annotations.SinkNative;
 import org.jboss.errai.ui.shared.api.annotations.Templated;
 import org.slf4j.Logger;
 
+import com.google.gwt.animation.client.AnimationScheduler;
 import com.google.gwt.event.dom.client.ClickEvent;
-import com.google.gwt.http.client.Response;
 import com.google.gwt.user.client.Event;
 
 /**
@@ -72,15 +85,23 @@ import com.google.gwt.user.client.Event;
  *
  * <p>
  * The {@link DataField} annotation marks fields that replace HTML elements from the template file. As an example, the
- * field {@link ContactDisplay#editor} replaces the {@code <div>} element in the template with the CSS class
- * {@code modal-content}. Because {@link ContactEditor} is an Errai UI component, the markup for {@link ContactEditor}
- * will replace the contents of the {@code modal-content} div in this component.
+ * field {@link #list} replaces the {@code <div>} element in the template with the {@code data-field} {@code list}.
  *
  * <p>
- * This component uses {@link ContactList} to display a list of {@link Contact Contacts}. The {@code List<Contact>}
+ * The {@link ContactEditor} is not needed until a contact is created or edited, so it is compiled into a separate
+ * JavaScript fragment (see {@link LoadAsync}) and downloaded on first use. Its markup then replaces the contents of the
+ * {@code modal-editor} div in this component.
+ *
+ * <p>
+ * This component uses {@link VirtualContactList} to display a list of {@link Contact Contacts}. The {@code List<Contact>}
  * returned by calling {@link DataBinder#getModel()} on {@link #binder} is a model bound to a table of
  * {@link ContactDisplay ContactDisplays} in an HTML table. Any changes to the model list (such as adding or removing
- * items) will be automatically reflected in the displayed table. See {@link ContactList} for more details.
+ * items) will be automatically reflected in the displayed table. See {@link VirtualContactList} for more details.
+ *
+ * <p>
+ * Typing in the {@link #filter} box restricts the displayed contacts to those matching every typed word. Matches are
+ * looked up in a {@link ContactPrefixIndex} that is kept up to date as contacts are added, edited, and removed, so
+ * filtering never waits for the server or scans every contact.
  *
  * <p>
  * Instances of this type should be obtained via Errai IoC, either by using {@link Inject} in another container managed
@@ -94,18 +115,38 @@ public class ContactListPage {
   @AutoBound
   private DataBinder<List<Contact>> binder;
 
-  /* By binding to "this", the ContactList is kept in sync with the list from binder. */
+  /*
+   * By binding to "this", the VirtualContactList is kept in sync with the list from binder. Only the contacts near the
+   * viewport are rendered, so this scales to very large lists.
+   */
   @Inject
   @Bound(property="this")
   @DataField
-  private ListComponent<Contact, ContactDisplay> list;
+  private VirtualContactList list;
 
   @Inject
   @DataField
   private Div modal;
 
   @Inject
-  @DataField("modal-fields")
+  @DataField
+  private TextInput filter;
+
+  /**
+   * Indexes every contact in the model of {@link #binder} for {@link #filter}.
+   */
+  private final ContactPrefixIndex index = new ContactPrefixIndex();
+
+  /**
+   * Holds the {@link #editor} once it has been loaded.
+   */
+  @Inject
+  @DataField("modal-editor")
+  private Div editorContainer;
+
+  /**
+   * Null until the code fragment containing the {@link ContactEditor} has been loaded. See {@link #withEditor(Consumer)}.
+   */
   private ContactEditor editor;
 
   @Inject
@@ -121,16 +162,64 @@ public class ContactListPage {
   @Inject
   private Anchor sortContactsAnchor;
 
+  @Inject
+  private Anchor sortContactsByFullnameAnchor;
+
   /**
-   * This is a simple interface for calling a remote HTTP service. Behind this interface, Errai has generated an HTTP
-   * request to the service defined by {@link ContactStorageService} (a JaxRS service).
+   * Shows the number of contacts and of birthdays this month, from the {@link #totals}.
    */
   @Inject
-  private Caller<ContactStorageService> contactService;
+  private Span totalsLabel;
+
+  @Inject
+  private ContactTotals totals;
+
+  /**
+   * The order most recently chosen by the user, used to insert new contacts at their sorted position. Null until the
+   * list is first sorted.
+   */
+  private ContactSorter activeSorter;
+
+  @Inject
+  private LocalContactStore localStore;
+
+  /**
+   * Sends local changes to the server in coalesced batches, queueing them while the server is unreachable.
+   */
+  @Inject
+  private ContactWriter writer;
+
+  /**
+   * Calls the contact service, either with HTTP requests to the {@link ContactStorageService} (a JaxRS service) or with
+   * Errai RPC messages over the bus, depending on the deployment.
+   */
+  @Inject
+  private ContactTransport transport;
 
   @Inject
   private ClientMessageBus bus;
 
+  @Inject
+  private RemoteChangeQueue remoteChanges;
+
+  /**
+   * Tells the server which contacts are displayed, so that only changes to those contacts are pushed to this client.
+   */
+  @Inject
+  private ContactSubscription subscription;
+
+  /**
+   * Measures startup, sorting, and the delay of remote changes for a sample of sessions.
+   */
+  @Inject
+  private ClientMetrics metrics;
+
+  /**
+   * Revisions of the remote changes queued since the last flush of {@link #remoteChanges}, for measuring the delay from
+   * the write on the server until the change is displayed.
+   */
+  private final List<Long> queuedRevisions = new ArrayList<>();
+
   @Inject
   private Logger logger;
 
@@ -139,15 +228,48 @@ public class ContactListPage {
    */
   @PostConstruct
   private void setup() {
+    final double setupStart = ClientMetrics.now();
+    /*
+     * Display cached contacts immediately, without waiting for the server. Without a cache, display the contacts
+     * embedded in the host page instead. Contacts created offline in a previous session are added once the writer has
+     * taken over that session's journal.
+     */
+    final ContactPage initialPage = BootstrapContacts.take();
+    final List<Contact> cached = localStore.loadAll();
+    if (cached.isEmpty() && initialPage != null) {
+      binder.getModel().addAll(initialPage.getContacts());
+      if (initialPage.isComplete()) {
+        localStore.replaceAll(initialPage.getContacts());
+        localStore.setVersion(initialPage.getVersion());
+      }
+    }
+    else {
+      binder.getModel().addAll(cached);
+    }
+    index.addAll(binder.getModel());
+
     /*
-     * Triggers an HTTP request to the ContactStorageService. The call back will be invoked asynchronously to display
-     * all retrieved contacts.
+     * The server only pushes changes to the contacts this client displays. Other changes (and changes missed while
+     * disconnected) are fetched whenever the server has applied a new interest, which includes startup and reconnects.
      */
-    contactService.call((List<Contact> contacts) -> binder.getModel().addAll(contacts)).getAllContacts();
+    subscription.setRegisteredHandler(this::revalidate);
+    bus.subscribe(ContactInterest.CHANGES_SUBJECT, this::onRemoteChange);
+    bus.subscribe(ContactInterest.IMPORTS_SUBJECT,
+            message -> onContactsImported(message.get(ContactsImported.class, ContactInterest.IMPORTED_PART)));
+    bus.subscribe(ContactInterest.DROPS_SUBJECT, message -> onContactEventsDropped(
+            message.get(ContactEventsDropped.class, ContactInterest.DROPPED_PART)));
+    list.setWindowHandler(subscription::setWindow);
+    subscription.register();
 
     // Remove placeholder table row from template.
     DOMUtil.removeAllElementChildren(list.getElement());
 
+    remoteChanges.setFlushHandler(this::applyRemoteChanges);
+    remoteChanges.setVersionHandler(localStore::setVersion);
+    // Contacts that were deleted elsewhere before a local edit reached the server.
+    writer.setMissingHandler(remoteChanges::deleted);
+    writer.setAdoptedCreateHandler(this::addContact);
+
     list.setSelector(display -> display.setSelected(true));
     list.setDeselector(display -> display.setSelected(false));
 
@@ -157,61 +279,196 @@ public class ContactListPage {
 
     sortContactsAnchor.setHref("javascript:");
     sortContactsAnchor.setTextContent("Sort By Nickname");
-    sortContactsAnchor.setOnclick(e -> sortContactsByName());
+    sortContactsAnchor.setOnclick(e -> sortContacts(new ContactSorter(NICKNAME, FULLNAME)));
+
+    sortContactsByFullnameAnchor.setHref("javascript:");
+    sortContactsByFullnameAnchor.setTextContent("Sort By Full Name");
+    sortContactsByFullnameAnchor.setOnclick(e -> sortContacts(new ContactSorter(FULLNAME, NICKNAME)));
+
+    totalsLabel.setClassName("navbar-text");
+    totals.setChangeHandler(this::showTotals);
+
+    /*
+     * The list renders the initial contacts in an earlier callback of the same animation frame, so this measures the
+     * time until the first contacts are displayed: from navigation start, and from the start of this method.
+     */
+    AnimationScheduler.get().requestAnimationFrame(timestamp -> {
+      metrics.record("page.firstRender", ClientMetrics.now());
+      metrics.recordSince("page.setup", setupStart);
+    });
   }
 
   @PageShown
   public void addNavBarButtons() {
+    /*
+     * The list renders on the next animation frame. Removing the server-rendered contacts in the same frame replaces
+     * them without an empty list being painted in between.
+     */
+    AnimationScheduler.get().requestAnimationFrame(timestamp -> removePrerenderedContacts());
     navbar.add(newContactAnchor);
     navbar.add(sortContactsAnchor);
+    navbar.add(sortContactsByFullnameAnchor);
+    navbar.add(totalsLabel);
+  }
+
+  /**
+   * Removes the contacts rendered into the host page by the server. Errai UI components always create their own
+   * elements from their templates, so the server-rendered markup is swapped out rather than reused.
+   */
+  private void removePrerenderedContacts() {
+    final HTMLElement prerendered = getDocument().getElementById("prerendered-contacts");
+    if (prerendered != null) {
+      prerendered.getParentNode().removeChild(prerendered);
+    }
   }
 
   @PageHiding
   public void removeNavBarButtons() {
     navbar.remove(newContactAnchor);
     navbar.remove(sortContactsAnchor);
+    navbar.remove(sortContactsByFullnameAnchor);
+    navbar.remove(totalsLabel);
   }
 
   /**
-   * This is called in response to Errai CDI {@link javax.enterprise.event.Event Events} fired from the server when a
-   * new {@link Contact} is created. In this way we can display newly created contacts from other browser sessions.
+   * This is called for messages sent by the server when a {@link Contact} this client is interested in (see
+   * {@link ContactSubscription}) is created, updated, or deleted in another browser session. In this way we can display
+   * changes from other browser sessions.
+   * <p>
+   * The change is queued and applied with other remote changes on the next animation frame.
    */
-  public void onRemoteCreated(final @Observes @Operation(CREATE) ContactOperation contactOperation) {
+  private void onRemoteChange(final Message message) {
+    final OperationType type = OperationType.valueOf(message.get(String.class, ContactInterest.TYPE_PART));
+    final Long revision = message.get(Long.class, ContactInterest.REVISION_PART);
+    if (type == DELETE) {
+      queueRevision(revision);
+      remoteChanges.deleted(message.get(Long.class, ContactInterest.ID_PART));
+      return;
+    }
+    final ContactOperation contactOperation = message.get(ContactOperation.class, ContactInterest.OPERATION_PART);
     if (sourceIsNotThisClient(contactOperation)) {
-      binder.getModel().add(contactOperation.getContact());
+      queueRevision(revision);
+      if (type == CREATE) {
+        remoteChanges.created(contactOperation.getContact());
+      }
+      else {
+        remoteChanges.updated(contactOperation.getContact());
+      }
+    }
+  }
+
+  private void queueRevision(final Long revision) {
+    if (revision != null && metrics.isSampled()) {
+      queuedRevisions.add(revision);
     }
   }
 
   /**
-   * This is called in response to Errai CDI {@link javax.enterprise.event.Event Events} fired from the server when an
-   * existing {@link Contact} is updated. In this way we can display new property values for contacts when they are
-   * updated from other browser sessions.
+   * This is called for the single message sent by the server after a bulk import. The imported contacts are fetched
+   * with the other changes since the last synchronization.
    */
-  public void onRemoteUpdated(final @Observes @Operation(UPDATE) ContactOperation contactOperation) {
-    if (sourceIsNotThisClient(contactOperation)) {
-      final int indexOf = binder.getModel().indexOf(contactOperation.getContact());
-      if (indexOf == -1) {
-        logger.warn("Received update before creation for " + contactOperation.getContact() + " from " + contactOperation.getSourceQueueSessionId());
-        binder.getModel().add(contactOperation.getContact());
-      } else {
-        binder.getModel().set(indexOf, contactOperation.getContact());
+  private void onContactsImported(final ContactsImported contactsImported) {
+    revalidate();
+  }
+
+  /**
+   * This is called when the server could not deliver some change events of this tenant because it was overloaded. The
+   * missed changes are fetched with the other changes since the last synchronization.
+   */
+  private void onContactEventsDropped(final ContactEventsDropped contactEventsDropped) {
+    revalidate();
+  }
+
+  /**
+   * Requests all contacts changed since the cached contacts were last synchronized from the contact service. The call
+   * back will be invoked asynchronously to apply the changes with other remote changes. The new version is stored only
+   * once the changes have been stored, so that a reload before then fetches them again.
+   * <p>
+   * The changes may include contacts created by this client whose displayed copies have not yet received their ids, so
+   * they are applied only once the server has answered the creates this client sent. Otherwise they would be added as
+   * a second copy.
+   */
+  private void revalidate() {
+    transport.getChanges(localStore.getVersion(), changes -> writer.afterSentCreates(() -> {
+      if (changes.isReset()) {
+        resetContacts(changes.getChanged());
+        localStore.setVersion(changes.getVersion());
       }
+      else {
+        /*
+         * Queued as updates, which add contacts that are not displayed yet. A create would be cancelled out by a later
+         * delete of the same contact, which would leave a contact that is already displayed on screen.
+         */
+        for (final Contact contact : changes.getChanged()) {
+          remoteChanges.updated(contact);
+        }
+        for (final Long id : changes.getDeleted()) {
+          remoteChanges.deleted(id);
+        }
+        remoteChanges.reachedVersion(changes.getVersion());
+      }
+    }));
+  }
+
+  /**
+   * Replaces all displayed contacts, except for those that have not yet been persisted.
+   */
+  private void resetContacts(final List<Contact> contacts) {
+    localStore.replaceAll(contacts);
+    final List<Contact> model = binder.getModel();
+    final List<Contact> unsaved = new ArrayList<>();
+    for (final Contact contact : model) {
+      if (contact.getId() == 0) {
+        unsaved.add(contact);
+      }
+    }
+    model.clear();
+    model.addAll(activeSorter == null ? contacts : activeSorter.sort(contacts));
+    index.clear();
+    index.addAll(contacts);
+    for (final Contact contact : unsaved) {
+      addContact(contact);
     }
+    refreshFilter();
   }
 
   /**
-   * This is called in response to Errai CDI {@link javax.enterprise.event.Event Events} fired from the server when an
-   * existing {@link Contact} is deleted. In this way we can remove displayed contacts when they are deleted in other
-   * browser sessions.
+   * Applies a batch of coalesced remote changes with data-binding paused, so that the displayed list is synchronized
+   * once per batch rather than once per change.
    */
-  public void onRemoteDelete(final @Observes @Operation(DELETE) Long id) {
-    final Iterator<Contact> contactIter = binder.getModel().iterator();
-    while (contactIter.hasNext()) {
-      if (id.equals(contactIter.next().getId())) {
-        contactIter.remove();
-        break;
+  private void applyRemoteChanges(final Collection<Change> changes) {
+    binder.pause();
+    final List<Contact> model = binder.getModel();
+    /*
+     * Changes are applied to a copy that replaces the contents of the bound list once, because the bound list copies
+     * itself for every change notification. The list component keeps the selected contacts that are still listed.
+     */
+    final List<Contact> updated = RemoteChangeQueue.apply(model, changes, activeSorter, index);
+    model.clear();
+    model.addAll(updated);
+    binder.resume(StateSync.FROM_MODEL);
+    refreshFilter();
+
+    final List<Contact> stored = new ArrayList<>();
+    final List<Long> unstored = new ArrayList<>();
+    for (final Change change : changes) {
+      if (change.getType() == DELETE) {
+        unstored.add(change.getId());
+      }
+      else {
+        stored.add(change.getContact());
       }
     }
+    localStore.putAll(stored);
+    localStore.removeAll(unstored);
+
+    for (final Long revision : queuedRevisions) {
+      metrics.recordRemoteDelay(revision);
+    }
+    queuedRevisions.clear();
+
+    logger.debug("Applied " + changes.size() + " remote changes (" + remoteChanges.getMergedCount() + " merged, "
+            + remoteChanges.getDroppedCount() + " dropped since startup)");
   }
 
   /**
@@ -231,8 +488,50 @@ public class ContactListPage {
   }
 
   private void displayFormWithNewContact() {
-    editor.setValue(new Contact());
-    displayModal(false);
+    withEditor(editor -> {
+      editor.setValue(new Contact());
+      displayModal(false);
+    });
+  }
+
+  /**
+   * Invokes the callback with the {@link ContactEditor}, first downloading its code fragment and attaching it to the
+   * modal form if this is the first use.
+   */
+  private void withEditor(final Consumer<ContactEditor> callback) {
+    if (editor != null) {
+      callback.accept(editor);
+    }
+    else {
+      IOC.getAsyncBeanManager().lookupBean(ContactEditor.class).getInstance(loaded -> {
+        if (editor == null) {
+          editor = loaded;
+          // Remove the placeholder fields from the template.
+          DOMUtil.removeAllElementChildren(editorContainer);
+          editorContainer.appendChild(editor.getElement());
+        }
+        callback.accept(editor);
+      });
+    }
+  }
+
+  /**
+   * Called for {@code input} events on the {@link DataField @DataField} {@link #filter}, so the displayed contacts are
+   * filtered whenever its value changes: as the user types, but also when text is pasted, cut, or dropped, when the
+   * box is cleared, and when the browser fills it in.
+   */
+  @EventHandler("filter")
+  public void onFilterInput(final @ForEvent("input") org.jboss.errai.common.client.dom.Event event) {
+    refreshFilter();
+  }
+
+  /**
+   * Re-runs the query in {@link #filter} against the {@link #index}. The filter holds the set of matching contacts, so
+   * this must be called after the index changes.
+   */
+  private void refreshFilter() {
+    list.setFilter(index.matches(filter.getValue()));
+    subscription.setFilter(filter.getValue());
   }
 
   /**
@@ -250,6 +549,10 @@ public class ContactListPage {
   @EventHandler("modal-submit")
   public void onModalSubmitClick(final Event event) {
     DOMUtil.removeCSSClass(modal, "displayed");
+    if (editor == null) {
+      // The modal cannot have been displayed.
+      return;
+    }
     if (binder.getModel().contains(editor.getValue())) {
       updateContactFromEditor();
     }
@@ -261,16 +564,9 @@ public class ContactListPage {
   private void createNewContactFromEditor() {
     final Contact editorModel = editor.getValue();
     // Adding this model to the list will create and display a new, bound ContactDisplay in the table.
-    binder.getModel().add(editorModel);
-    contactService.call((ResponseCallback) response -> {
-      // Set the id if we successfully create this contact.
-      if (response.getStatusCode() == Response.SC_CREATED) {
-        final String createdUri = response.getHeader("Location");
-        final String idString = createdUri.substring(createdUri.lastIndexOf('/')+1);
-        final long id = Long.parseLong(idString);
-        editorModel.setId(id);
-      }
-    }).create(new ContactOperation(editorModel, bus.getSessionId()));
+    addContact(editorModel);
+    // The writer sets the id once the server has created this contact.
+    writer.create(editorModel);
   }
 
   private void updateContactFromEditor() {
@@ -279,7 +575,9 @@ public class ContactListPage {
      * "submit" is clicked. This call updates the model with all changes made in the UI while binding was paused.
      */
     editor.syncStateFromUI();
-    contactService.call().update(new ContactOperation(editor.getValue(), bus.getSessionId()));
+    index.update(editor.getValue());
+    refreshFilter();
+    writer.update(editor.getValue());
   }
 
   /**
@@ -305,18 +603,16 @@ public class ContactListPage {
    * Because there is a {@code modal-delete} {@link DataField} in this class, this method's parameter indicates that
    * this handles click events by accepting {@link ClickEvent} as its parameter.
    * <p>
-   * This method removes a {@link Contact} from the displayed table and makes an HTTP request to delete the contact from
-   * persistent storage on the server.
+   * This method removes a {@link Contact} from the displayed table and queues a request to delete the contact from
+   * persistent storage on the server (sent immediately unless the server is unreachable).
    */
   @EventHandler("modal-delete")
   public void onModalDeleteClick(final ClickEvent event) {
-    if (binder.getModel().contains(editor.getValue())) {
+    if (editor != null && binder.getModel().contains(editor.getValue())) {
       final Contact deleted = editor.getValue();
-      contactService.call((ResponseCallback) response -> {
-        if (response.getStatusCode() >= 200 && response.getStatusCode() < 300) {
-          binder.getModel().remove(deleted);
-        }
-      }).delete(editor.getValue().getId());
+      binder.getModel().remove(deleted);
+      index.remove(deleted);
+      writer.delete(deleted);
       editor.setValue(new Contact());
       DOMUtil.removeCSSClass(modal, "displayed");
     }
@@ -371,16 +667,46 @@ public class ContactListPage {
      * This sets the editor model with data-binding paused so that changes to the model are not propogated until the
      * user clicks "submit".
      */
-    editor.setValuePaused(model);
-    displayModal(true);
+    withEditor(editor -> {
+      editor.setValuePaused(model);
+      displayModal(true);
+    });
   }
 
-  private void sortContactsByName() {
-    binder.pause();
-    final Function<Contact, String> nickGetter = c -> (c.getNickname() == null ? "" : c.getNickname());
-    Collections.sort(binder.getModel(), (a,b) -> {
-      return nickGetter.apply(a).compareTo(nickGetter.apply(b));
-    });
-    binder.resume(StateSync.FROM_MODEL);
+  private void sortContacts(final ContactSorter sorter) {
+    activeSorter = sorter;
+    final List<Contact> model = binder.getModel();
+    final double start = ClientMetrics.now();
+    final List<Contact> sorted = sorter.sort(model);
+    metrics.recordSince("sort", start);
+    /*
+     * The bound list copies itself for every change notification, so the sorted order is written with a single
+     * replacement rather than one set per position. The list component keeps the displays of contacts that stay on
+     * screen and moves their elements, rather than re-binding every row, and keeps the selection.
+     */
+    model.clear();
+    model.addAll(sorted);
+  }
+
+  @SuppressWarnings("deprecation")
+  private void showTotals(final ContactAggregates aggregates) {
+    final int month = new Date().getMonth() + 1;
+    totalsLabel.setTextContent(aggregates.getTotal() + " contacts, " + aggregates.getBirthdaysIn(month)
+            + " birthdays this month");
+  }
+
+  /**
+   * Adds a contact to the displayed list, at its sorted position if the list has been sorted.
+   */
+  private void addContact(final Contact contact) {
+    final List<Contact> model = binder.getModel();
+    if (activeSorter == null) {
+      model.add(contact);
+    }
+    else {
+      model.add(activeSorter.insertionIndex(model, contact), contact);
+    }
+    index.add(contact);
+    refreshFilter();
   }
 }
@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactTokens;
+
+/**
+ * <p>
+ * An incrementally maintained prefix index over the full name, nickname, email, and phone number of
+ * {@link Contact Contacts}, used to filter the displayed contacts on every keystroke without a server request.
+ *
+ * <p>
+ * Each property is split into lower-case tokens (words, email parts, and the digits of the phone number, see
+ * {@link ContactTokens}), and every token is inserted into a trie. Each trie node holds the set of contacts with a
+ * token starting with the node's prefix, so a prefix lookup is a walk of at most {@link #MAX_INDEXED_PREFIX} nodes. For
+ * longer search terms, the contacts at the deepest node are checked against their tokens.
+ *
+ * <p>
+ * Contacts are indexed by the identity of the {@link ContactProxies#unwrap(Contact) unwrapped} {@link Contact}, so a
+ * contact is found whether it is looked up through a bound list or as received from the server. The tokens of each
+ * contact are remembered, so {@link #update(Contact)} can remove stale entries for a contact that was edited in place.
+ */
+public class ContactPrefixIndex {
+
+  /**
+   * Trie depth is bounded to bound memory use: the number of node entries per token is at most this value.
+   */
+  static final int MAX_INDEXED_PREFIX = 6;
+
+  private static class Node {
+
+    private final Map<Character, Node> children = new HashMap<>();
+
+    /**
+     * Contacts with a token that starts with the prefix of this node, with the number of such tokens.
+     */
+    private final Map<Contact, Integer> contacts = new IdentityHashMap<>();
+
+  }
+
+  private final Node root = new Node();
+
+  private final Map<Contact, Collection<String>> tokensByContact = new IdentityHashMap<>();
+
+  public void add(final Contact contact) {
+    final Contact key = ContactProxies.unwrap(contact);
+    if (tokensByContact.containsKey(key)) {
+      return;
+    }
+    final Collection<String> tokens = ContactTokens.tokenize(key);
+    tokensByContact.put(key, tokens);
+    for (final String token : tokens) {
+      insert(token, key);
+    }
+  }
+
+  public void addAll(final Collection<Contact> contacts) {
+    for (final Contact contact : contacts) {
+      add(contact);
+    }
+  }
+
+  public void remove(final Contact contact) {
+    final Contact key = ContactProxies.unwrap(contact);
+    final Collection<String> tokens = tokensByContact.remove(key);
+    if (tokens != null) {
+      for (final String token : tokens) {
+        delete(token, key);
+      }
+    }
+  }
+
+  /**
+   * Re-indexes a contact whose properties have changed.
+   */
+  public void update(final Contact contact) {
+    remove(contact);
+    add(contact);
+  }
+
+  public void clear() {
+    root.children.clear();
+    tokensByContact.clear();
+  }
+
+  public int size() {
+    return tokensByContact.size();
+  }
+
+  /**
+   * @param query
+   *          One or more search terms. A contact matches if every term is a prefix of at least one of its tokens.
+   * @return The matching {@link ContactProxies#unwrap(Contact) unwrapped} contacts, in no particular order, or null if
+   *         the query has no terms. For a single term this may be a view of the index rather than a copy, so it is
+   *         only valid until the index is next changed.
+   */
+  public Collection<Contact> matches(final String query) {
+    final List<String> terms = new ArrayList<>(ContactTokens.splitTerms(query));
+    if (terms.isEmpty()) {
+      return null;
+    }
+
+    final List<Map<Contact, ?>> matchesPerTerm = new ArrayList<>(terms.size());
+    for (final String term : terms) {
+      matchesPerTerm.add(search(term));
+    }
+    if (matchesPerTerm.size() == 1) {
+      return Collections.unmodifiableSet(matchesPerTerm.get(0).keySet());
+    }
+    // Intersect starting from the most selective term.
+    Collections.sort(matchesPerTerm, (a, b) -> a.size() - b.size());
+    final List<Contact> matches = new ArrayList<>();
+    for (final Contact contact : matchesPerTerm.get(0).keySet()) {
+      boolean matchesAll = true;
+      for (int i = 1; i < matchesPerTerm.size() && matchesAll; i++) {
+        matchesAll = matchesPerTerm.get(i).containsKey(contact);
+      }
+      if (matchesAll) {
+        matches.add(contact);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * @return The contacts with a token starting with the given term.
+   */
+  private Map<Contact, ?> search(final String term) {
+    Node node = root;
+    final int depth = Math.min(term.length(), MAX_INDEXED_PREFIX);
+    for (int i = 0; i < depth && node != null; i++) {
+      node = node.children.get(term.charAt(i));
+    }
+    if (node == null) {
+      return Collections.emptyMap();
+    }
+    else if (term.length() <= MAX_INDEXED_PREFIX) {
+      return node.contacts;
+    }
+
+    final Map<Contact, Boolean> matches = new IdentityHashMap<>();
+    for (final Contact contact : node.contacts.keySet()) {
+      for (final String token : tokensByContact.get(contact)) {
+        if (token.startsWith(term)) {
+          matches.put(contact, true);
+          break;
+        }
+      }
+    }
+    return matches;
+  }
+
+  private void insert(final String token, final Contact contact) {
+    Node node = root;
+    final int depth = Math.min(token.length(), MAX_INDEXED_PREFIX);
+    for (int i = 0; i < depth; i++) {
+      Node child = node.children.get(token.charAt(i));
+      if (child == null) {
+        child = new Node();
+        node.children.put(token.charAt(i), child);
+      }
+      final Integer count = child.contacts.get(contact);
+      child.contacts.put(contact, (count == null ? 1 : count + 1));
+      node = child;
+    }
+  }
+
+  private void delete(final String token, final Contact contact) {
+    Node node = root;
+    final int depth = Math.min(token.length(), MAX_INDEXED_PREFIX);
+    for (int i = 0; i < depth; i++) {
+      final Node child = node.children.get(token.charAt(i));
+      if (child == null) {
+        return;
+      }
+      final Integer count = child.contacts.get(contact);
+      if (count == null || count <= 1) {
+        child.contacts.remove(contact);
+      }
+      else {
+        child.contacts.put(contact, count - 1);
+      }
+      if (child.contacts.isEmpty()) {
+        // No remaining token passes through this node, so neither does one through its descendants.
+        node.children.remove(token.charAt(i));
+        return;
+      }
+      node = child;
+    }
+  }
+
+}
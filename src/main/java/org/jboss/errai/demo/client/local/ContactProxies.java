@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import org.jboss.errai.databinding.client.BindableProxy;
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * Utilities for {@link Contact Contacts} that may be wrapped in Errai Data-Binding proxies.
+ * <p>
+ * Bound lists wrap every element in a {@link BindableProxy}, so the same {@link Contact} may be seen both as a proxy
+ * (from the list) and unwrapped (as it was received from the server). Unwrapping gives a stable identity for both.
+ */
+public final class ContactProxies {
+
+  private ContactProxies() {
+  }
+
+  /**
+   * @return The {@link Contact} wrapped by the given proxy, or the given {@link Contact} if it is not a proxy.
+   */
+  @SuppressWarnings("unchecked")
+  public static Contact unwrap(final Contact contact) {
+    if (contact instanceof BindableProxy) {
+      return ((BindableProxy<Contact>) contact).unwrap();
+    }
+    else {
+      return contact;
+    }
+  }
+
+}
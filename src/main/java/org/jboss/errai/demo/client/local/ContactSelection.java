@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * The selected {@link Contact Contacts} of a {@link VirtualContactList}. Contacts are compared by identity, because
+ * {@link Contact#equals(Object)} is false for unpersisted contacts (with an id of 0), and bound lists wrap contacts in
+ * proxies (see {@link ContactProxies}).
+ */
+final class ContactSelection {
+
+  private final List<Contact> selected = new ArrayList<>();
+
+  boolean contains(final Contact contact) {
+    final Contact unwrapped = ContactProxies.unwrap(contact);
+    for (final Contact candidate : selected) {
+      if (ContactProxies.unwrap(candidate) == unwrapped) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return True iff the contact was not already selected.
+   */
+  boolean add(final Contact contact) {
+    if (contains(contact)) {
+      return false;
+    }
+    selected.add(contact);
+    return true;
+  }
+
+  void clear() {
+    selected.clear();
+  }
+
+  boolean isEmpty() {
+    return selected.isEmpty();
+  }
+
+  List<Contact> asList() {
+    return Collections.unmodifiableList(selected);
+  }
+
+  /**
+   * Drops selected contacts that are not in the given list. A persisted contact that was replaced in the list by
+   * another object with the same id (for example, by a remote update) stays selected, and the selection then refers to
+   * the object in the list.
+   */
+  void retainIn(final List<Contact> contacts) {
+    if (selected.isEmpty()) {
+      return;
+    }
+    final Map<Contact, Contact> listed = new IdentityHashMap<>();
+    final Map<Long, Contact> listedById = new HashMap<>();
+    for (final Contact contact : contacts) {
+      listed.put(ContactProxies.unwrap(contact), contact);
+      if (contact.getId() != 0) {
+        listedById.put(contact.getId(), contact);
+      }
+    }
+    final List<Contact> retained = new ArrayList<>(selected.size());
+    for (final Contact contact : selected) {
+      Contact current = listed.get(ContactProxies.unwrap(contact));
+      if (current == null && contact.getId() != 0) {
+        current = listedById.get(contact.getId());
+      }
+      if (current != null && !retained.contains(current)) {
+        retained.add(current);
+      }
+    }
+    selected.clear();
+    selected.addAll(retained);
+  }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * The {@link Contact} properties by which a {@link ContactSorter} can order contacts.
+ */
+public enum ContactSortKey {
+
+  NICKNAME {
+    @Override
+    String value(final Contact contact) {
+      return contact.getNickname();
+    }
+  },
+  FULLNAME {
+    @Override
+    String value(final Contact contact) {
+      return contact.getFullname();
+    }
+  },
+  EMAIL {
+    @Override
+    String value(final Contact contact) {
+      return contact.getEmail();
+    }
+  },
+  PHONENUMBER {
+    @Override
+    String value(final Contact contact) {
+      return contact.getPhonenumber();
+    }
+  };
+
+  abstract String value(Contact contact);
+
+  /**
+   * Appends the collation key for this property of the given contact. Keys compare case-insensitively, blank values
+   * sort after non-blank values, and each key is terminated with a character that sorts before any other so that keys
+   * for several properties can be concatenated and compared as a single {@link String}.
+   */
+  void appendCollationKey(final Contact contact, final StringBuilder builder) {
+    final String value = value(contact);
+    if (value == null || value.trim().isEmpty()) {
+      builder.append('\u0002');
+    }
+    else {
+      builder.append('\u0001').append(value.trim().toLowerCase());
+    }
+    builder.append('\u0000');
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * Sorts {@link Contact Contacts} by one or more {@link ContactSortKey ContactSortKeys}.
+ * <p>
+ * Rather than comparing properties on every comparison, a single collation key is computed once per contact and the
+ * sort is performed on an index permutation over those keys. The sort is stable, so contacts with equal keys keep their
+ * current relative order.
+ */
+public class ContactSorter {
+
+  private final List<ContactSortKey> keys;
+
+  public ContactSorter(final ContactSortKey... keys) {
+    if (keys.length == 0) {
+      throw new IllegalArgumentException("At least one " + ContactSortKey.class.getSimpleName() + " is required.");
+    }
+    this.keys = Collections.unmodifiableList(Arrays.asList(keys));
+  }
+
+  public List<ContactSortKey> getKeys() {
+    return keys;
+  }
+
+  /**
+   * @return A {@link String} that orders contacts in the same way as this sorter when compared with
+   *         {@link String#compareTo(String)}.
+   */
+  public String collationKey(final Contact contact) {
+    final StringBuilder builder = new StringBuilder();
+    for (final ContactSortKey key : keys) {
+      key.appendCollationKey(contact, builder);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @return A permutation of indices into {@code contacts}, such that {@code contacts.get(permutation[i])} is the
+   *         contact at position {@code i} in sorted order.
+   */
+  public int[] permutation(final List<Contact> contacts) {
+    final int size = contacts.size();
+    final String[] collationKeys = new String[size];
+    final Integer[] indices = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      collationKeys[i] = collationKey(contacts.get(i));
+      indices[i] = i;
+    }
+    Arrays.sort(indices, (a, b) -> {
+      final int keyComparison = collationKeys[a].compareTo(collationKeys[b]);
+      return (keyComparison != 0 ? keyComparison : a - b);
+    });
+
+    final int[] permutation = new int[size];
+    for (int i = 0; i < size; i++) {
+      permutation[i] = indices[i];
+    }
+
+    return permutation;
+  }
+
+  /**
+   * @return A sorted copy of {@code contacts}.
+   */
+  public List<Contact> sort(final List<Contact> contacts) {
+    final int[] permutation = permutation(contacts);
+    final List<Contact> sorted = new ArrayList<>(permutation.length);
+    for (final int index : permutation) {
+      sorted.add(contacts.get(index));
+    }
+
+    return sorted;
+  }
+
+  /**
+   * @param sortedContacts
+   *          A list that is already in the order of this sorter.
+   * @return The index at which {@code contact} should be inserted to keep {@code sortedContacts} sorted. Contacts with
+   *         an equal key are placed after existing ones, so insertion preserves arrival order.
+   */
+  public int insertionIndex(final List<Contact> sortedContacts, final Contact contact) {
+    final String key = collationKey(contact);
+    int low = 0;
+    int high = sortedContacts.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (collationKey(sortedContacts.get(mid)).compareTo(key) <= 0) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.bus.client.api.BusLifecycleAdapter;
+import org.jboss.errai.bus.client.api.BusLifecycleEvent;
+import org.jboss.errai.bus.client.api.ClientMessageBus;
+import org.jboss.errai.bus.client.api.base.MessageBuilder;
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactInterest;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.user.client.Timer;
+
+/**
+ * <p>
+ * Tells the server which {@link Contact Contacts} this client displays (see {@link ContactInterest}), so that it is
+ * only sent changes to those contacts. The interest is sent once the filter or the rendered rows have stopped changing
+ * for {@link #UPDATE_DELAY_MS}, so scrolling does not send a message per frame.
+ *
+ * <p>
+ * Changes outside the previous interest were not sent to this client, so the registered handler is invoked once the
+ * server has applied each new interest, to fetch the changes since the last synchronization. The server forgets the
+ * interest of a bus session that ends, so it is sent again when the bus reconnects.
+ */
+@ApplicationScoped
+public class ContactSubscription {
+
+  static final int UPDATE_DELAY_MS = 300;
+
+  @Inject
+  private ClientMessageBus bus;
+
+  @Inject
+  private ClientMetrics metrics;
+
+  private String filter;
+
+  private List<Long> visibleIds = new ArrayList<>();
+
+  private Runnable registeredHandler = () -> {};
+
+  private final Timer timer = new Timer() {
+    @Override
+    public void run() {
+      send();
+    }
+  };
+
+  @PostConstruct
+  private void setup() {
+    bus.addLifecycleListener(new BusLifecycleAdapter() {
+      @Override
+      public void busOnline(final BusLifecycleEvent e) {
+        send();
+      }
+    });
+  }
+
+  /**
+   * @param registeredHandler
+   *          Invoked whenever the server has applied the interest of this client.
+   */
+  public void setRegisteredHandler(final Runnable registeredHandler) {
+    this.registeredHandler = registeredHandler;
+  }
+
+  /**
+   * @param filter
+   *          The query typed into the filter box.
+   */
+  public void setFilter(final String filter) {
+    final String value = (filter == null || filter.trim().isEmpty() ? null : filter.trim());
+    if (value == null ? this.filter != null : !value.equals(this.filter)) {
+      this.filter = value;
+      timer.schedule(UPDATE_DELAY_MS);
+    }
+  }
+
+  /**
+   * @param window
+   *          The contacts bound to rendered rows. Contacts that have not been assigned an id are ignored.
+   */
+  public void setWindow(final List<Contact> window) {
+    final List<Long> ids = new ArrayList<>(window.size());
+    for (final Contact contact : window) {
+      if (contact.getId() != 0) {
+        ids.add(contact.getId());
+      }
+    }
+    if (!ids.equals(visibleIds)) {
+      visibleIds = ids;
+      timer.schedule(UPDATE_DELAY_MS);
+    }
+  }
+
+  /**
+   * Sends the current interest without waiting.
+   */
+  public void register() {
+    timer.cancel();
+    send();
+  }
+
+  private void send() {
+    final double sentAt = Duration.currentTimeMillis();
+    MessageBuilder.createMessage()
+            .toSubject(ContactInterest.INTEREST_SUBJECT)
+            .signalling()
+            .with(ContactInterest.INTEREST_PART, new ContactInterest(filter, visibleIds))
+            .noErrorHandling()
+            .repliesTo(reply -> {
+              final Long serverTime = reply.get(Long.class, ContactInterest.SERVER_TIME_PART);
+              if (serverTime != null) {
+                metrics.setServerTime(serverTime, sentAt);
+              }
+              registeredHandler.run();
+            })
+            .sendNowWith(bus);
+  }
+
+}
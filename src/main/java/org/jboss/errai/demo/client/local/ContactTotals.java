@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.bus.client.api.BusLifecycleAdapter;
+import org.jboss.errai.bus.client.api.BusLifecycleEvent;
+import org.jboss.errai.bus.client.api.ClientMessageBus;
+import org.jboss.errai.common.client.function.Consumer;
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactAggregatesDelta;
+import org.jboss.errai.demo.client.shared.ContactInterest;
+
+import com.google.gwt.user.client.Timer;
+
+/**
+ * <p>
+ * Keeps a copy of the {@link ContactAggregates} of this client's tenant up to date. The totals are fetched once, and
+ * then updated with the {@link ContactAggregatesDelta deltas} pushed by the server, so they never require reading the
+ * contacts. If a delta is missed (for example, while the bus was disconnected), the totals are fetched again.
+ *
+ * <p>
+ * Until the server has loaded the contacts of the tenant, and after a failed fetch, fetching is retried every
+ * {@link #RETRY_DELAY_MS} milliseconds.
+ */
+@ApplicationScoped
+public class ContactTotals {
+
+  static final int RETRY_DELAY_MS = 5000;
+
+  @Inject
+  private ContactTransport transport;
+
+  @Inject
+  private ClientMessageBus bus;
+
+  private ContactAggregates aggregates;
+
+  private boolean fetching;
+
+  private Consumer<ContactAggregates> changeHandler = aggregates -> {};
+
+  private final Timer retryTimer = new Timer() {
+    @Override
+    public void run() {
+      // The last fetch returned nothing or failed.
+      fetching = false;
+      fetch();
+    }
+  };
+
+  @PostConstruct
+  private void setup() {
+    bus.subscribe(ContactInterest.AGGREGATES_SUBJECT,
+            message -> apply(message.get(ContactAggregatesDelta.class, ContactInterest.AGGREGATES_PART)));
+    bus.addLifecycleListener(new BusLifecycleAdapter() {
+      @Override
+      public void busOnline(final BusLifecycleEvent e) {
+        // Deltas sent while disconnected were lost.
+        fetch();
+      }
+    });
+    fetch();
+  }
+
+  /**
+   * @param changeHandler
+   *          Invoked with the latest totals whenever they change.
+   */
+  public void setChangeHandler(final Consumer<ContactAggregates> changeHandler) {
+    this.changeHandler = changeHandler;
+    if (aggregates != null) {
+      changeHandler.accept(aggregates);
+    }
+  }
+
+  /**
+   * @return The latest totals, or null if they have not been fetched yet.
+   */
+  public ContactAggregates getAggregates() {
+    return aggregates;
+  }
+
+  private void apply(final ContactAggregatesDelta delta) {
+    if (aggregates == null) {
+      // The totals are being fetched.
+      return;
+    }
+    final ContactAggregates updated = aggregates.apply(delta);
+    if (updated == null) {
+      // A delta was missed, or the server restarted its sequence after reloading the contacts.
+      fetch();
+    }
+    else {
+      aggregates = updated;
+      changeHandler.accept(aggregates);
+    }
+  }
+
+  private void fetch() {
+    if (fetching) {
+      return;
+    }
+    fetching = true;
+    retryTimer.schedule(RETRY_DELAY_MS);
+    transport.getAggregates(fetched -> {
+      if (fetched != null) {
+        fetching = false;
+        retryTimer.cancel();
+        aggregates = fetched;
+        changeHandler.accept(aggregates);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.bus.client.api.base.TransportIOException;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.common.client.api.Caller;
+import org.jboss.errai.common.client.api.ErrorCallback;
+import org.jboss.errai.common.client.api.RemoteCallback;
+import org.jboss.errai.common.client.function.Consumer;
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactBatchResult;
+import org.jboss.errai.demo.client.shared.ContactChanges;
+import org.jboss.errai.demo.client.shared.ContactRpcService;
+import org.jboss.errai.demo.client.shared.ContactStorageService;
+import org.jboss.errai.enterprise.client.jaxrs.api.ResponseException;
+import org.jboss.errai.enterprise.client.jaxrs.api.RestErrorCallback;
+
+/**
+ * <p>
+ * Calls the contact service over the transport selected for this deployment: JAX-RS requests to the
+ * {@link ContactStorageService}, or Errai RPC messages to the {@link ContactRpcService} over the bus connection that is
+ * already open for receiving contact events. The server selects the transport with the {@code errai-crud.transport}
+ * context parameter in {@code web.xml}, which is passed to the client in the host page.
+ *
+ * <p>
+ * Errors are reported with a {@link Throwable}, and {@link #isDisconnected(Throwable)} tells whether a failed call
+ * should be retried once the server is reachable again, and {@link #getRetryAfterMillis(Throwable)} whether it should
+ * be retried after a pause.
+ */
+@ApplicationScoped
+public class ContactTransport {
+
+  public enum Mode {
+    REST, BUS
+  }
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private static final int DEFAULT_RETRY_AFTER_MS = 1000;
+
+  @Inject
+  private Caller<ContactStorageService> restService;
+
+  @Inject
+  private Caller<ContactRpcService> rpcService;
+
+  @Inject
+  private ClientMetrics metrics;
+
+  private Mode mode;
+
+  @PostConstruct
+  private void setup() {
+    mode = ("bus".equals(getHostPageTransport()) ? Mode.BUS : Mode.REST);
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public void getChanges(final long since, final RemoteCallback<ContactChanges> callback) {
+    final RemoteCallback<ContactChanges> timed = timed("getChanges", callback);
+    if (mode == Mode.BUS) {
+      rpcService.call(timed).getChanges(since);
+    }
+    else {
+      restService.call(timed).getChanges(since);
+    }
+  }
+
+  /**
+   * @param callback
+   *          Receives the totals, or null if the server has not loaded them yet.
+   */
+  public void getAggregates(final RemoteCallback<ContactAggregates> callback) {
+    if (mode == Mode.BUS) {
+      rpcService.call(callback).getAggregates();
+    }
+    else {
+      restService.call(callback).getAggregates();
+    }
+  }
+
+  public void batch(final ContactBatch batch, final RemoteCallback<ContactBatchResult> resultCallback,
+          final Consumer<Throwable> onError) {
+    final RemoteCallback<ContactBatchResult> callback = timed("batch", resultCallback);
+    if (mode == Mode.BUS) {
+      final ErrorCallback<Message> errorCallback = (message, throwable) -> {
+        onError.accept(throwable);
+        return false;
+      };
+      rpcService.call(callback, errorCallback).batch(batch);
+    }
+    else {
+      final RestErrorCallback errorCallback = (request, throwable) -> {
+        onError.accept(throwable);
+        return false;
+      };
+      restService.call(callback, errorCallback).batch(batch);
+    }
+  }
+
+  /**
+   * Wraps a callback to record the latency of successful calls in the {@link ClientMetrics}, per call and transport
+   * (for example {@code call.batch.rest}).
+   */
+  private <T> RemoteCallback<T> timed(final String call, final RemoteCallback<T> callback) {
+    if (!metrics.isSampled()) {
+      return callback;
+    }
+    final String name = "call." + call + "." + mode.name().toLowerCase();
+    final double start = ClientMetrics.now();
+    return response -> {
+      metrics.recordSince(name, start);
+      callback.callback(response);
+    };
+  }
+
+  /**
+   * @return True iff the call failed because the server could not be reached, rather than because the server rejected
+   *         it.
+   */
+  public boolean isDisconnected(final Throwable throwable) {
+    if (throwable instanceof TransportIOException) {
+      return true;
+    }
+    else if (throwable instanceof ResponseException) {
+      return ((ResponseException) throwable).getResponse().getStatusCode() == 0;
+    }
+    else {
+      // Without a response, a REST call never reached the server. A bus call that reached it reports the server error.
+      return mode == Mode.REST;
+    }
+  }
+
+  /**
+   * @return The milliseconds after which a call that the server turned away because of too many requests (see
+   *         {@code WriteRateLimits} and {@code TenantQuotas}) may be retried, or -1 if it failed for another reason.
+   */
+  public int getRetryAfterMillis(final Throwable throwable) {
+    if (!(throwable instanceof ResponseException)
+            || ((ResponseException) throwable).getResponse().getStatusCode() != TOO_MANY_REQUESTS) {
+      return -1;
+    }
+    final String retryAfter = ((ResponseException) throwable).getResponse().getHeader("Retry-After");
+    try {
+      return (retryAfter == null ? DEFAULT_RETRY_AFTER_MS : Integer.parseInt(retryAfter.trim()) * 1000);
+    }
+    catch (final NumberFormatException e) {
+      // An HTTP date rather than a number of seconds.
+      return DEFAULT_RETRY_AFTER_MS;
+    }
+  }
+
+  private static native String getHostPageTransport() /*-{
+    return $wnd.erraiContactTransport || null;
+  }-*/;
+
+}
@@ -0,0 +1,684 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.CREATE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.UPDATE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.bus.client.api.BusLifecycleAdapter;
+import org.jboss.errai.bus.client.api.BusLifecycleEvent;
+import org.jboss.errai.bus.client.api.ClientMessageBus;
+import org.jboss.errai.common.client.api.RemoteCallback;
+import org.jboss.errai.common.client.function.Consumer;
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactBatchResult;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+import org.jboss.errai.marshalling.client.Marshalling;
+import org.slf4j.Logger;
+
+import com.google.gwt.storage.client.Storage;
+import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.Window;
+
+/**
+ * <p>
+ * Sends {@link Contact} creations, updates, and deletions to the contact service (see {@link ContactTransport}). Every write is first
+ * recorded in a journal in browser local storage and removed once the server has accepted it, so writes made while
+ * disconnected (or while the page is closed before they are sent) are replayed, in order, when the bus reconnects.
+ *
+ * <p>
+ * Writes are coalesced while they wait to be sent: there is at most one unsent write per {@link Contact}, so repeated
+ * edits of a contact are sent as a single update, an update of an unsent create is sent as part of the create, and a
+ * delete of an unsent create cancels both. Unsent writes are then sent together in {@link ContactBatch batches} of up to
+ * {@link #MAX_BATCH_SIZE}, each applied in one server transaction, with at most {@link #MAX_IN_FLIGHT_BATCHES} batches
+ * in flight at once.
+ *
+ * <p>
+ * Writes for the same {@link Contact} are still sent in order: a write is held back while an earlier write for the
+ * same contact is in flight, and an update or delete of a new contact is held back until the server has assigned the
+ * contact an id. Writes are matched to contacts by id, or, for a contact without an id, by the create that introduced
+ * it, rather than by object identity, so they are still matched once the journal has been reloaded into new objects or
+ * when the contact is wrapped in a proxy (see {@link ContactProxies}).
+ *
+ * <p>
+ * Every batch is sent with an {@link ContactBatch#getIdempotencyKey() idempotency key} that is journaled with its
+ * writes, so a batch can be resent whenever its outcome is unknown without being applied twice. A batch that is not
+ * answered within {@link #BATCH_TIMEOUT_MS} is resent immediately, and a late reply to the earlier attempt is ignored.
+ * Once a write has been sent, later writes for the same contact are no longer coalesced into it, since the server may
+ * already have applied it. When the server answers that it is receiving too many requests, nothing is sent until the
+ * time it asks the client to wait has passed, and then the rejected batch is resent.
+ *
+ * <p>
+ * Local storage is shared by all tabs of the application, so every page load journals under an owner id of its own and
+ * keeps a heartbeat entry fresh while it is open. A tab only replays the journal of an owner that is gone: its heartbeat
+ * was removed when its page closed, or has not been renewed for {@link #OWNER_TIMEOUT_MS}. It claims such a journal with
+ * a claim entry, and takes it over only if the claim is still its own {@link #CLAIM_SETTLE_MS} later, so that two tabs
+ * that start at the same time do not both replay it. A reloaded tab therefore replays the writes it left behind.
+ */
+@ApplicationScoped
+public class ContactWriter {
+
+  private static final String JOURNAL_PREFIX = "errai-crud.pending.";
+
+  private static final String HEARTBEAT_PREFIX = "errai-crud.journal-owner.";
+
+  private static final String CLAIM_PREFIX = "errai-crud.journal-claim.";
+
+  static final int HEARTBEAT_INTERVAL_MS = 5000;
+
+  static final int OWNER_TIMEOUT_MS = 20000;
+
+  static final int CLAIM_SETTLE_MS = 500;
+
+  static final int MAX_BATCH_SIZE = 50;
+
+  static final int MAX_IN_FLIGHT_BATCHES = 2;
+
+  static final int BATCH_TIMEOUT_MS = 10000;
+
+  /**
+   * A write that has not yet been accepted by the server.
+   */
+  private static class PendingWrite {
+
+    private final OperationType type;
+    private Contact contact;
+    private final int sequence;
+    private boolean inFlight;
+
+    /**
+     * The sequence of the create of this write's contact, if the contact had no id when this write was made, or -1.
+     */
+    private int createSequence = -1;
+
+    /**
+     * The idempotency key of the batch this write was first sent in, or null if it has never been sent.
+     */
+    private String batchKey;
+
+    private PendingWrite(final OperationType type, final Contact contact, final int sequence) {
+      this.type = type;
+      this.contact = contact;
+      this.sequence = sequence;
+    }
+
+    /**
+     * @return A key that is the same for all writes of one contact.
+     */
+    private String contactKey() {
+      return (contact.getId() != 0 ? "id:" + contact.getId() : "new:" + createSequence);
+    }
+
+  }
+
+  @Inject
+  private ContactTransport transport;
+
+  @Inject
+  private ClientMessageBus bus;
+
+  @Inject
+  private LocalContactStore localStore;
+
+  @Inject
+  private Logger logger;
+
+  private final Storage storage = Storage.getLocalStorageIfSupported();
+
+  private final List<PendingWrite> journal = new ArrayList<>();
+
+  private Consumer<Long> missingHandler = id -> {};
+
+  private Consumer<Contact> adoptedCreateHandler = contact -> {};
+
+  /**
+   * Actions waiting for the creates that had been sent when they were registered (see {@link #afterSentCreates}).
+   */
+  private final Map<Runnable, List<PendingWrite>> createWaiters = new LinkedHashMap<>();
+
+  private int nextSequence;
+
+  private int inFlightBatches;
+
+  /**
+   * True while waiting to send again after the server turned a batch away because of too many requests.
+   */
+  private boolean paused;
+
+  private final Timer resumeTimer = new Timer() {
+
+    @Override
+    public void run() {
+      paused = false;
+      sendBatches();
+    }
+
+  };
+
+  private final Timer heartbeatTimer = new Timer() {
+
+    @Override
+    public void run() {
+      storage.setItem(HEARTBEAT_PREFIX + keyPrefix, Long.toString(System.currentTimeMillis()));
+      claimOrphanedJournals();
+    }
+
+  };
+
+  /**
+   * A random prefix that makes the idempotency keys of this client unique among all clients. It is also the owner id of
+   * this page's journal.
+   */
+  private final String keyPrefix = Long.toString((long) (Math.random() * Long.MAX_VALUE), 36);
+
+  @PostConstruct
+  private void setup() {
+    if (storage != null) {
+      heartbeatTimer.run();
+      heartbeatTimer.scheduleRepeating(HEARTBEAT_INTERVAL_MS);
+      // Lets a reloaded page take over this journal without waiting for the heartbeat to time out.
+      Window.addWindowClosingHandler(event -> storage.removeItem(HEARTBEAT_PREFIX + keyPrefix));
+    }
+    bus.addLifecycleListener(new BusLifecycleAdapter() {
+      @Override
+      public void busOnline(final BusLifecycleEvent e) {
+        sendBatches();
+      }
+    });
+    sendBatches();
+  }
+
+  /**
+   * @param missingHandler
+   *          Invoked with the id of a {@link Contact} that was updated or deleted locally but no longer exists on the
+   *          server, so that it can be removed from the displayed list.
+   */
+  public void setMissingHandler(final Consumer<Long> missingHandler) {
+    this.missingHandler = missingHandler;
+  }
+
+  /**
+   * @param adoptedCreateHandler
+   *          Invoked with each contact whose create was taken over from the journal of a closed page and not yet
+   *          accepted by the server. These are not in the {@link LocalContactStore} and must be displayed separately.
+   */
+  public void setAdoptedCreateHandler(final Consumer<Contact> adoptedCreateHandler) {
+    this.adoptedCreateHandler = adoptedCreateHandler;
+  }
+
+  /**
+   * Runs the given action once the server has answered every create that has been sent so far, or immediately if there
+   * are none. Contacts read from the server in the meantime may include those creates, under ids that their displayed
+   * copies do not have yet.
+   */
+  public void afterSentCreates(final Runnable action) {
+    final List<PendingWrite> sent = new ArrayList<>();
+    for (final PendingWrite write : journal) {
+      if (write.type == CREATE && write.batchKey != null) {
+        sent.add(write);
+      }
+    }
+    if (sent.isEmpty()) {
+      action.run();
+    }
+    else {
+      createWaiters.put(action, sent);
+    }
+  }
+
+  /**
+   * @return The number of writes not yet accepted by the server.
+   */
+  public int getPendingCount() {
+    return journal.size();
+  }
+
+  public void create(final Contact contact) {
+    final PendingWrite write = new PendingWrite(CREATE, ContactProxies.unwrap(contact), nextSequence++);
+    write.createSequence = write.sequence;
+    append(write);
+  }
+
+  /**
+   * The {@link LocalContactStore} is updated immediately, so the change is displayed after a reload even if it has not
+   * been sent.
+   */
+  public void update(final Contact contact) {
+    localStore.put(contact);
+    final PendingWrite queued = findQueued(contact);
+    if (queued != null) {
+      // The queued create or update has not been sent yet, so it can carry the updated state. After a reload, the
+      // queued write may hold an older copy of the contact.
+      queued.contact = ContactProxies.unwrap(contact);
+      save(queued);
+    }
+    else {
+      append(newWrite(UPDATE, contact));
+    }
+  }
+
+  /**
+   * The {@link LocalContactStore} is updated immediately, so the change is displayed after a reload even if it has not
+   * been sent.
+   */
+  public void delete(final Contact contact) {
+    if (contact.getId() != 0) {
+      localStore.remove(contact.getId());
+    }
+    final PendingWrite queued = findQueued(contact);
+    if (queued != null) {
+      remove(queued);
+    }
+    if (queued == null || queued.type != CREATE) {
+      append(newWrite(DELETE, contact));
+    }
+    // Otherwise the server has never seen this contact.
+  }
+
+  /**
+   * @return The unsent write for the given contact, or null if there is none.
+   */
+  private PendingWrite findQueued(final Contact contact) {
+    final String contactKey = contactKey(ContactProxies.unwrap(contact));
+    for (final PendingWrite write : journal) {
+      if (!write.inFlight && write.batchKey == null && write.contactKey().equals(contactKey)) {
+        return write;
+      }
+    }
+    return null;
+  }
+
+  private PendingWrite newWrite(final OperationType type, final Contact contact) {
+    final Contact unwrapped = ContactProxies.unwrap(contact);
+    final PendingWrite write = new PendingWrite(type, unwrapped, nextSequence++);
+    if (unwrapped.getId() == 0) {
+      write.createSequence = createSequenceOf(unwrapped);
+    }
+    return write;
+  }
+
+  /**
+   * @return The key shared by the writes of the given unwrapped contact (see {@link PendingWrite#contactKey()}).
+   */
+  private String contactKey(final Contact contact) {
+    return (contact.getId() != 0 ? "id:" + contact.getId() : "new:" + createSequenceOf(contact));
+  }
+
+  /**
+   * @return The sequence of the journaled create of the given unwrapped contact, which has no id yet, or -1 if there is
+   *         none. The contacts of journaled creates are the ones displayed (see {@link #setAdoptedCreateHandler}), so they
+   *         are matched by identity.
+   */
+  private int createSequenceOf(final Contact contact) {
+    for (final PendingWrite write : journal) {
+      if (write.type == CREATE && write.contact == contact) {
+        return write.sequence;
+      }
+    }
+    return -1;
+  }
+
+  private void append(final PendingWrite write) {
+    journal.add(write);
+    save(write);
+    sendBatches();
+  }
+
+  /**
+   * Sends batches of unsent writes until there are no sendable writes or the in-flight limit is reached.
+   */
+  private void sendBatches() {
+    while (!paused && inFlightBatches < MAX_IN_FLIGHT_BATCHES) {
+      final List<PendingWrite> batch = nextBatch();
+      if (batch.isEmpty()) {
+        return;
+      }
+      send(batch);
+    }
+  }
+
+  /**
+   * @return The writes of a batch that was sent before without a reply, or otherwise up to {@link #MAX_BATCH_SIZE}
+   *         unsent writes, in journal order, with at most one write per contact.
+   */
+  private List<PendingWrite> nextBatch() {
+    final List<PendingWrite> batch = new ArrayList<>();
+    for (final PendingWrite write : journal) {
+      if (!write.inFlight && write.batchKey != null
+              && (batch.isEmpty() || write.batchKey.equals(batch.get(0).batchKey))) {
+        batch.add(write);
+      }
+    }
+    if (!batch.isEmpty()) {
+      // Resent exactly as before, so that the server recognizes the key.
+      return batch;
+    }
+
+    // Contacts with an earlier write that is in flight, held back, or already in this batch.
+    final Set<String> blocked = new HashSet<>();
+    for (final PendingWrite write : journal) {
+      if (batch.size() == MAX_BATCH_SIZE) {
+        break;
+      }
+      final String contactKey = write.contactKey();
+      final boolean sendable = !write.inFlight && write.batchKey == null && !blocked.contains(contactKey)
+              && (write.type == CREATE || write.contact.getId() != 0);
+      if (sendable) {
+        batch.add(write);
+      }
+      blocked.add(contactKey);
+    }
+    return batch;
+  }
+
+  private void send(final List<PendingWrite> batch) {
+    final List<Contact> created = new ArrayList<>();
+    final List<Contact> updated = new ArrayList<>();
+    final List<Long> deleted = new ArrayList<>();
+    final String key = (batch.get(0).batchKey != null ? batch.get(0).batchKey
+            : keyPrefix + "." + batch.get(0).sequence);
+    for (final PendingWrite write : batch) {
+      write.inFlight = true;
+      if (write.batchKey == null) {
+        write.batchKey = key;
+        save(write);
+      }
+      switch (write.type) {
+      case CREATE:
+        created.add(write.contact);
+        break;
+      case UPDATE:
+        updated.add(write.contact);
+        break;
+      case DELETE:
+        deleted.add(write.contact.getId());
+        break;
+      default:
+        throw new IllegalArgumentException("Unrecognized operation type: " + write.type);
+      }
+    }
+    inFlightBatches++;
+
+    final Attempt attempt = new Attempt(batch);
+    final RemoteCallback<ContactBatchResult> onSuccess = result -> {
+      if (attempt.finish()) {
+        onAccepted(batch, result);
+      }
+    };
+    transport.batch(new ContactBatch(created, updated, deleted, bus.getSessionId(), key), onSuccess, throwable -> {
+      if (attempt.finish()) {
+        onFailed(batch, throwable);
+      }
+    });
+    attempt.schedule(BATCH_TIMEOUT_MS);
+  }
+
+  /**
+   * Resends a batch that has not been answered in time, unless it is answered first.
+   */
+  private class Attempt extends Timer {
+
+    private final List<PendingWrite> batch;
+    private boolean finished;
+
+    private Attempt(final List<PendingWrite> batch) {
+      this.batch = batch;
+    }
+
+    /**
+     * @return True iff this is the first reply or timeout of this attempt.
+     */
+    private boolean finish() {
+      cancel();
+      final boolean first = !finished;
+      finished = true;
+      return first;
+    }
+
+    @Override
+    public void run() {
+      if (finish()) {
+        inFlightBatches--;
+        for (final PendingWrite write : batch) {
+          write.inFlight = false;
+        }
+        logger.info("No reply to a batch of " + batch.size() + " write(s) in " + BATCH_TIMEOUT_MS + " ms. Resending.");
+        sendBatches();
+      }
+    }
+
+  }
+
+  private void onAccepted(final List<PendingWrite> batch, final ContactBatchResult result) {
+    inFlightBatches--;
+    int created = 0;
+    for (final PendingWrite write : batch) {
+      if (write.type != CREATE) {
+        continue;
+      }
+      final long id = result.getCreatedIds().get(created++);
+      write.contact.setId(id);
+      // Later writes for this contact were journaled without an id, possibly with a copy of the contact.
+      for (final PendingWrite queued : journal) {
+        if (!batch.contains(queued) && queued.createSequence == write.sequence) {
+          queued.contact.setId(id);
+          save(queued);
+        }
+      }
+      localStore.put(write.contact);
+    }
+    for (final PendingWrite write : batch) {
+      remove(write);
+    }
+    for (final Long id : result.getMissing()) {
+      // Deleted on the server (for example, from another browser session) before this write arrived.
+      localStore.remove(id);
+      missingHandler.accept(id);
+    }
+    runCreateWaiters();
+
+    sendBatches();
+  }
+
+  private void onFailed(final List<PendingWrite> batch, final Throwable throwable) {
+    inFlightBatches--;
+    final int retryAfterMillis = transport.getRetryAfterMillis(throwable);
+    if (retryAfterMillis >= 0) {
+      // Keep the writes, which are resent with the same key, and let other clients go first.
+      for (final PendingWrite write : batch) {
+        write.inFlight = false;
+      }
+      paused = true;
+      resumeTimer.schedule(retryAfterMillis);
+      logger.info("Server is busy. Resending a batch of " + batch.size() + " write(s) in " + retryAfterMillis + " ms.");
+    }
+    else if (transport.isDisconnected(throwable)) {
+      // Keep the writes and retry when the bus is back online.
+      for (final PendingWrite write : batch) {
+        write.inFlight = false;
+      }
+      logger.info("Could not reach server. " + journal.size() + " write(s) will be sent when reconnected.");
+    }
+    else {
+      // The server rejected this batch, so retrying will not help.
+      logger.warn("Server rejected a batch of " + batch.size() + " write(s)", throwable);
+      for (final PendingWrite write : batch) {
+        remove(write);
+      }
+      runCreateWaiters();
+      sendBatches();
+    }
+  }
+
+  /**
+   * Runs the actions whose creates have all been answered.
+   */
+  private void runCreateWaiters() {
+    final List<Runnable> ready = new ArrayList<>();
+    final Iterator<Map.Entry<Runnable, List<PendingWrite>>> iterator = createWaiters.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<Runnable, List<PendingWrite>> waiter = iterator.next();
+      waiter.getValue().retainAll(journal);
+      if (waiter.getValue().isEmpty()) {
+        iterator.remove();
+        ready.add(waiter.getKey());
+      }
+    }
+    for (final Runnable action : ready) {
+      action.run();
+    }
+  }
+
+  private void save(final PendingWrite write) {
+    if (storage != null) {
+      storage.setItem(JOURNAL_PREFIX + keyPrefix + "." + write.sequence, write.type.name() + ":"
+              + (write.batchKey == null ? "" : write.batchKey) + ":" + write.createSequence + ":"
+              + Marshalling.toJSON(write.contact));
+    }
+  }
+
+  private void remove(final PendingWrite write) {
+    journal.remove(write);
+    if (storage != null) {
+      storage.removeItem(JOURNAL_PREFIX + keyPrefix + "." + write.sequence);
+    }
+  }
+
+  /**
+   * Claims the journals of owners that are gone and not already claimed by another open page, and takes over those
+   * that are still claimed by this page after {@link #CLAIM_SETTLE_MS}.
+   */
+  private void claimOrphanedJournals() {
+    final long now = System.currentTimeMillis();
+    final Set<String> claimed = new HashSet<>();
+    for (int i = 0; i < storage.getLength(); i++) {
+      final String key = storage.key(i);
+      if (key.startsWith(JOURNAL_PREFIX)) {
+        final String owner = ownerOf(key);
+        final String claimant = storage.getItem(CLAIM_PREFIX + owner);
+        if (!owner.equals(keyPrefix) && !isAlive(owner, now) && (claimant == null || !isAlive(claimant, now))) {
+          claimed.add(owner);
+        }
+      }
+    }
+    if (claimed.isEmpty()) {
+      return;
+    }
+
+    for (final String owner : claimed) {
+      storage.setItem(CLAIM_PREFIX + owner, keyPrefix);
+    }
+    new Timer() {
+      @Override
+      public void run() {
+        for (final String owner : claimed) {
+          if (keyPrefix.equals(storage.getItem(CLAIM_PREFIX + owner))) {
+            adoptJournal(owner);
+            storage.removeItem(CLAIM_PREFIX + owner);
+            storage.removeItem(HEARTBEAT_PREFIX + owner);
+          }
+        }
+        sendBatches();
+      }
+    }.schedule(CLAIM_SETTLE_MS);
+  }
+
+  /**
+   * @return True iff the owner's heartbeat is recent enough that its page is probably still open.
+   */
+  private boolean isAlive(final String owner, final long now) {
+    final String heartbeat = storage.getItem(HEARTBEAT_PREFIX + owner);
+    return heartbeat != null && now - Long.parseLong(heartbeat) < OWNER_TIMEOUT_MS;
+  }
+
+  /**
+   * @return The owner id in the given journal key, which is empty for journals written before journals had owners.
+   */
+  private static String ownerOf(final String key) {
+    final String rest = key.substring(JOURNAL_PREFIX.length());
+    final int dot = rest.lastIndexOf('.');
+    return (dot < 0 ? "" : rest.substring(0, dot));
+  }
+
+  /**
+   * Moves the journal of another owner into this page's journal, after the writes already journaled here. The writes
+   * get new sequences, in their original order.
+   */
+  private void adoptJournal(final String owner) {
+    final String ownerPrefix = JOURNAL_PREFIX + (owner.isEmpty() ? "" : owner + ".");
+    final List<Integer> sequences = new ArrayList<>();
+    for (int i = 0; i < storage.getLength(); i++) {
+      final String key = storage.key(i);
+      if (key.startsWith(JOURNAL_PREFIX) && ownerOf(key).equals(owner)) {
+        sequences.add(Integer.parseInt(key.substring(ownerPrefix.length())));
+      }
+    }
+    Collections.sort(sequences);
+
+    final Map<Integer, Integer> renumbered = new LinkedHashMap<>();
+    final List<PendingWrite> adopted = new ArrayList<>();
+    for (final Integer sequence : sequences) {
+      // TYPE:KEY:CREATE:JSON, where KEY is empty for writes that were never sent, and CREATE is the create sequence.
+      // Older journals have no CREATE, or neither KEY nor CREATE.
+      final String value = storage.getItem(ownerPrefix + sequence);
+      final int jsonStart = value.indexOf(":{") + 1;
+      final String[] header = value.substring(0, jsonStart - 1).split(":", -1);
+      final OperationType type = OperationType.valueOf(header[0]);
+      final Contact contact = Marshalling.fromJSON(value.substring(jsonStart), Contact.class);
+      final PendingWrite write = new PendingWrite(type, contact, nextSequence++);
+      write.batchKey = (header.length < 2 || header[1].isEmpty() ? null : header[1]);
+      write.createSequence = (header.length < 3 ? (type == CREATE ? sequence : -1) : Integer.parseInt(header[2]));
+      renumbered.put(sequence, write.sequence);
+      adopted.add(write);
+    }
+    for (final PendingWrite write : adopted) {
+      if (write.createSequence >= 0) {
+        final Integer createSequence = renumbered.get(write.createSequence);
+        write.createSequence = (createSequence != null ? createSequence : -1);
+      }
+      journal.add(write);
+      save(write);
+    }
+    for (final Integer sequence : sequences) {
+      storage.removeItem(ownerPrefix + sequence);
+    }
+    for (final PendingWrite write : adopted) {
+      if (write.type == CREATE) {
+        adoptedCreateHandler.accept(write.contact);
+      }
+    }
+    if (!adopted.isEmpty()) {
+      logger.info("Took over " + adopted.size() + " pending write(s) of a closed page.");
+    }
+  }
+
+}
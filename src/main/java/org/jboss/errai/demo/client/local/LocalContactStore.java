@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactChanges;
+import org.jboss.errai.demo.client.shared.ContactStorageService;
+
+import com.google.gwt.storage.client.Storage;
+
+/**
+ * <p>
+ * A browser-side cache of persisted {@link Contact Contacts}, stored in local storage through Errai JPA. The contact
+ * list is rendered from this cache at startup, before the server has responded, and then revalidated with
+ * {@link ContactStorageService#getChanges(long)} using the {@link #getVersion() version} of the last synchronization.
+ *
+ * <p>
+ * Only contacts that have been assigned an id by the server are cached. Contacts created while disconnected are held
+ * by the {@link ContactWriter} until they have been persisted.
+ */
+@ApplicationScoped
+public class LocalContactStore {
+
+  private static final String VERSION_KEY = "errai-crud.contacts.version";
+
+  @Inject
+  private EntityManager em;
+
+  private final Storage storage = Storage.getLocalStorageIfSupported();
+
+  public List<Contact> loadAll() {
+    return em.createNamedQuery(Contact.ALL_CONTACTS_QUERY, Contact.class).getResultList();
+  }
+
+  public void put(final Contact contact) {
+    putImpl(contact);
+    em.flush();
+  }
+
+  public void putAll(final Collection<Contact> contacts) {
+    for (final Contact contact : contacts) {
+      putImpl(contact);
+    }
+    em.flush();
+  }
+
+  public void remove(final long id) {
+    removeImpl(id);
+    em.flush();
+  }
+
+  public void removeAll(final Collection<Long> ids) {
+    for (final Long id : ids) {
+      removeImpl(id);
+    }
+    em.flush();
+  }
+
+  /**
+   * Replaces the cached contacts with the given contacts.
+   */
+  public void replaceAll(final Collection<Contact> contacts) {
+    for (final Contact cached : loadAll()) {
+      em.remove(cached);
+    }
+    putAll(contacts);
+  }
+
+  /**
+   * @return The {@link ContactChanges#getVersion() version} of the last synchronization with the server, or 0 if there
+   *         has been none.
+   */
+  public long getVersion() {
+    if (storage == null) {
+      return 0;
+    }
+    final String version = storage.getItem(VERSION_KEY);
+    return (version == null ? 0 : Long.parseLong(version));
+  }
+
+  public void setVersion(final long version) {
+    if (storage != null) {
+      storage.setItem(VERSION_KEY, String.valueOf(version));
+    }
+  }
+
+  private void putImpl(final Contact contact) {
+    if (contact.getId() != 0) {
+      // Errai JPA cannot map data-binding proxies.
+      em.merge(ContactProxies.unwrap(contact));
+    }
+  }
+
+  private void removeImpl(final long id) {
+    final Contact cached = em.find(Contact.class, id);
+    if (cached != null) {
+      em.remove(cached);
+    }
+  }
+
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.CREATE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.UPDATE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jboss.errai.common.client.function.Consumer;
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+
+/**
+ * <p>
+ * Buffers {@link Contact} changes pushed from the server and hands them to a flush handler at most once per animation
+ * frame, so that a burst of remote events costs one list update rather than one per event.
+ *
+ * <p>
+ * Pending changes are keyed by contact id. A change that supersedes a pending change for the same id is merged into it
+ * (for example, two updates become one update, and an update after a create remains a create with the newer state). A
+ * change that cancels out a pending change is dropped (a create followed by a delete results in no change at all).
+ * The number of merged and dropped events is counted for diagnostics.
+ */
+public class RemoteChangeQueue {
+
+  /**
+   * A single pending change to apply to the list of displayed {@link Contact Contacts}.
+   */
+  public static class Change {
+
+    private final OperationType type;
+    private final long id;
+    private final Contact contact;
+
+    Change(final OperationType type, final long id, final Contact contact) {
+      this.type = type;
+      this.id = id;
+      this.contact = contact;
+    }
+
+    public OperationType getType() {
+      return type;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    /**
+     * @return The latest state of the contact, or null for a {@link OperationType#DELETE DELETE}.
+     */
+    public Contact getContact() {
+      return contact;
+    }
+
+  }
+
+  private final Map<Long, Change> pending = new LinkedHashMap<>();
+
+  private Consumer<Collection<Change>> flushHandler = changes -> {};
+
+  private Consumer<Long> versionHandler = version -> {};
+
+  /**
+   * The server version reached once the pending changes are applied, or 0 if none was reported since the last flush.
+   */
+  private long pendingVersion;
+
+  private boolean flushScheduled;
+
+  private int mergedCount;
+
+  private int droppedCount;
+
+  /**
+   * @param flushHandler
+   *          Invoked once per animation frame with all changes received since the last flush, in order of first arrival
+   *          per contact.
+   */
+  public void setFlushHandler(final Consumer<Collection<Change>> flushHandler) {
+    this.flushHandler = flushHandler;
+  }
+
+  /**
+   * @param versionHandler
+   *          Invoked with the version passed to {@link #reachedVersion(long)}, after the flush handler has applied the
+   *          changes queued before it.
+   */
+  public void setVersionHandler(final Consumer<Long> versionHandler) {
+    this.versionHandler = versionHandler;
+  }
+
+  public void created(final Contact contact) {
+    enqueue(new Change(CREATE, contact.getId(), contact));
+  }
+
+  public void updated(final Contact contact) {
+    enqueue(new Change(UPDATE, contact.getId(), contact));
+  }
+
+  public void deleted(final long id) {
+    enqueue(new Change(DELETE, id, null));
+  }
+
+  /**
+   * Records that the changes queued so far bring the contacts up to the given server version, which is handed to the
+   * version handler once they have been flushed.
+   */
+  public void reachedVersion(final long version) {
+    pendingVersion = version;
+    scheduleFlush();
+  }
+
+  /**
+   * Applies flushed changes to the displayed contacts, and to the index used to filter them.
+   *
+   * @param contacts
+   *          The displayed contacts, which are not modified.
+   * @param sorter
+   *          The order of the displayed contacts, or null if they are unsorted. Unsorted, a changed contact keeps its
+   *          position and a new contact is appended. Sorted, both are inserted at their sorted position.
+   * @return The displayed contacts after the changes. An update of a contact that is not displayed adds it.
+   */
+  static List<Contact> apply(final List<Contact> contacts, final Collection<Change> changes,
+          final ContactSorter sorter, final ContactPrefixIndex index) {
+    final List<Contact> replaced = new ArrayList<>(contacts);
+    final Map<Long, Integer> indexById = new HashMap<>();
+    for (int i = 0; i < replaced.size(); i++) {
+      indexById.put(replaced.get(i).getId(), i);
+    }
+
+    final Set<Integer> removed = new HashSet<>();
+    final List<Contact> added = new ArrayList<>();
+    for (final Change change : changes) {
+      final Integer position = indexById.get(change.getId());
+      if (change.getType() == DELETE) {
+        if (position != null) {
+          removed.add(position);
+          index.remove(replaced.get(position));
+        }
+        continue;
+      }
+
+      if (position != null) {
+        index.remove(replaced.get(position));
+      }
+      index.add(change.getContact());
+      if (position == null) {
+        added.add(change.getContact());
+      }
+      else if (sorter == null) {
+        replaced.set(position, change.getContact());
+      }
+      else {
+        // Re-inserted below so that the contact moves to its new sorted position.
+        removed.add(position);
+        added.add(change.getContact());
+      }
+    }
+
+    final List<Contact> updated = new ArrayList<>(replaced.size() - removed.size() + added.size());
+    for (int i = 0; i < replaced.size(); i++) {
+      if (!removed.contains(i)) {
+        updated.add(replaced.get(i));
+      }
+    }
+    for (final Contact contact : added) {
+      if (sorter == null) {
+        updated.add(contact);
+      }
+      else {
+        updated.add(sorter.insertionIndex(updated, contact), contact);
+      }
+    }
+    return updated;
+  }
+
+  /**
+   * @return The number of events that were combined with an earlier pending event for the same contact.
+   */
+  public int getMergedCount() {
+    return mergedCount;
+  }
+
+  /**
+   * @return The number of events that were discarded because they had no net effect.
+   */
+  public int getDroppedCount() {
+    return droppedCount;
+  }
+
+  /**
+   * @return The number of changes waiting for the next flush.
+   */
+  public int size() {
+    return pending.size();
+  }
+
+  private void enqueue(final Change change) {
+    final Change previous = pending.get(change.getId());
+    if (previous == null) {
+      pending.put(change.getId(), change);
+    }
+    else {
+      final Change merged = merge(previous, change);
+      if (merged == null) {
+        pending.remove(change.getId());
+      }
+      else {
+        pending.put(change.getId(), merged);
+      }
+    }
+    scheduleFlush();
+  }
+
+  /**
+   * @return The single change equivalent to {@code previous} followed by {@code next}, or null if they cancel out.
+   */
+  private Change merge(final Change previous, final Change next) {
+    switch (previous.getType()) {
+    case CREATE:
+      if (next.getType() == DELETE) {
+        // The contact was never displayed, so neither event needs to be applied.
+        droppedCount += 2;
+        return null;
+      }
+      mergedCount++;
+      return new Change(CREATE, next.getId(), next.getContact());
+    case UPDATE:
+      mergedCount++;
+      if (next.getType() == DELETE) {
+        return next;
+      }
+      return new Change(UPDATE, next.getId(), next.getContact());
+    case DELETE:
+      if (next.getType() == DELETE) {
+        droppedCount++;
+        return previous;
+      }
+      else if (next.getType() == UPDATE) {
+        // An update cannot resurrect a deleted contact.
+        droppedCount++;
+        return previous;
+      }
+      mergedCount++;
+      return new Change(UPDATE, next.getId(), next.getContact());
+    default:
+      throw new IllegalArgumentException("Unrecognized operation type: " + previous.getType());
+    }
+  }
+
+  private void scheduleFlush() {
+    if (!flushScheduled) {
+      flushScheduled = true;
+      AnimationScheduler.get().requestAnimationFrame(timestamp -> flush());
+    }
+  }
+
+  private void flush() {
+    flushScheduled = false;
+    final long version = pendingVersion;
+    pendingVersion = 0;
+    if (!pending.isEmpty()) {
+      final List<Change> changes = new ArrayList<>(pending.values());
+      pending.clear();
+      flushHandler.accept(changes);
+    }
+    if (version != 0) {
+      versionHandler.accept(version);
+    }
+  }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.jboss.errai.common.client.api.Caller;
+import org.jboss.errai.common.client.function.Consumer;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactRpcService;
+import org.jboss.errai.demo.client.shared.ContactStorageService;
+import org.jboss.errai.enterprise.client.jaxrs.api.RestErrorCallback;
+import org.jboss.errai.ioc.client.api.EntryPoint;
+import org.slf4j.Logger;
+
+import com.google.gwt.core.client.Duration;
+
+/**
+ * <p>
+ * Compares the per-operation latency and server CPU cost of the two transports offered by {@link ContactTransport}:
+ * JAX-RS requests to the {@link ContactStorageService} and Errai RPC over the bus to the {@link ContactRpcService}.
+ *
+ * <p>
+ * The benchmark is started from the browser console with {@code erraiTransportBenchmark(iterations)}. For each
+ * transport it sends a change query that returns no changes and an empty write batch, so that the measurements are
+ * dominated by transport overhead rather than database work. Calls are sent one at a time. Latency percentiles are
+ * measured in the browser, and server CPU time per call is the difference in
+ * {@link ContactStorageService#getServerCpuTime() server process CPU time} over all calls of a run, which is only
+ * reported if the server enables it with the {@code errai-crud.benchmark} context parameter. Results are logged at
+ * {@code INFO} level. CPU time includes any other load on the server, so benchmarks should be run on an otherwise idle
+ * server.
+ */
+@EntryPoint
+public class TransportBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 20;
+
+  @Inject
+  private Caller<ContactStorageService> restService;
+
+  @Inject
+  private Caller<ContactRpcService> rpcService;
+
+  @Inject
+  private Logger logger;
+
+  @PostConstruct
+  private void setup() {
+    export();
+  }
+
+  /**
+   * Runs every benchmark in turn, each with the given number of measured calls.
+   */
+  public void run(final int iterations) {
+    // No contact changes after this version.
+    final long since = Long.MAX_VALUE;
+    final Run busBatch = new Run("bus batch", done -> rpcService.call(result -> done.run()).batch(emptyBatch()),
+            iterations, null);
+    final Run restBatch = new Run("REST batch", done -> restService.call(result -> done.run()).batch(emptyBatch()),
+            iterations, busBatch);
+    final Run busChanges = new Run("bus changes", done -> rpcService.call(changes -> done.run()).getChanges(since),
+            iterations, restBatch);
+    final Run restChanges = new Run("REST changes", done -> restService.call(changes -> done.run()).getChanges(since),
+            iterations, busChanges);
+    restChanges.start();
+  }
+
+  private static ContactBatch emptyBatch() {
+    return new ContactBatch(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), null, null);
+  }
+
+  /**
+   * Sequentially calls one operation, then starts the next run.
+   */
+  private class Run {
+
+    private final String label;
+    private final Consumer<Runnable> operation;
+    private final double[] latencies;
+    private final Run next;
+
+    private int completed = -WARMUP_ITERATIONS;
+    private boolean measuring;
+    private long cpuBefore;
+    private double callStart;
+
+    private Run(final String label, final Consumer<Runnable> operation, final int iterations, final Run next) {
+      this.label = label;
+      this.operation = operation;
+      this.latencies = new double[Math.max(1, iterations)];
+      this.next = next;
+    }
+
+    private void start() {
+      callNext();
+    }
+
+    private void callNext() {
+      if (completed == 0 && !measuring) {
+        // Warm-up is complete, so start measuring server CPU time.
+        measuring = true;
+        restService.call((Long cpuTime) -> {
+          cpuBefore = cpuTime;
+          callNext();
+        }, cpuTimeUnavailable(() -> {
+          cpuBefore = -1;
+          callNext();
+        })).getServerCpuTime();
+        return;
+      }
+      callStart = Duration.currentTimeMillis();
+      operation.accept(this::onCallComplete);
+    }
+
+    private void onCallComplete() {
+      if (completed >= 0) {
+        latencies[completed] = Duration.currentTimeMillis() - callStart;
+      }
+      completed++;
+      if (completed < latencies.length) {
+        callNext();
+      }
+      else {
+        restService.call((Long cpuAfter) -> {
+          report(cpuAfter);
+          if (next != null) {
+            next.start();
+          }
+        }, cpuTimeUnavailable(() -> {
+          report(-1);
+          if (next != null) {
+            next.start();
+          }
+        })).getServerCpuTime();
+      }
+    }
+
+    private void report(final long cpuAfter) {
+      Arrays.sort(latencies);
+      double total = 0;
+      for (final double latency : latencies) {
+        total += latency;
+      }
+      final String cpu = (cpuBefore < 0 || cpuAfter < 0 ? "n/a"
+              : ((cpuAfter - cpuBefore) / latencies.length / 1000) + " us");
+      logger.info(label + ": " + latencies.length + " calls, mean " + format(total / latencies.length) + " ms, p50 "
+              + format(percentile(0.5)) + " ms, p95 " + format(percentile(0.95)) + " ms, max "
+              + format(latencies[latencies.length - 1]) + " ms, server CPU " + cpu + " per call");
+    }
+
+    private double percentile(final double p) {
+      return latencies[Math.min(latencies.length - 1, (int) (p * latencies.length))];
+    }
+
+  }
+
+  /**
+   * @return An error callback for {@link ContactStorageService#getServerCpuTime()} that continues the benchmark
+   *         without CPU time, which the server does not report unless enabled.
+   */
+  private static RestErrorCallback cpuTimeUnavailable(final Runnable proceed) {
+    return (request, throwable) -> {
+      proceed.run();
+      return false;
+    };
+  }
+
+  private static String format(final double millis) {
+    return String.valueOf(Math.round(millis * 100) / 100.0);
+  }
+
+  private native void export() /*-{
+    var self = this;
+    $wnd.erraiTransportBenchmark = $entry(function(iterations) {
+      self.@org.jboss.errai.demo.client.local.TransportBenchmark::run(I)(iterations || 200);
+    });
+  }-*/;
+
+}
@@ -0,0 +1,563 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.jboss.errai.common.client.api.IsElement;
+import org.jboss.errai.common.client.dom.Div;
+import org.jboss.errai.common.client.dom.HTMLElement;
+import org.jboss.errai.common.client.dom.Node;
+import org.jboss.errai.common.client.function.Consumer;
+import org.jboss.errai.databinding.client.BindableListWrapper;
+import org.jboss.errai.databinding.client.api.handler.list.BindableListChangeHandler;
+import org.jboss.errai.databinding.client.components.ListComponent;
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.ioc.client.container.IOC;
+
+import com.google.gwt.animation.client.AnimationScheduler;
+import com.google.gwt.event.shared.HandlerRegistration;
+import com.google.gwt.user.client.TakesValue;
+import com.google.gwt.user.client.Window;
+
+/**
+ * <p>
+ * A windowed replacement for {@link ListComponent ListComponent&lt;Contact, ContactDisplay&gt;}. Where a
+ * {@link ListComponent} creates one {@link ContactDisplay} for every {@link Contact} in the bound list, this component
+ * only binds {@link ContactDisplay ContactDisplays} for the rows that are in (or near) the browser viewport. The space
+ * taken by rows that are scrolled out of view is reserved with padding on the root element, so the scrollbar behaves
+ * as if every row were rendered.
+ *
+ * <p>
+ * {@link ContactDisplay ContactDisplays} are pooled: when a row scrolls out of view its display is re-bound to the
+ * {@link Contact} of a row scrolling into view. The number of displays (and DOM nodes) is therefore bounded by the
+ * viewport size rather than by the size of the list.
+ *
+ * <p>
+ * Because displays are recycled, selection is tracked by model rather than by component. The selector and deselector
+ * are re-applied whenever a display is bound to a different {@link Contact}. Replacing the contents of the bound list
+ * (a clear followed by an add) keeps the selected {@link Contact Contacts} that are still in the list, including those
+ * replaced by a newer copy with the same id (see {@link ContactSelection}).
+ *
+ * <p>
+ * Changes to the bound list are coalesced and rendered at most once per animation frame.
+ *
+ * <p>
+ * An optional {@link #setFilter(Collection) filter} restricts the displayed rows without changing the bound list. The
+ * filtered rows are recomputed once per render after the list or the filter changes, not on every scroll. They are
+ * looked up by their position in the list, so filtering costs time in the number of matches rather than the length
+ * of the list.
+ */
+public class VirtualContactList implements IsElement, TakesValue<List<Contact>> {
+
+  /**
+   * The vertical margin of a {@code .contact} element (see {@code contact-page.css}), which is not included in
+   * {@link HTMLElement#getOffsetHeight()}.
+   */
+  private static final int ROW_MARGIN_PX = 20;
+
+  /**
+   * Used to estimate the layout before any {@link ContactDisplay} has been rendered and measured.
+   */
+  private static final int DEFAULT_ROW_HEIGHT_PX = 370;
+
+  @Inject
+  private Div root;
+
+  @Inject
+  private Instance<ContactDisplay> displayProvider;
+
+  @Inject
+  private ClientMetrics metrics;
+
+  private final BindableListChangeHandler<Contact> changeHandler = new ListChangeHandler();
+
+  private final List<ContactDisplay> rendered = new ArrayList<>();
+
+  /*
+   * The models bound to the displays in rendered (by index). The value of a ContactDisplay is a bindable proxy, so
+   * this is needed to compare rendered rows with models by identity.
+   */
+  private final List<Contact> renderedModels = new ArrayList<>();
+
+  private final List<ContactDisplay> pool = new ArrayList<>();
+
+  private final ContactSelection selection = new ContactSelection();
+
+  /*
+   * True after the bound list was cleared, until the selection has been pruned against its new contents.
+   */
+  private boolean selectionStale;
+
+  private List<Contact> model = new ArrayList<>();
+
+  private Collection<Contact> filter;
+
+  /*
+   * The models that pass the filter, in list order. Null when the list or filter has changed since the last render.
+   */
+  private List<Contact> visible;
+
+  /*
+   * The position of each unwrapped model in the list. Null when the list has changed since it was last filtered.
+   */
+  private Map<Contact, Integer> positions;
+
+  private Consumer<ContactDisplay> selector = display -> {};
+
+  private Consumer<ContactDisplay> deselector = display -> {};
+
+  private Consumer<List<Contact>> windowHandler = window -> {};
+
+  private int overscanRows = 2;
+
+  private int rowHeight = DEFAULT_ROW_HEIGHT_PX;
+
+  private int columns = 1;
+
+  private boolean renderScheduled;
+
+  private HandlerRegistration scrollRegistration;
+
+  private HandlerRegistration resizeRegistration;
+
+  @PostConstruct
+  private void setup() {
+    scrollRegistration = Window.addWindowScrollHandler(event -> scheduleRender());
+    resizeRegistration = Window.addResizeHandler(event -> scheduleRender());
+  }
+
+  @PreDestroy
+  private void cleanup() {
+    scrollRegistration.removeHandler();
+    resizeRegistration.removeHandler();
+    unregisterChangeHandler();
+    for (final ContactDisplay display : rendered) {
+      IOC.getBeanManager().destroyBean(display);
+    }
+    for (final ContactDisplay display : pool) {
+      IOC.getBeanManager().destroyBean(display);
+    }
+    rendered.clear();
+    renderedModels.clear();
+    pool.clear();
+  }
+
+  @Override
+  public HTMLElement getElement() {
+    return root;
+  }
+
+  @Override
+  public List<Contact> getValue() {
+    return model;
+  }
+
+  /**
+   * Sets the list of {@link Contact Contacts} displayed by this component. If the list is a bindable list, this
+   * component re-renders whenever the list changes.
+   */
+  @Override
+  public void setValue(final List<Contact> value) {
+    if (value == model) {
+      invalidate();
+      return;
+    }
+    unregisterChangeHandler();
+    model = (value == null ? new ArrayList<>() : value);
+    if (model instanceof BindableListWrapper) {
+      ((BindableListWrapper<Contact>) model).addChangeHandler(changeHandler);
+    }
+    pruneSelection();
+    invalidate();
+  }
+
+  /**
+   * @param filter
+   *          The {@link ContactProxies#unwrap(Contact) unwrapped} {@link Contact Contacts} to display, in any order (see
+   *          {@link ContactPrefixIndex#matches(String)}). Contacts that are not in the list are ignored. May be null to
+   *          display every {@link Contact} in the list.
+   */
+  public void setFilter(final Collection<Contact> filter) {
+    this.filter = filter;
+    visible = null;
+    scheduleRender();
+  }
+
+  /**
+   * @param overscanRows
+   *          The number of rows above and below the viewport that are rendered in addition to the visible rows, so that
+   *          short scrolls do not expose empty space.
+   */
+  public void setOverscanRows(final int overscanRows) {
+    this.overscanRows = Math.max(0, overscanRows);
+    scheduleRender();
+  }
+
+  /**
+   * @param selector
+   *          Invoked for every rendered {@link ContactDisplay} that is bound to a selected {@link Contact}.
+   */
+  public void setSelector(final Consumer<ContactDisplay> selector) {
+    this.selector = selector;
+  }
+
+  /**
+   * @param deselector
+   *          Invoked for every rendered {@link ContactDisplay} that is bound to a {@link Contact} that is not selected.
+   */
+  public void setDeselector(final Consumer<ContactDisplay> deselector) {
+    this.deselector = deselector;
+  }
+
+  /**
+   * @param windowHandler
+   *          Invoked with the {@link Contact Contacts} bound to rendered rows, in display order, whenever they change (for
+   *          example, after scrolling or filtering).
+   */
+  public void setWindowHandler(final Consumer<List<Contact>> windowHandler) {
+    this.windowHandler = windowHandler;
+  }
+
+  /**
+   * Selects the {@link Contact} currently displayed by the given component. The selection follows the model if the
+   * component is later recycled for a different row.
+   */
+  public void selectComponent(final ContactDisplay component) {
+    final int index = rendered.indexOf(component);
+    if (index != -1) {
+      selectModel(renderedModels.get(index));
+    }
+  }
+
+  public void selectModel(final Contact contact) {
+    if (selection.add(contact)) {
+      for (int i = 0; i < rendered.size(); i++) {
+        if (renderedModels.get(i) == contact) {
+          selector.accept(rendered.get(i));
+        }
+      }
+    }
+  }
+
+  public void deselectAll() {
+    selection.clear();
+    for (final ContactDisplay display : rendered) {
+      deselector.accept(display);
+    }
+  }
+
+  /**
+   * @return The rendered {@link ContactDisplay ContactDisplays} bound to a selected {@link Contact}. Selected models
+   *         that are scrolled out of view have no component.
+   */
+  public Collection<ContactDisplay> getSelectedComponents() {
+    pruneStaleSelection();
+    final List<ContactDisplay> selected = new ArrayList<>();
+    for (int i = 0; i < rendered.size(); i++) {
+      if (selection.contains(renderedModels.get(i))) {
+        selected.add(rendered.get(i));
+      }
+    }
+    return selected;
+  }
+
+  public Collection<Contact> getSelectedModels() {
+    pruneStaleSelection();
+    return selection.asList();
+  }
+
+  /**
+   * Drops selected models that are no longer in the list.
+   */
+  private void pruneSelection() {
+    selectionStale = false;
+    selection.retainIn(model);
+  }
+
+  private void pruneStaleSelection() {
+    if (selectionStale) {
+      pruneSelection();
+    }
+  }
+
+  private void unregisterChangeHandler() {
+    if (model instanceof BindableListWrapper) {
+      ((BindableListWrapper<Contact>) model).removeChangeHandler(changeHandler);
+    }
+  }
+
+  private void invalidate() {
+    visible = null;
+    positions = null;
+    scheduleRender();
+  }
+
+  private List<Contact> visibleModels() {
+    if (visible == null) {
+      if (filter == null) {
+        visible = model;
+      }
+      else {
+        if (positions == null) {
+          positions = new IdentityHashMap<>();
+          for (int i = 0; i < model.size(); i++) {
+            positions.put(ContactProxies.unwrap(model.get(i)), i);
+          }
+        }
+        final int[] matched = new int[filter.size()];
+        int count = 0;
+        for (final Contact contact : filter) {
+          final Integer position = positions.get(contact);
+          if (position != null) {
+            matched[count++] = position;
+          }
+        }
+        Arrays.sort(matched, 0, count);
+        visible = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          visible.add(model.get(matched[i]));
+        }
+      }
+    }
+    return visible;
+  }
+
+  private void scheduleRender() {
+    if (!renderScheduled) {
+      renderScheduled = true;
+      AnimationScheduler.get().requestAnimationFrame(timestamp -> {
+        renderScheduled = false;
+        render();
+      });
+    }
+  }
+
+  private void render() {
+    final double start = ClientMetrics.now();
+    // The list was cleared and not refilled in the same event loop turn.
+    pruneStaleSelection();
+    final List<Contact> models = visibleModels();
+    final int size = models.size();
+    final int rows = (size + columns - 1) / columns;
+    final int listTop = absoluteTop(root);
+    final int viewportTop = Window.getScrollTop() - listTop;
+    final int viewportBottom = viewportTop + Window.getClientHeight();
+
+    final int firstRow = clamp(viewportTop / rowHeight - overscanRows, 0, rows);
+    final int lastRow = clamp(viewportBottom / rowHeight + 1 + overscanRows, firstRow, rows);
+    final int from = firstRow * columns;
+    final int to = Math.min(size, lastRow * columns);
+
+    bindWindow(models, from, to);
+
+    root.getStyle().setProperty("padding-top", (firstRow * rowHeight) + "px");
+    root.getStyle().setProperty("padding-bottom", ((rows - lastRow) * rowHeight) + "px");
+
+    if (measure()) {
+      // The estimated layout was wrong, so the window must be recomputed with the measured row size.
+      scheduleRender();
+    }
+    metrics.recordSince("render", start);
+  }
+
+  /**
+   * Binds rendered {@link ContactDisplay ContactDisplays} to the given models in {@code [from, to)}. A display that is already
+   * bound to a model in the new window keeps its binding and its DOM node is moved into place, so reordering the list
+   * (for example, by sorting) does not re-bind rows that stay on screen. Other displays are re-bound, taken from the
+   * pool, or returned to it as the size of the window changes.
+   */
+  private void bindWindow(final List<Contact> models, final int from, final int to) {
+    final int count = to - from;
+    final Map<Contact, ContactDisplay> boundDisplays = new IdentityHashMap<>();
+    for (int i = 0; i < rendered.size(); i++) {
+      boundDisplays.put(renderedModels.get(i), rendered.get(i));
+    }
+
+    final List<ContactDisplay> nextRendered = new ArrayList<>(count);
+    final List<Contact> nextModels = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final Contact contact = models.get(from + i);
+      nextModels.add(contact);
+      nextRendered.add(boundDisplays.remove(contact));
+    }
+
+    // Displays whose models left the window are re-bound before new displays are taken from the pool.
+    final List<ContactDisplay> unused = new ArrayList<>(boundDisplays.values());
+    for (int i = 0; i < count; i++) {
+      if (nextRendered.get(i) == null) {
+        final ContactDisplay display;
+        if (!unused.isEmpty()) {
+          display = unused.remove(unused.size() - 1);
+        }
+        else if (!pool.isEmpty()) {
+          display = pool.remove(pool.size() - 1);
+        }
+        else {
+          display = displayProvider.get();
+        }
+        display.setValue(nextModels.get(i));
+        nextRendered.set(i, display);
+      }
+    }
+    for (final ContactDisplay display : unused) {
+      root.removeChild(display.getElement());
+      pool.add(display);
+    }
+
+    // Move (or attach) elements into order, touching only those that are out of place.
+    Node next = null;
+    for (int i = count - 1; i >= 0; i--) {
+      final HTMLElement element = nextRendered.get(i).getElement();
+      if (element.getParentNode() != root || element.getNextSibling() != next) {
+        root.insertBefore(element, next);
+      }
+      next = element;
+    }
+
+    boolean windowChanged = (nextModels.size() != renderedModels.size());
+    for (int i = 0; i < count && !windowChanged; i++) {
+      windowChanged = (nextModels.get(i) != renderedModels.get(i));
+    }
+
+    rendered.clear();
+    rendered.addAll(nextRendered);
+    renderedModels.clear();
+    renderedModels.addAll(nextModels);
+
+    for (int i = 0; i < count; i++) {
+      if (selection.contains(renderedModels.get(i))) {
+        selector.accept(rendered.get(i));
+      }
+      else {
+        deselector.accept(rendered.get(i));
+      }
+    }
+
+    if (windowChanged) {
+      windowHandler.accept(Collections.unmodifiableList(nextModels));
+    }
+  }
+
+  /**
+   * Measures row height and the number of columns from the first rendered {@link ContactDisplay}.
+   *
+   * @return True iff the measured values differ from those used for the last render.
+   */
+  private boolean measure() {
+    if (rendered.isEmpty()) {
+      return false;
+    }
+    final HTMLElement first = rendered.get(0).getElement();
+    final int itemWidth = first.getOffsetWidth();
+    final int itemHeight = first.getOffsetHeight();
+    if (itemWidth <= 0 || itemHeight <= 0) {
+      // Not attached to the document yet.
+      return false;
+    }
+    final int measuredRowHeight = itemHeight + ROW_MARGIN_PX;
+    final int measuredColumns = Math.max(1, root.getClientWidth() / itemWidth);
+    final boolean changed = (measuredRowHeight != rowHeight || measuredColumns != columns);
+    rowHeight = measuredRowHeight;
+    columns = measuredColumns;
+
+    return changed;
+  }
+
+  private static int absoluteTop(final HTMLElement element) {
+    int top = 0;
+    for (HTMLElement cur = element; cur != null; cur = cur.getOffsetParent()) {
+      top += cur.getOffsetTop();
+    }
+    return top;
+  }
+
+  private static int clamp(final int value, final int min, final int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * Any structural change to the list only invalidates the filtered rows and the rendered window, which are cheap to
+   * recompute, and prunes selected models that left the list.
+   */
+  private class ListChangeHandler implements BindableListChangeHandler<Contact> {
+
+    @Override
+    public void onItemAdded(final List<Contact> source, final Contact item) {
+      pruneStaleSelection();
+      invalidate();
+    }
+
+    @Override
+    public void onItemAddedAt(final List<Contact> source, final int index, final Contact item) {
+      pruneStaleSelection();
+      invalidate();
+    }
+
+    @Override
+    public void onItemsAdded(final List<Contact> source, final Collection<? extends Contact> items) {
+      pruneStaleSelection();
+      invalidate();
+    }
+
+    @Override
+    public void onItemsAddedAt(final List<Contact> source, final int index, final Collection<? extends Contact> items) {
+      pruneStaleSelection();
+      invalidate();
+    }
+
+    @Override
+    public void onItemsCleared(final List<Contact> source) {
+      /*
+       * Contents are replaced with a clear followed by an add (see ContactListPage#sortContacts), so the selection is
+       * pruned once the new contents are added, rather than dropped here.
+       */
+      selectionStale = true;
+      invalidate();
+    }
+
+    @Override
+    public void onItemRemovedAt(final List<Contact> source, final int index) {
+      pruneSelection();
+      invalidate();
+    }
+
+    @Override
+    public void onItemsRemovedAt(final List<Contact> source, final List<Integer> indexes) {
+      pruneSelection();
+      invalidate();
+    }
+
+    @Override
+    public void onItemChanged(final List<Contact> source, final int index, final Contact item) {
+      invalidate();
+    }
+
+  }
+
+}
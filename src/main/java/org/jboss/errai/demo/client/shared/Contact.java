@@ -19,11 +19,12 @@ package org.jboss.errai.demo.client.shared;
 import java.util.Date;
 
 import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
+import javax.persistence.Column;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.Table;
 
 import org.jboss.errai.common.client.api.annotations.Portable;
 import org.jboss.errai.databinding.client.api.Bindable;
@@ -43,23 +44,51 @@ import com.google.gwt.i18n.shared.DateTimeFormat.PredefinedFormat;
  * parameters or return values of Errai RPC methods. It also allows {@link Contact} instances to be fired and observed
  * between client and server.
  * <p>
- * {@link Entity} allows this class to be easily persisted on the server via JPA and {@link NamedQueries} defines a
- * query for looking up all persisted {@link Contact Contacts}.
+ * {@link Entity} allows this class to be easily persisted on the server via JPA and {@link NamedQueries} defines
+ * queries for looking up the persisted {@link Contact Contacts} of a tenant, or those changed since a given revision.
+ * Server queries are limited to one tenant, and are served by an index that starts with the tenant. The same mapping
+ * is used by Errai JPA to cache {@link Contact Contacts} in the browser, which only holds the contacts of one tenant
+ * and reads them with {@link #ALL_CONTACTS_QUERY}.
  */
 @Bindable
 @Portable
 @Entity
+@Table(indexes = {
+  @Index(columnList = "tenant, id"),
+  @Index(columnList = "tenant, lastModified"),
+  @Index(columnList = "tenant, birthdayOfYear"),
+  @Index(columnList = "birthdayOfYear, id")
+})
 @NamedQueries({
-  @NamedQuery(name = Contact.ALL_CONTACTS_QUERY, query = "SELECT c FROM Contact c ORDER BY c.id")
+  @NamedQuery(name = Contact.ALL_CONTACTS_QUERY, query = "SELECT c FROM Contact c ORDER BY c.id"),
+  @NamedQuery(name = Contact.TENANT_CONTACTS_QUERY, query = "SELECT c FROM Contact c WHERE c.tenant = :tenant ORDER BY c.id"),
+  @NamedQuery(name = Contact.CHANGED_CONTACTS_QUERY, query = "SELECT c FROM Contact c WHERE c.tenant = :tenant AND c.lastModified > :since ORDER BY c.id"),
+  @NamedQuery(name = Contact.CONTACTS_AFTER_QUERY, query = "SELECT c FROM Contact c WHERE c.tenant = :tenant AND c.id > :after ORDER BY c.id")
 })
 public class Contact {
 
   public static final String ALL_CONTACTS_QUERY = "allContacts";
 
+  public static final String TENANT_CONTACTS_QUERY = "tenantContacts";
+
+  public static final String CHANGED_CONTACTS_QUERY = "changedContacts";
+
+  public static final String CONTACTS_AFTER_QUERY = "contactsAfter";
+
+  /**
+   * Assigned by the server when the contact is created, such that the id also determines the database in which the
+   * contact is stored (see {@code ContactShardRouter}). Zero until then.
+   */
   @Id
-  @GeneratedValue(strategy = GenerationType.SEQUENCE)
   private long id;
 
+  /**
+   * The customer whose address book holds this contact. Set by the server from the request that created the contact;
+   * clients cannot change it.
+   */
+  @Column(nullable = false, length = 63)
+  private String tenant;
+
   private String fullname;
 
   private String nickname;
@@ -70,12 +99,32 @@ public class Contact {
 
   private Date birthday;
 
+  /**
+   * The day of the year of the {@link #birthday}, from 1 to 366 as in a leap year, or null without a birthday. Set by
+   * the server whenever the contact is written, so that upcoming birthdays can be found with an index.
+   */
+  private Integer birthdayOfYear;
+
   private String notes;
 
+  /**
+   * The server revision at which this contact was last created or updated. Used by clients to fetch only the contacts
+   * that changed since they last synchronized.
+   */
+  private long lastModified;
+
   public Date getBirthday() {
     return birthday;
   }
 
+  public Integer getBirthdayOfYear() {
+    return birthdayOfYear;
+  }
+
+  public void setBirthdayOfYear(final Integer birthdayOfYear) {
+    this.birthdayOfYear = birthdayOfYear;
+  }
+
   public void setBirthday(Date birthday) {
     this.birthday = birthday;
   }
@@ -120,6 +169,14 @@ public class Contact {
     this.notes = notes;
   }
 
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public void setLastModified(long lastModified) {
+    this.lastModified = lastModified;
+  }
+
   public long getId() {
     return id;
   }
@@ -128,6 +185,14 @@ public class Contact {
     this.id = id;
   }
 
+  public String getTenant() {
+    return tenant;
+  }
+
+  public void setTenant(String tenant) {
+    this.tenant = tenant;
+  }
+
   @Override
   public String toString() {
     final StringBuilder builder = new StringBuilder();
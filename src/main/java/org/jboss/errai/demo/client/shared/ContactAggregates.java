@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * Totals over every {@link Contact} of a tenant, returned by {@link ContactStorageService#getAggregates()}. The server
+ * maintains these as contacts are written, so reading them does not depend on the number of contacts. Clients keep
+ * them up to date by {@link #apply(ContactAggregatesDelta) applying} the {@link ContactAggregatesDelta deltas} sent on
+ * the subject {@link ContactInterest#AGGREGATES_SUBJECT}.
+ */
+@Portable
+public class ContactAggregates {
+
+  private final long sequence;
+  private final long total;
+  private final long missingPhonenumber;
+  private final long missingEmail;
+  private final Map<String, Long> emailDomains;
+  private final List<Long> birthMonths;
+
+  public ContactAggregates(final @MapsTo("sequence") long sequence,
+          final @MapsTo("total") long total,
+          final @MapsTo("missingPhonenumber") long missingPhonenumber,
+          final @MapsTo("missingEmail") long missingEmail,
+          final @MapsTo("emailDomains") Map<String, Long> emailDomains,
+          final @MapsTo("birthMonths") List<Long> birthMonths) {
+    this.sequence = sequence;
+    this.total = total;
+    this.missingPhonenumber = missingPhonenumber;
+    this.missingEmail = missingEmail;
+    this.emailDomains = emailDomains;
+    this.birthMonths = birthMonths;
+  }
+
+  /**
+   * The sequence number of the last {@link ContactAggregatesDelta} included in these totals.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * The number of contacts.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * The number of contacts without a phone number.
+   */
+  public long getMissingPhonenumber() {
+    return missingPhonenumber;
+  }
+
+  /**
+   * The number of contacts without an email address.
+   */
+  public long getMissingEmail() {
+    return missingEmail;
+  }
+
+  /**
+   * The number of contacts by the lower case domain of their email address. Domains without contacts are omitted.
+   */
+  public Map<String, Long> getEmailDomains() {
+    return emailDomains;
+  }
+
+  /**
+   * The number of contacts with a birthday in each month, January first.
+   */
+  public List<Long> getBirthMonths() {
+    return birthMonths;
+  }
+
+  /**
+   * @param month
+   *          From 1 (January) to 12 (December).
+   * @return The number of contacts with a birthday in the given month.
+   */
+  public long getBirthdaysIn(final int month) {
+    return birthMonths.get(month - 1);
+  }
+
+  /**
+   * @return These totals with the given delta applied, or null if the delta does not directly follow these totals (in
+   *         which case the totals should be fetched again).
+   */
+  public ContactAggregates apply(final ContactAggregatesDelta delta) {
+    if (delta.getSequence() != sequence + 1) {
+      return null;
+    }
+    final Map<String, Long> domains = new HashMap<>(emailDomains);
+    for (final Map.Entry<String, Long> change : delta.getEmailDomains().entrySet()) {
+      final Long count = domains.get(change.getKey());
+      final long updated = (count == null ? 0 : count) + change.getValue();
+      if (updated == 0) {
+        domains.remove(change.getKey());
+      }
+      else {
+        domains.put(change.getKey(), updated);
+      }
+    }
+    final List<Long> months = new ArrayList<>(birthMonths);
+    for (final Map.Entry<Integer, Long> change : delta.getBirthMonths().entrySet()) {
+      months.set(change.getKey() - 1, months.get(change.getKey() - 1) + change.getValue());
+    }
+
+    return new ContactAggregates(delta.getSequence(), total + delta.getTotal(),
+            missingPhonenumber + delta.getMissingPhonenumber(), missingEmail + delta.getMissingEmail(), domains,
+            months);
+  }
+
+}
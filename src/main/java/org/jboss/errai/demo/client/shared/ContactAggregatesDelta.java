@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.Map;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * The changes to the {@link ContactAggregates} of a tenant over a short interval, sent to the clients of the tenant on
+ * the subject {@link ContactInterest#AGGREGATES_SUBJECT}. Only totals that changed are included, so a delta stays small
+ * however many contacts were written. Deltas are numbered consecutively, so that a client can tell when it missed one.
+ */
+@Portable
+public class ContactAggregatesDelta {
+
+  private final long sequence;
+  private final long total;
+  private final long missingPhonenumber;
+  private final long missingEmail;
+  private final Map<String, Long> emailDomains;
+  private final Map<Integer, Long> birthMonths;
+
+  public ContactAggregatesDelta(final @MapsTo("sequence") long sequence,
+          final @MapsTo("total") long total,
+          final @MapsTo("missingPhonenumber") long missingPhonenumber,
+          final @MapsTo("missingEmail") long missingEmail,
+          final @MapsTo("emailDomains") Map<String, Long> emailDomains,
+          final @MapsTo("birthMonths") Map<Integer, Long> birthMonths) {
+    this.sequence = sequence;
+    this.total = total;
+    this.missingPhonenumber = missingPhonenumber;
+    this.missingEmail = missingEmail;
+    this.emailDomains = emailDomains;
+    this.birthMonths = birthMonths;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * The change in the number of contacts.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  public long getMissingPhonenumber() {
+    return missingPhonenumber;
+  }
+
+  public long getMissingEmail() {
+    return missingEmail;
+  }
+
+  /**
+   * The changes in the number of contacts by email domain, for domains that changed.
+   */
+  public Map<String, Long> getEmailDomains() {
+    return emailDomains;
+  }
+
+  /**
+   * The changes in the number of birthdays by month (from 1 for January), for months that changed.
+   */
+  public Map<Integer, Long> getBirthMonths() {
+    return birthMonths;
+  }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.List;
+
+import org.jboss.errai.bus.client.api.ClientMessageBus;
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * A batch of {@link Contact} writes sent with {@link ContactStorageService#batch(ContactBatch)}, so that several queued
+ * changes are applied with one request and one server transaction.
+ * <p>
+ * A batch contains at most one write per {@link Contact}, so the order in which the creates, updates, and deletes are
+ * applied does not matter.
+ */
+@Portable
+public class ContactBatch {
+
+  private final List<Contact> created;
+  private final List<Contact> updated;
+  private final List<Long> deleted;
+  private final String sourceQueueSessionId;
+  private final String idempotencyKey;
+
+  public ContactBatch(final @MapsTo("created") List<Contact> created,
+          final @MapsTo("updated") List<Contact> updated,
+          final @MapsTo("deleted") List<Long> deleted,
+          final @MapsTo("sourceQueueSessionId") String sourceQueueSessionId,
+          final @MapsTo("idempotencyKey") String idempotencyKey) {
+    this.created = created;
+    this.updated = updated;
+    this.deleted = deleted;
+    this.sourceQueueSessionId = sourceQueueSessionId;
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  /**
+   * New {@link Contact Contacts}. The ids assigned to them are returned in the same order by
+   * {@link ContactBatchResult#getCreatedIds()}.
+   */
+  public List<Contact> getCreated() {
+    return created;
+  }
+
+  public List<Contact> getUpdated() {
+    return updated;
+  }
+
+  /**
+   * Ids of {@link Contact Contacts} to delete.
+   */
+  public List<Long> getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * The value of {@link ClientMessageBus#getSessionId()} from the browser session that sent this batch. See
+   * {@link ContactOperation#getSourceQueueSessionId()}.
+   */
+  public String getSourceQueueSessionId() {
+    return sourceQueueSessionId;
+  }
+
+  /**
+   * A key chosen by the client for this batch, or null. A batch that is sent again with the same key is not applied
+   * again, and is answered with the {@link ContactBatchResult} of the first attempt, so a client can safely resend a
+   * batch whose reply was lost. See {@link ContactOperation#getIdempotencyKey()}.
+   */
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
+}
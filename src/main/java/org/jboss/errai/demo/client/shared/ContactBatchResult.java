@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.List;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * The outcome of applying a {@link ContactBatch}.
+ */
+@Portable
+public class ContactBatchResult {
+
+  private final List<Long> createdIds;
+  private final List<Long> missing;
+
+  public ContactBatchResult(final @MapsTo("createdIds") List<Long> createdIds,
+          final @MapsTo("missing") List<Long> missing) {
+    this.createdIds = createdIds;
+    this.missing = missing;
+  }
+
+  /**
+   * The ids assigned to {@link ContactBatch#getCreated() created contacts}, in the same order.
+   */
+  public List<Long> getCreatedIds() {
+    return createdIds;
+  }
+
+  /**
+   * Ids of {@link Contact Contacts} that were updated or deleted in the batch but no longer exist on the server (for
+   * example, because they were deleted from another browser session). These writes were skipped.
+   */
+  public List<Long> getMissing() {
+    return missing;
+  }
+
+}
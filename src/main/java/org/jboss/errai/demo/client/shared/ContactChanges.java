@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.List;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * The {@link Contact Contacts} created, updated, or deleted since a client last synchronized, as returned by
+ * {@link ContactStorageService#getChanges(long)}.
+ * <p>
+ * If {@link #isReset()} is true, the server could not compute changes since the requested version (for example, because
+ * the client has never synchronized), so {@link #getChanged()} contains every {@link Contact} and the client should
+ * discard anything it has cached.
+ */
+@Portable
+public class ContactChanges {
+
+  private final List<Contact> changed;
+  private final List<Long> deleted;
+  private final long version;
+  private final boolean reset;
+
+  public ContactChanges(final @MapsTo("changed") List<Contact> changed,
+          final @MapsTo("deleted") List<Long> deleted,
+          final @MapsTo("version") long version,
+          final @MapsTo("reset") boolean reset) {
+    this.changed = changed;
+    this.deleted = deleted;
+    this.version = version;
+    this.reset = reset;
+  }
+
+  /**
+   * {@link Contact Contacts} created or updated since the requested version.
+   */
+  public List<Contact> getChanged() {
+    return changed;
+  }
+
+  /**
+   * Ids of {@link Contact Contacts} deleted since the requested version.
+   */
+  public List<Long> getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * The version to pass to {@link ContactStorageService#getChanges(long)} on the next synchronization.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public boolean isReset() {
+    return reset;
+  }
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * This {@link Portable} type is sent by the server to the clients of a tenant, on the subject
+ * {@link ContactInterest#DROPS_SUBJECT}, when change events of that tenant's {@link Contact Contacts} could not be
+ * queued for delivery because the server was overloaded. Clients fetch the missed changes with
+ * {@link ContactStorageService#getChanges(long)}.
+ */
+@Portable
+public class ContactEventsDropped {
+
+  private final long dropped;
+
+  public ContactEventsDropped(final @MapsTo("dropped") long dropped) {
+    this.dropped = dropped;
+  }
+
+  /**
+   * The number of change events of the tenant that were not delivered.
+   */
+  public long getDropped() {
+    return dropped;
+  }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.List;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * The {@link Contact Contacts} a client is currently showing, sent to the server over the bus on the subject
+ * {@link #INTEREST_SUBJECT} whenever the displayed contacts change. The server only sends a client the changes to
+ * contacts it is interested in, on the subject {@link #CHANGES_SUBJECT}:
+ * <ul>
+ * <li>Updates and deletes of the {@link #getVisibleIds() visible contacts}.
+ * <li>Creates and updates of contacts that match the {@link #getFilter() filter} (see {@link ContactTokens}), or
+ * creates of any contact if there is no filter.
+ * </ul>
+ * Other changes are picked up with {@link ContactStorageService#getChanges(long)} when the interest changes. Every
+ * client is also sent a {@link ContactsImported} on the subject {@link #IMPORTS_SUBJECT} after a bulk import, a
+ * {@link ContactEventsDropped} on the subject {@link #DROPS_SUBJECT} when changes could not be delivered, and the
+ * changes to the {@link ContactAggregates} on the subject {@link #AGGREGATES_SUBJECT}. Clients only receive changes,
+ * imports, drops, and aggregates of their own tenant.
+ */
+@Portable
+public class ContactInterest {
+
+  public static final String INTEREST_SUBJECT = "ContactInterest";
+
+  public static final String CHANGES_SUBJECT = "ContactChanges";
+
+  public static final String IMPORTS_SUBJECT = "ContactImports";
+
+  public static final String AGGREGATES_SUBJECT = "ContactAggregates";
+
+  public static final String DROPS_SUBJECT = "ContactEventsDropped";
+
+  /**
+   * The message part holding a {@link ContactInterest}.
+   */
+  public static final String INTEREST_PART = "interest";
+
+  /**
+   * The message part holding the name of the {@link Operation.OperationType} of a change.
+   */
+  public static final String TYPE_PART = "type";
+
+  /**
+   * The message part holding the id of the changed contact.
+   */
+  public static final String ID_PART = "id";
+
+  /**
+   * The message part holding the revision of a change. Revisions are issued by the database in commit order, and are
+   * at least the server clock at the time of the write in milliseconds since the epoch (later when writes to the same
+   * database follow each other within a millisecond, or when a database's revisions run ahead of the clock).
+   */
+  public static final String REVISION_PART = "revision";
+
+  /**
+   * The message part of the reply to an interest holding the server clock in milliseconds since the epoch, so that
+   * clients can relate {@link #REVISION_PART revisions} to their own clock.
+   */
+  public static final String SERVER_TIME_PART = "serverTime";
+
+  /**
+   * The message part holding the {@link ContactOperation} of a create or update.
+   */
+  public static final String OPERATION_PART = "operation";
+
+  /**
+   * The message part holding a {@link ContactsImported}.
+   */
+  public static final String IMPORTED_PART = "imported";
+
+  /**
+   * The message part holding a {@link ContactAggregatesDelta}.
+   */
+  public static final String AGGREGATES_PART = "aggregates";
+
+  /**
+   * The message part holding a {@link ContactEventsDropped}.
+   */
+  public static final String DROPPED_PART = "dropped";
+
+  private final String filter;
+  private final List<Long> visibleIds;
+
+  public ContactInterest(final @MapsTo("filter") String filter, final @MapsTo("visibleIds") List<Long> visibleIds) {
+    this.filter = filter;
+    this.visibleIds = visibleIds;
+  }
+
+  /**
+   * The query typed into the filter box, or null.
+   */
+  public String getFilter() {
+    return filter;
+  }
+
+  /**
+   * Ids of the contacts rendered on screen.
+   */
+  public List<Long> getVisibleIds() {
+    return visibleIds;
+  }
+
+}
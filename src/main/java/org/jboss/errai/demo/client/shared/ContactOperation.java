@@ -21,8 +21,8 @@ import org.jboss.errai.common.client.api.annotations.MapsTo;
 import org.jboss.errai.common.client.api.annotations.Portable;
 
 /**
- * This {@link Portable} type is fired as a CDI event from the server so that clients can observe created and updated
- * {@link Contact Contacts} from different browser sessions without refreshing.
+ * This {@link Portable} type is sent from the server to interested clients (see {@link ContactInterest}) so that they
+ * can display created and updated {@link Contact Contacts} from different browser sessions without refreshing.
  * <p>
  * This type encapulates a session id as well as a {@link Contact} so that the client that orginally created or updated
  * a {@link Contact} can ignore the event.
@@ -32,11 +32,14 @@ public class ContactOperation {
 
   private final Contact contact;
   private final String sourceQueueSessionId;
+  private final String idempotencyKey;
 
   public ContactOperation(final @MapsTo("contact") Contact contact,
-          final @MapsTo("sourceQueueSessionId") String sourceQueueSessionId) {
+          final @MapsTo("sourceQueueSessionId") String sourceQueueSessionId,
+          final @MapsTo("idempotencyKey") String idempotencyKey) {
     this.contact = contact;
     this.sourceQueueSessionId = sourceQueueSessionId;
+    this.idempotencyKey = idempotencyKey;
   }
 
   /**
@@ -53,4 +56,14 @@ public class ContactOperation {
     return sourceQueueSessionId;
   }
 
+  /**
+   * A key chosen by the client that sends this operation with {@link ContactStorageService#create(ContactOperation)}
+   * or {@link ContactStorageService#update(ContactOperation)}, or null. An operation that is sent again with the same
+   * key (for example, after a timeout) is not applied again, and is answered with the outcome of the first attempt.
+   * Keys should be unique over all clients, and are remembered by the server for a few minutes.
+   */
+  public String getIdempotencyKey() {
+    return idempotencyKey;
+  }
+
 }
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.List;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * The first {@link Contact Contacts} in id order, embedded by the server in the host page so that the client can
+ * display them without a request.
+ */
+@Portable
+public class ContactPage {
+
+  private final List<Contact> contacts;
+  private final long version;
+  private final boolean complete;
+
+  public ContactPage(final @MapsTo("contacts") List<Contact> contacts,
+          final @MapsTo("version") long version,
+          final @MapsTo("complete") boolean complete) {
+    this.contacts = contacts;
+    this.version = version;
+    this.complete = complete;
+  }
+
+  public List<Contact> getContacts() {
+    return contacts;
+  }
+
+  /**
+   * The {@link ContactChanges#getVersion() version} at which this page was read.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * True iff this page contains every {@link Contact}, in which case {@link #getVersion()} may be used to request
+   * subsequent changes with {@link ContactStorageService#getChanges(long)}.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import org.jboss.errai.bus.server.annotations.Remote;
+
+/**
+ * Defines an Errai RPC service for synchronizing and writing {@link Contact Contacts}. This offers the operations of
+ * {@link ContactStorageService} that the client uses, but calls are sent as messages over the Errai bus connection that
+ * is already open for receiving events, rather than as separate HTTP requests.
+ */
+@Remote
+public interface ContactRpcService {
+
+  /**
+   * See {@link ContactStorageService#getChanges(long)}.
+   */
+  ContactChanges getChanges(long since);
+
+  /**
+   * See {@link ContactStorageService#getAggregates()}.
+   */
+  ContactAggregates getAggregates();
+
+  /**
+   * See {@link ContactStorageService#batch(ContactBatch)}.
+   */
+  ContactBatchResult batch(ContactBatch batch);
+
+}
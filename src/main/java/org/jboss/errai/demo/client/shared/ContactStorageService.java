@@ -20,12 +20,14 @@ import java.util.List;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
 /**
@@ -38,6 +40,35 @@ public interface ContactStorageService {
   @Produces("application/json")
   List<Contact> getAllContacts();
 
+  /**
+   * @param since
+   *          The {@link ContactChanges#getVersion() version} from the last synchronization, or 0 to fetch all contacts.
+   * @return The contacts changed since the given version.
+   */
+  @GET
+  @Path("/changes")
+  @Produces("application/json")
+  ContactChanges getChanges(@QueryParam("since") long since);
+
+  /**
+   * @return Totals over every contact, or no content (null) while the contacts are being loaded into the server's
+   *         memory, in which case the call should be retried.
+   */
+  @GET
+  @Path("/aggregates")
+  @Produces("application/json")
+  ContactAggregates getAggregates();
+
+  /**
+   * @param days
+   *          The number of days after today to include: 0 for only today's birthdays, up to 365 for a whole year.
+   * @return Contacts whose birthdays fall within the given number of days from today (in UTC), soonest first.
+   */
+  @GET
+  @Path("/birthdays")
+  @Produces("application/json")
+  List<Contact> getUpcomingBirthdays(@QueryParam("days") @DefaultValue("30") int days);
+
   @POST
   @Consumes("application/json")
   Response create(ContactOperation contactOperation);
@@ -50,4 +81,38 @@ public interface ContactStorageService {
   @Path("/{id:[0-9]+}")
   Response delete(@PathParam("id") Long id);
 
+  /**
+   * Applies several creates, updates, and deletes in a single transaction.
+   */
+  @POST
+  @Path("/batch")
+  @Consumes("application/json")
+  @Produces("application/json")
+  ContactBatchResult batch(ContactBatch batch);
+
+  /**
+   * Streams every contact, in id order, as a file download.
+   *
+   * @param format
+   *          {@code csv} (the default), {@code vcard}, or {@code json} (one JSON object per line, served from the
+   *          server's contact cache).
+   * @param gzip
+   *          If true, the file is gzip-compressed.
+   */
+  @GET
+  @Path("/export")
+  Response export(@QueryParam("format") String format, @QueryParam("gzip") boolean gzip);
+
+  /**
+   * Only available when the {@code errai-crud.benchmark} context parameter is {@code true}; otherwise the server answers
+   * {@code 404 Not Found}.
+   *
+   * @return The CPU time used by the server process in nanoseconds, or -1 if it is not available. Used to compare the
+   *         server cost of transports (see {@code TransportBenchmark}).
+   */
+  @GET
+  @Path("/cpu-time")
+  @Produces("application/json")
+  long getServerCpuTime();
+
 }
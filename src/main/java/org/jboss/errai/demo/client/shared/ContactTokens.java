@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Splits {@link Contact Contacts} and search queries into lower-case tokens. A contact matches a query if every term of
+ * the query is a prefix of one of the contact's tokens. Shared by the client, which filters the displayed contacts, and
+ * the server, which only sends clients the changes that match their filter (see {@link ContactInterest}).
+ */
+public final class ContactTokens {
+
+  private static final String TOKEN_SEPARATORS = "[\\s,.;:!?'\"()\\[\\]/\\\\@+_-]+";
+
+  private ContactTokens() {
+  }
+
+  /**
+   * @return The words of the full name and nickname, the email address and its parts, and the digits of the phone
+   *         number.
+   */
+  public static Collection<String> tokenize(final Contact contact) {
+    final Set<String> tokens = new LinkedHashSet<>();
+    tokens.addAll(splitTerms(contact.getFullname()));
+    tokens.addAll(splitTerms(contact.getNickname()));
+    final String email = contact.getEmail();
+    if (email != null && !email.trim().isEmpty()) {
+      tokens.add(email.trim().toLowerCase());
+      tokens.addAll(splitTerms(email));
+    }
+    final String phonenumber = contact.getPhonenumber();
+    if (phonenumber != null) {
+      final String digits = phonenumber.replaceAll("[^0-9]", "");
+      if (!digits.isEmpty()) {
+        tokens.add(digits);
+      }
+    }
+
+    return tokens;
+  }
+
+  /**
+   * @return The distinct lower-case terms of a query, or of a property value.
+   */
+  public static Collection<String> splitTerms(final String value) {
+    final Set<String> terms = new LinkedHashSet<>();
+    if (value != null) {
+      for (final String term : value.toLowerCase().split(TOKEN_SEPARATORS)) {
+        if (!term.isEmpty()) {
+          terms.add(term);
+        }
+      }
+    }
+    return terms;
+  }
+
+  /**
+   * @return True iff every term is a prefix of at least one token.
+   */
+  public static boolean matches(final Collection<String> tokens, final Collection<String> terms) {
+    for (final String term : terms) {
+      boolean found = false;
+      for (final String token : tokens) {
+        if (token.startsWith(term)) {
+          found = true;
+          break;
+        }
+      }
+      if (!found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
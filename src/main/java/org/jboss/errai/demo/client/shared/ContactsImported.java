@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.shared;
+
+import org.jboss.errai.common.client.api.annotations.MapsTo;
+import org.jboss.errai.common.client.api.annotations.Portable;
+
+/**
+ * This {@link Portable} type is sent by the server to the clients of a tenant once after a bulk import (on the subject
+ * {@link ContactInterest#IMPORTS_SUBJECT}), instead of one change per imported {@link Contact}. Clients fetch the
+ * imported contacts with {@link ContactStorageService#getChanges(long)}.
+ */
+@Portable
+public class ContactsImported {
+
+  private final long imported;
+
+  public ContactsImported(final @MapsTo("imported") long imported) {
+    this.imported = imported;
+  }
+
+  /**
+   * The number of {@link Contact Contacts} created by the import.
+   */
+  public long getImported() {
+    return imported;
+  }
+
+}
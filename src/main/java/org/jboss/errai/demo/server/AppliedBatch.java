@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.Map;
+
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactBatchResult;
+
+/**
+ * The outcome of applying a {@link ContactBatch}: the result sent to the client, and the revision at which each
+ * deleted contact was deleted, with which the deletes are published.
+ */
+public class AppliedBatch {
+
+  private final ContactBatchResult result;
+
+  private final Map<Long, Long> deleteRevisions;
+
+  public AppliedBatch(final ContactBatchResult result, final Map<Long, Long> deleteRevisions) {
+    this.result = result;
+    this.deleteRevisions = deleteRevisions;
+  }
+
+  public ContactBatchResult getResult() {
+    return result;
+  }
+
+  /**
+   * The revisions of the deletes that were applied, by contact id. Deletes of contacts that did not exist have none.
+   */
+  public Map<Long, Long> getDeleteRevisions() {
+    return deleteRevisions;
+  }
+
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.time.LocalDate;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * A server-side CDI event fired by the {@link BirthdayReminderJob} once for every {@link Contact} whose birthday is
+ * today. Observers may, for example, send a notification to the owner of the address book. It is not sent to clients,
+ * because the job reads the contacts of every tenant; observers must use {@link #getTenant()} to keep them apart.
+ */
+public class BirthdayReminder {
+
+  private final Contact contact;
+  private final LocalDate date;
+
+  public BirthdayReminder(final Contact contact, final LocalDate date) {
+    this.contact = contact;
+    this.date = date;
+  }
+
+  /**
+   * The tenant (see {@link Tenants}) of the {@link Contact}.
+   */
+  public String getTenant() {
+    return contact.getTenant();
+  }
+
+  public Contact getContact() {
+    return contact;
+  }
+
+  /**
+   * The date (in UTC) on which the birthday is celebrated. For a birthday on February 29, this is February 28 outside
+   * leap years.
+   */
+  public LocalDate getDate() {
+    return date;
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import static org.jboss.errai.demo.server.ContactEntityService.SHARD_COUNT;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Fires a {@link BirthdayReminder} for every {@link Contact} whose birthday is today, shortly after midnight (UTC).
+ * Contacts are found with the index on the {@link Contact#getBirthdayOfYear() day of the year}, a page at a time, so
+ * the work done each day depends on the number of birthdays that day rather than on the number of contacts. Outside
+ * leap years, birthdays on February 29 are included on February 28.
+ *
+ * <p>
+ * The job runs on every server. In a cluster, observers that must act only once should use a single server for it.
+ */
+@Singleton
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class BirthdayReminderJob {
+
+  static final int PAGE_SIZE = 200;
+
+  private static final Logger logger = LoggerFactory.getLogger(BirthdayReminderJob.class);
+
+  @Inject
+  private ContactEntityService entityService;
+
+  @Inject
+  private Event<BirthdayReminder> reminders;
+
+  @Schedule(hour = "0", minute = "5", persistent = false)
+  private void remind() {
+    final LocalDate today = Birthdays.today();
+    int count = remind(Birthdays.dayOfYear(today), today);
+    if (today.getMonth() == Month.FEBRUARY && today.getDayOfMonth() == 28 && !today.isLeapYear()) {
+      count += remind(Birthdays.LEAP_DAY, today);
+    }
+    logger.info("Sent {} birthday reminders for {}", count, today);
+  }
+
+  /**
+   * @return The number of reminders fired.
+   */
+  private int remind(final int day, final LocalDate date) {
+    int count = 0;
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      long lastId = 0;
+      List<Contact> page;
+      do {
+        page = entityService.getBirthdaysOn(shard, day, lastId, PAGE_SIZE);
+        for (final Contact contact : page) {
+          lastId = contact.getId();
+          try {
+            reminders.fire(new BirthdayReminder(contact, date));
+            count++;
+          }
+          catch (final RuntimeException e) {
+            // One failing reminder should not stop the others.
+            logger.warn("Could not send the birthday reminder for contact " + contact.getId(), e);
+          }
+        }
+      } while (page.size() == PAGE_SIZE);
+    }
+    return count;
+  }
+
+}
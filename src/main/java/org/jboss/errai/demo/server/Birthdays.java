@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * Converts birthdays to the day of the year stored in {@link Contact#getBirthdayOfYear()}. Days are numbered as in a
+ * leap year, from 1 for January 1 to 366 for December 31, so that every date keeps the same number in every year and
+ * February 29 has a number of its own (60). Birthdays are read as UTC dates, like in the {@link ContactColumns}.
+ */
+final class Birthdays {
+
+  static final int DAYS = 366;
+
+  /**
+   * The day number of February 29.
+   */
+  static final int LEAP_DAY = 60;
+
+  private static final int LEAP_YEAR = 2000;
+
+  private Birthdays() {
+  }
+
+  /**
+   * @return The day of the year of the birthday, or null if there is no birthday.
+   */
+  static Integer dayOfYear(final Date birthday) {
+    return (birthday == null ? null : dayOfYear(LocalDate.ofEpochDay(ContactColumns.toEpochDay(birthday))));
+  }
+
+  static int dayOfYear(final LocalDate date) {
+    return MonthDay.from(date).atYear(LEAP_YEAR).getDayOfYear();
+  }
+
+  /**
+   * @return The current date in UTC, the time zone in which birthdays are stored.
+   */
+  static LocalDate today() {
+    return LocalDate.now(ZoneOffset.UTC);
+  }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+/**
+ * The size and state of the {@link ContactCache}.
+ */
+public class CacheMetrics {
+
+  private final long tenants;
+
+  private final long contacts;
+
+  private final long offHeapBytes;
+
+  private final long heapBytes;
+
+  private final long evictions;
+
+  CacheMetrics(final long tenants, final long contacts, final long offHeapBytes, final long heapBytes,
+          final long evictions) {
+    this.tenants = tenants;
+    this.contacts = contacts;
+    this.offHeapBytes = offHeapBytes;
+    this.heapBytes = heapBytes;
+    this.evictions = evictions;
+  }
+
+  /**
+   * The number of tenants whose contacts are cached or being loaded.
+   */
+  public long getTenants() {
+    return tenants;
+  }
+
+  /**
+   * The number of cached contacts, of all tenants.
+   */
+  public long getContacts() {
+    return contacts;
+  }
+
+  /**
+   * The bytes allocated for contact data outside the Java heap.
+   */
+  public long getOffHeapBytes() {
+    return offHeapBytes;
+  }
+
+  /**
+   * The bytes of the Java heap used to index the contact data.
+   */
+  public long getHeapBytes() {
+    return heapBytes;
+  }
+
+  /**
+   * The number of tenants whose contacts were evicted from the cache to make room for others since startup.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+/**
+ * A summary of the latencies measured in browsers for one measurement name (see {@link ClientLatencyHistograms}).
+ * Percentiles are the upper bound of the histogram bucket they fall in.
+ */
+public class ClientLatency {
+
+  private final String name;
+
+  private final long count;
+
+  private final long p50;
+
+  private final long p90;
+
+  private final long p99;
+
+  private final long max;
+
+  ClientLatency(final String name, final long count, final long p50, final long p90, final long p99, final long max) {
+    this.name = name;
+    this.count = count;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.max = max;
+  }
+
+  /**
+   * The measurement name, such as {@code page.firstRender} or {@code call.batch.rest}.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The number of samples since startup.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * The median, in milliseconds.
+   */
+  public long getP50() {
+    return p50;
+  }
+
+  /**
+   * The 90th percentile, in milliseconds.
+   */
+  public long getP90() {
+    return p90;
+  }
+
+  /**
+   * The 99th percentile, in milliseconds.
+   */
+  public long getP99() {
+    return p99;
+  }
+
+  /**
+   * The largest sample, in milliseconds.
+   */
+  public long getMax() {
+    return max;
+  }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * <p>
+ * Aggregates the latencies measured in browsers (see {@code ClientMetrics} in the client) into one histogram per
+ * measurement name, since startup.
+ *
+ * <p>
+ * Histograms have logarithmic buckets, four per doubling, so that percentiles are accurate to within 19% from one
+ * millisecond up to {@link #MAX_MILLIS}, in constant memory. Beacons come from untrusted clients, so names are
+ * validated, their number is limited to {@link #MAX_NAMES}, values are clamped, and each beacon is limited to
+ * {@link #MAX_SAMPLES_PER_BEACON} samples.
+ */
+@ApplicationScoped
+public class ClientLatencyHistograms {
+
+  static final int MAX_NAMES = 64;
+
+  static final int MAX_SAMPLES_PER_BEACON = 1000;
+
+  static final long MAX_MILLIS = 10 * 60 * 1000;
+
+  private static final int BUCKETS_PER_DOUBLING = 4;
+
+  private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.]{1,64}");
+
+  private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+
+  /**
+   * Records the samples of a beacon, one per line in the format {@code <name> <milliseconds>}. Malformed lines and
+   * samples of new names beyond {@link #MAX_NAMES} are ignored.
+   */
+  public void record(final Reader beacon) throws IOException {
+    final BufferedReader reader = new BufferedReader(beacon);
+    String line;
+    int samples = 0;
+    while ((line = reader.readLine()) != null && samples++ < MAX_SAMPLES_PER_BEACON) {
+      final int space = line.indexOf(' ');
+      if (space < 0) {
+        continue;
+      }
+      final String name = line.substring(0, space);
+      final long millis;
+      try {
+        millis = Long.parseLong(line.substring(space + 1).trim());
+      }
+      catch (final NumberFormatException e) {
+        continue;
+      }
+      final Histogram histogram = histogram(name);
+      if (histogram != null) {
+        histogram.record(Math.max(0, Math.min(MAX_MILLIS, millis)));
+      }
+    }
+  }
+
+  /**
+   * @return Summaries of every histogram, ordered by name.
+   */
+  public List<ClientLatency> getSummaries() {
+    final List<ClientLatency> summaries = new ArrayList<>(histograms.size());
+    histograms.forEach((name, histogram) -> summaries.add(histogram.summarize(name)));
+    return summaries;
+  }
+
+  private Histogram histogram(final String name) {
+    final Histogram histogram = histograms.get(name);
+    if (histogram != null || !NAME.matcher(name).matches() || histograms.size() >= MAX_NAMES) {
+      return histogram;
+    }
+    return histograms.computeIfAbsent(name, n -> new Histogram());
+  }
+
+  /**
+   * Bucket 0 counts zero, and bucket {@code i > 0} counts values up to {@link #upperBound(int) 2^((i - 1) / 4)}.
+   */
+  private static int bucket(final long millis) {
+    if (millis == 0) {
+      return 0;
+    }
+    return 1 + (int) Math.ceil(Math.log(millis) / Math.log(2) * BUCKETS_PER_DOUBLING);
+  }
+
+  private static long upperBound(final int bucket) {
+    return bucket == 0 ? 0 : Math.round(Math.pow(2, (bucket - 1) / (double) BUCKETS_PER_DOUBLING));
+  }
+
+  private static class Histogram {
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucket(MAX_MILLIS) + 1);
+
+    private final AtomicLong max = new AtomicLong();
+
+    void record(final long millis) {
+      counts.incrementAndGet(bucket(millis));
+      max.accumulateAndGet(millis, Math::max);
+    }
+
+    ClientLatency summarize(final String name) {
+      final long[] snapshot = new long[counts.length()];
+      long total = 0;
+      for (int i = 0; i < snapshot.length; i++) {
+        snapshot[i] = counts.get(i);
+        total += snapshot[i];
+      }
+      final long maximum = max.get();
+      return new ClientLatency(name, total, percentile(snapshot, total, 0.5, maximum),
+              percentile(snapshot, total, 0.9, maximum), percentile(snapshot, total, 0.99, maximum), maximum);
+    }
+
+    private static long percentile(final long[] snapshot, final long total, final double fraction, final long max) {
+      final long rank = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for (int i = 0; i < snapshot.length; i++) {
+        seen += snapshot[i];
+        if (seen >= rank && seen > 0) {
+          return Math.min(upperBound(i), max);
+        }
+      }
+      return max;
+    }
+
+  }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactAggregatesDelta;
+
+/**
+ * Sends the changes to the {@link ContactAggregates} of each tenant to its clients once a second. Changes are collected
+ * by the {@link ContactCache} as contacts are written (on this server or, in a cluster, on another), so a burst of
+ * writes costs each client one small {@link ContactAggregatesDelta} rather than a message per write.
+ */
+@Singleton
+public class ContactAggregatesPublisher {
+
+  @Inject
+  private ContactCache cache;
+
+  @Inject
+  private ContactSubscriptions subscriptions;
+
+  @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+  private void publish() {
+    cache.takeAggregatesDeltas().forEach(subscriptions::deliver);
+  }
+
+}
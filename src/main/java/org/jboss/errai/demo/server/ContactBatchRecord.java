@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import org.jboss.errai.demo.client.shared.ContactBatch;
+
+/**
+ * Records that the part of a {@link ContactBatch} sent with an idempotency key that belongs to one shard was applied,
+ * and its outcome. It is stored in the shard database in the same transaction as the writes, so a retry of the batch,
+ * on any server, applies only the parts that did not commit (see {@link IdempotentWrites}).
+ */
+@Entity
+@Table(indexes = @Index(columnList = "appliedAt"))
+@NamedQueries({
+  @NamedQuery(name = ContactBatchRecord.PURGE_QUERY, query = "DELETE FROM ContactBatchRecord r WHERE r.appliedAt < :before")
+})
+public class ContactBatchRecord {
+
+  public static final String PURGE_QUERY = "purgeContactBatchRecords";
+
+  /**
+   * The tenant and idempotency key of the batch, separated by a slash.
+   */
+  @Id
+  @Column(length = 192)
+  private String batchKey;
+
+  /**
+   * The revision at which the part was applied.
+   */
+  private long appliedAt;
+
+  @Lob
+  private String createdIds;
+
+  @Lob
+  private String missing;
+
+  @Lob
+  private String deleted;
+
+  protected ContactBatchRecord() {
+  }
+
+  public ContactBatchRecord(final String batchKey, final long appliedAt, final List<Long> createdIds,
+          final List<Long> missing, final List<Long> deleted) {
+    this.batchKey = batchKey;
+    this.appliedAt = appliedAt;
+    this.createdIds = join(createdIds);
+    this.missing = join(missing);
+    this.deleted = join(deleted);
+  }
+
+  public String getBatchKey() {
+    return batchKey;
+  }
+
+  public long getAppliedAt() {
+    return appliedAt;
+  }
+
+  /**
+   * The ids assigned to the part's created contacts, in the same order.
+   */
+  public List<Long> getCreatedIds() {
+    return split(createdIds);
+  }
+
+  /**
+   * The ids of contacts that the part was to update or delete but did not exist.
+   */
+  public List<Long> getMissing() {
+    return split(missing);
+  }
+
+  /**
+   * The ids of the contacts that the part deleted.
+   */
+  public List<Long> getDeleted() {
+    return split(deleted);
+  }
+
+  private static String join(final List<Long> ids) {
+    return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+  }
+
+  private static List<Long> split(final String ids) {
+    final List<Long> list = new ArrayList<>();
+    if (!ids.isEmpty()) {
+      for (final String id : ids.split(",")) {
+        list.add(Long.valueOf(id));
+      }
+    }
+    return list;
+  }
+
+}
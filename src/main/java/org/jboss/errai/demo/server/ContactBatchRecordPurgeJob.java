@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import static org.jboss.errai.demo.server.ContactEntityService.SHARD_COUNT;
+
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes the {@link ContactBatchRecord batch records} of every shard once they are older than
+ * {@link IdempotentWrites#RETENTION_MILLIS}, after which a retry of the batch is applied again. The job runs on every
+ * server, which is harmless because deleting the same records twice deletes nothing the second time.
+ */
+@Singleton
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ContactBatchRecordPurgeJob {
+
+  private static final Logger logger = LoggerFactory.getLogger(ContactBatchRecordPurgeJob.class);
+
+  @Inject
+  private ContactEntityService entityService;
+
+  @Schedule(hour = "*", minute = "*/5", persistent = false)
+  private void purge() {
+    final long before = System.currentTimeMillis() - IdempotentWrites.RETENTION_MILLIS;
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      try {
+        logger.debug("Purged {} batch records from shard {}", entityService.purgeBatchRecords(shard, before), shard);
+      }
+      catch (final RuntimeException e) {
+        // Try the other shards, and this one again next time.
+        logger.warn("Could not purge the batch records of shard " + shard, e);
+      }
+    }
+  }
+
+}
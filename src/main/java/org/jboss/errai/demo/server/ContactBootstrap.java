@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.List;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactPage;
+import org.jboss.errai.marshalling.server.ServerMarshalling;
+
+/**
+ * Embeds the first page of {@link Contact Contacts} in the host page ({@code index.jsp}), so the client can display
+ * them as soon as the GWT module has loaded, without first requesting them from the {@link ContactStorageServiceImpl}.
+ * <p>
+ * The first contacts are also rendered to HTML with the {@link ContactTemplateRenderer}, so that they are displayed
+ * before the GWT module has loaded at all.
+ */
+@Named
+@RequestScoped
+public class ContactBootstrap {
+
+  /**
+   * Enough contacts to fill the first screen on most displays.
+   */
+  static final int PAGE_SIZE = 100;
+
+  /**
+   * Enough pre-rendered contacts to fill the first screen, without making the page much larger.
+   */
+  static final int PRERENDERED_COUNT = 24;
+
+  /**
+   * The name of the {@code web.xml} context parameter that selects how clients call the contact service: {@code rest}
+   * (the default) for JAX-RS over HTTP, or {@code bus} for Errai RPC over the bus.
+   */
+  static final String TRANSPORT_PARAM = "errai-crud.transport";
+
+  @Inject
+  private ContactShardRouter router;
+
+  @Inject
+  private ContactTemplateRenderer renderer;
+
+  @Inject
+  private ServletContext servletContext;
+
+  @Inject
+  private HttpServletRequest request;
+
+  private ContactPage page;
+
+  /**
+   * @return A JavaScript string literal containing the Errai JSON encoding of a {@link ContactPage}, safe to emit in a
+   *         {@code <script>} element.
+   */
+  public String getScriptLiteral() {
+    return toScriptLiteral(ServerMarshalling.toJSON(getPage()));
+  }
+
+  /**
+   * @return HTML for the first contacts of the {@link ContactPage}, rendered from the same template as the client.
+   */
+  public String getPrerenderedContacts() {
+    final List<Contact> contacts = getPage().getContacts();
+    return renderer.render(contacts.subList(0, Math.min(PRERENDERED_COUNT, contacts.size())));
+  }
+
+  /**
+   * @return CSS required to style the {@link #getPrerenderedContacts() pre-rendered contacts}.
+   */
+  public String getStylesheet() {
+    return renderer.getStylesheet();
+  }
+
+  /**
+   * @return The transport clients of this deployment use to call the contact service, either {@code "rest"} or
+   *         {@code "bus"}. See {@link #TRANSPORT_PARAM}.
+   */
+  public String getTransport() {
+    return ("bus".equals(servletContext.getInitParameter(TRANSPORT_PARAM)) ? "bus" : "rest");
+  }
+
+  /*
+   * The page is read once per request so that the embedded data and the pre-rendered markup are consistent.
+   */
+  private ContactPage getPage() {
+    if (page == null) {
+      page = router.getFirstContacts(Tenants.of(request), PAGE_SIZE);
+    }
+    return page;
+  }
+
+  static String toScriptLiteral(final String value) {
+    final StringBuilder builder = new StringBuilder(value.length() + 16).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+      case '"':
+        builder.append("\\\"");
+        break;
+      case '\\':
+        builder.append("\\\\");
+        break;
+      case '\n':
+        builder.append("\\n");
+        break;
+      case '\r':
+        builder.append("\\r");
+        break;
+      // Prevents "</script>" or "<!--" in contact data from ending the script element.
+      case '<':
+        builder.append("\\u003c");
+        break;
+      // Line terminators in JavaScript, but not in JSON.
+      case '\u2028':
+        builder.append("\\u2028");
+        break;
+      case '\u2029':
+        builder.append("\\u2029");
+        break;
+      default:
+        builder.append(c);
+      }
+    }
+
+    return builder.append('"').toString();
+  }
+
+}
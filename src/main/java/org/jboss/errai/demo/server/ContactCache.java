@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactAggregatesDelta;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Copies of {@link Contact Contacts} in memory, kept outside the Java heap in {@link ContactColumns}, from which the
+ * {@link ContactShardRouter} serves reads without querying the shards. Contacts read from the cache are new objects,
+ * so callers may modify them.
+ *
+ * <p>
+ * The cache is partitioned by tenant (see {@link Tenants}). A tenant's partition is loaded from the shards in the
+ * background the first time its contacts are read, and is not used for reads until that is done. Writes are applied
+ * to a partition from the start of loading: a contact written during loading replaces an older copy read by the loader
+ * (by {@link Contact#getLastModified() revision}), and a contact deleted during loading is not added by the loader
+ * afterwards. Writes for tenants without a partition are ignored, since the partition will be loaded after they commit.
+ *
+ * <p>
+ * When more than {@link #MAX_CACHED_CONTACTS} contacts are cached, the partitions of the least recently read tenants
+ * are evicted, so that a few large tenants cannot push out every other tenant. A partition that is larger than this
+ * limit on its own is kept while it is being used.
+ */
+@ApplicationScoped
+public class ContactCache {
+
+  static final long MAX_CACHED_CONTACTS = 2000000;
+
+  static final int INITIAL_CAPACITY = 1024;
+
+  private static final Logger logger = LoggerFactory.getLogger(ContactCache.class);
+
+  @Resource
+  private ManagedExecutorService executor;
+
+  @Inject
+  private ContactShardRouter router;
+
+  private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Starts loading the tenant's partition if it is not cached. The returned columns remain usable even if the
+   * partition is evicted while they are read.
+   *
+   * @return Every contact of the tenant, or null if they are not loaded yet.
+   */
+  ContactColumns getColumns(final String tenant) {
+    Partition partition = partitions.get(tenant);
+    if (partition == null) {
+      final Partition created = new Partition(tenant);
+      partition = partitions.putIfAbsent(tenant, created);
+      if (partition == null) {
+        partition = created;
+        executor.submit(() -> load(created));
+      }
+    }
+    partition.lastUsed = System.nanoTime();
+    return (partition.ready ? partition.columns : null);
+  }
+
+  /**
+   * Stores a contact that has been created or updated, unless a newer revision of it is already cached.
+   */
+  public void put(final Contact contact) {
+    final Partition partition = partitions.get(contact.getTenant());
+    if (partition != null) {
+      partition.columns.put(contact);
+    }
+  }
+
+  public void putAll(final Collection<Contact> contacts) {
+    for (final Contact contact : contacts) {
+      put(contact);
+    }
+  }
+
+  public void remove(final String tenant, final long id) {
+    final Partition partition = partitions.get(tenant);
+    if (partition != null) {
+      if (partition.ready) {
+        partition.columns.remove(id);
+        return;
+      }
+      // Under the lock that the loader holds while it adds a contact, so that it cannot add this one afterwards.
+      synchronized (partition) {
+        if (!partition.ready) {
+          partition.deletedWhileLoading.add(id);
+        }
+        partition.columns.remove(id);
+      }
+    }
+  }
+
+  /**
+   * Applies a change made on another server.
+   */
+  public void apply(final ContactChange change) {
+    if (change.getType() == OperationType.DELETE) {
+      remove(change.getTenant(), change.getId());
+    }
+    else {
+      put(change.getOperation().getContact());
+    }
+  }
+
+  /**
+   * Starts loading the tenant's partition if it is not cached.
+   *
+   * @return Totals over every contact of the tenant, or null if they are not loaded yet.
+   */
+  public ContactAggregates getAggregates(final String tenant) {
+    final ContactColumns columns = getColumns(tenant);
+    return (columns != null ? columns.getAggregates() : null);
+  }
+
+  /**
+   * @return The changes to the {@link #getAggregates(String) aggregates} of every loaded tenant since the last call, by
+   *         tenant. Tenants without changes are omitted.
+   */
+  public Map<String, ContactAggregatesDelta> takeAggregatesDeltas() {
+    final Map<String, ContactAggregatesDelta> deltas = new HashMap<>();
+    for (final Partition partition : partitions.values()) {
+      if (partition.ready) {
+        final ContactAggregatesDelta delta = partition.columns.takeAggregatesDelta();
+        if (delta != null) {
+          deltas.put(partition.tenant, delta);
+        }
+      }
+    }
+    return deltas;
+  }
+
+  /**
+   * @return The number of cached contacts of the tenant, or -1 if the tenant's partition is not loaded.
+   */
+  public long getCachedContacts(final String tenant) {
+    final Partition partition = partitions.get(tenant);
+    return (partition != null && partition.ready ? partition.columns.size() : -1);
+  }
+
+  public CacheMetrics getMetrics() {
+    long contacts = 0;
+    long offHeapBytes = 0;
+    long heapBytes = 0;
+    for (final Partition partition : partitions.values()) {
+      contacts += partition.columns.size();
+      offHeapBytes += partition.columns.getOffHeapBytes();
+      heapBytes += partition.columns.getHeapBytes();
+    }
+    return new CacheMetrics(partitions.size(), contacts, offHeapBytes, heapBytes, evictions.get());
+  }
+
+  private void load(final Partition partition) {
+    final long start = System.currentTimeMillis();
+    try {
+      router.forEachStoredContact(partition.tenant, contact -> {
+        synchronized (partition) {
+          if (!partition.deletedWhileLoading.contains(contact.getId())) {
+            partition.columns.put(contact);
+          }
+        }
+      });
+      // Clients fetch the aggregates of the loaded contacts, rather than being sent them as a delta.
+      partition.columns.takeAggregatesDelta();
+      synchronized (partition) {
+        partition.ready = true;
+        partition.deletedWhileLoading.clear();
+      }
+      logger.info("Cached " + partition.columns.size() + " contacts of tenant " + partition.tenant + " in "
+              + (System.currentTimeMillis() - start) + " ms");
+      evict(partition);
+    }
+    catch (final RuntimeException e) {
+      // Reads continue to be served by the shards, and the next read tries again.
+      logger.error("Could not load the contacts of tenant " + partition.tenant, e);
+      partitions.remove(partition.tenant, partition);
+    }
+  }
+
+  /**
+   * Evicts the least recently used partitions, other than the given one, until the cache is within its limit.
+   */
+  private synchronized void evict(final Partition keep) {
+    long cached = 0;
+    final List<Partition> candidates = new ArrayList<>();
+    for (final Partition partition : partitions.values()) {
+      cached += partition.columns.size();
+      if (partition != keep && partition.ready) {
+        candidates.add(partition);
+      }
+    }
+    candidates.sort(Comparator.comparingLong(partition -> partition.lastUsed));
+    for (final Partition partition : candidates) {
+      if (cached <= MAX_CACHED_CONTACTS) {
+        break;
+      }
+      if (partitions.remove(partition.tenant, partition)) {
+        cached -= partition.columns.size();
+        evictions.incrementAndGet();
+        logger.info("Evicted the cached contacts of tenant " + partition.tenant);
+      }
+    }
+  }
+
+  /**
+   * The cached contacts of one tenant.
+   */
+  private static class Partition {
+
+    private final String tenant;
+    private final ContactColumns columns = new ContactColumns(INITIAL_CAPACITY);
+    /**
+     * Guarded by the partition itself.
+     */
+    private final Set<Long> deletedWhileLoading = new HashSet<>();
+    private volatile boolean ready;
+    private volatile long lastUsed;
+
+    private Partition(final String tenant) {
+      this.tenant = tenant;
+    }
+
+  }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactOperation;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+
+/**
+ * A server-side CDI event fired by the {@link ContactEventPublisher} for every {@link Contact} change written on this
+ * server. Observers are notified after the transaction commits, and deliver the change to clients (see
+ * {@link ContactEventDispatcher}) and forward it to other servers. It is not fired for changes received from other
+ * servers (see {@link ContactEventDispatcher#dispatch(ContactChange)}), so they are not echoed back.
+ */
+public class ContactChange {
+
+  private final OperationType type;
+  private final String tenant;
+  private final long id;
+  private final long revision;
+  private final ContactOperation operation;
+
+  public ContactChange(final OperationType type, final String tenant, final long id, final long revision,
+          final ContactOperation operation) {
+    this.type = type;
+    this.tenant = tenant;
+    this.id = id;
+    this.revision = revision;
+    this.operation = operation;
+  }
+
+  public OperationType getType() {
+    return type;
+  }
+
+  /**
+   * The tenant (see {@link Tenants}) of the changed {@link Contact}. Only clients of this tenant are sent the change.
+   */
+  public String getTenant() {
+    return tenant;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * The {@link ContactRevisions revision} of the change, issued by the contact's shard database. Later changes to the
+   * same {@link Contact}, made on any server, have greater revisions.
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * The created or updated {@link Contact}, or null for a delete.
+   */
+  public ContactOperation getOperation() {
+    return operation;
+  }
+
+}
@@ -0,0 +1,555 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactAggregatesDelta;
+
+/**
+ * <p>
+ * An in-memory table of {@link Contact Contacts} whose field data is kept outside the Java heap, so that caching
+ * millions of contacts does not lengthen garbage collection pauses. Each field is a column in a direct
+ * {@link ByteBuffer}: ids and revisions as longs, birthdays as epoch days, and strings as UTF-8 bytes appended to a
+ * per-field data buffer, with an offset and length per row. The only heap structures are a sorted array of ids with the
+ * row of each (used both to find a contact by id and to scan contacts in id order) and a free list of rows.
+ *
+ * <p>
+ * Replaced and removed strings leave garbage in their data buffer, which is compacted once it is more than half of the
+ * buffer. Every column is limited to 2 GB.
+ *
+ * <p>
+ * Every write also updates a {@link ContactTally} of the stored contacts, so that {@link #getAggregates()} does not
+ * read any rows, and collects the changes to it until they are taken with {@link #takeAggregatesDelta()}.
+ *
+ * <p>
+ * This class is thread-safe: reads run concurrently and writes are exclusive.
+ */
+final class ContactColumns {
+
+  static final int NO_BIRTHDAY = Integer.MIN_VALUE;
+
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+  private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+  private static final int FULLNAME = 0;
+  private static final int NICKNAME = 1;
+  private static final int PHONENUMBER = 2;
+  private static final int EMAIL = 3;
+  private static final int NOTES = 4;
+
+  private static final String[] FIELD_NAMES = { "fullname", "nickname", "phonenumber", "email", "notes" };
+
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private ByteBuffer ids;
+
+  private ByteBuffer revisions;
+
+  private ByteBuffer birthdays;
+
+  private final StringColumn[] strings = new StringColumn[FIELD_NAMES.length];
+
+  private int rowCapacity;
+
+  /**
+   * Rows below this have been used. Removed rows are reused from {@link #freeRows} first.
+   */
+  private int rowLimit;
+
+  private int[] freeRows = new int[16];
+
+  private int freeCount;
+
+  private long[] sortedIds;
+
+  private int[] sortedRows;
+
+  private int size;
+
+  private final ContactTally tally = new ContactTally();
+
+  /**
+   * Changes to {@link #tally} since the last {@link ContactAggregatesDelta}.
+   */
+  private ContactTally pendingTally = new ContactTally();
+
+  /**
+   * The sequence number of the last {@link ContactAggregatesDelta}.
+   */
+  private long aggregatesSequence;
+
+  ContactColumns(final int initialCapacity) {
+    rowCapacity = Math.max(16, initialCapacity);
+    ids = ByteBuffer.allocateDirect(rowCapacity * 8);
+    revisions = ByteBuffer.allocateDirect(rowCapacity * 8);
+    birthdays = ByteBuffer.allocateDirect(rowCapacity * 4);
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = new StringColumn(rowCapacity);
+    }
+    sortedIds = new long[rowCapacity];
+    sortedRows = new int[rowCapacity];
+  }
+
+  /**
+   * Inserts or replaces a contact, unless a newer revision of it is already stored.
+   *
+   * @return True iff the contact was stored.
+   */
+  boolean put(final Contact contact) {
+    lock.writeLock().lock();
+    try {
+      final int position = Arrays.binarySearch(sortedIds, 0, size, contact.getId());
+      if (position >= 0) {
+        final int row = sortedRows[position];
+        if (contact.getLastModified() < revisions.getLong(row * 8)) {
+          return false;
+        }
+        count(row, -1);
+        write(row, contact);
+      }
+      else {
+        final int row = allocateRow();
+        write(row, contact);
+        insertSorted(-position - 1, contact.getId(), row);
+      }
+      count(contact.getPhonenumber(), contact.getEmail(), toEpochDay(contact.getBirthday()), 1);
+      return true;
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return True iff a contact with the given id was removed.
+   */
+  boolean remove(final long id) {
+    lock.writeLock().lock();
+    try {
+      final int position = Arrays.binarySearch(sortedIds, 0, size, id);
+      if (position < 0) {
+        return false;
+      }
+      final int row = sortedRows[position];
+      count(row, -1);
+      for (final StringColumn column : strings) {
+        column.set(row, null);
+      }
+      if (freeCount == freeRows.length) {
+        freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+      }
+      freeRows[freeCount++] = row;
+      System.arraycopy(sortedIds, position + 1, sortedIds, position, size - position - 1);
+      System.arraycopy(sortedRows, position + 1, sortedRows, position, size - position - 1);
+      size--;
+      return true;
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return A new {@link Contact} read from the columns, or null if there is none with the given id.
+   */
+  Contact get(final long id) {
+    lock.readLock().lock();
+    try {
+      final int position = Arrays.binarySearch(sortedIds, 0, size, id);
+      return (position < 0 ? null : read(sortedRows[position]));
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return Up to {@code max} contacts with ids greater than {@code afterId}, in id order.
+   */
+  List<Contact> page(final long afterId, final int max) {
+    lock.readLock().lock();
+    try {
+      final int from = firstPositionAfter(afterId);
+      final int to = (int) Math.min(size, (long) from + max);
+      final List<Contact> contacts = new ArrayList<>(Math.max(0, to - from));
+      for (int i = from; i < to; i++) {
+        contacts.add(read(sortedRows[i]));
+      }
+      return contacts;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Writes up to {@code max} contacts with ids greater than {@code afterId}, in id order, as JSON objects (one per
+   * line) encoded directly from the columns. The output is buffered in memory, so that a slow reader of the JSON does
+   * not hold the lock.
+   *
+   * @return The id of the last contact written, or {@code afterId} if there were none.
+   */
+  long writeJson(final long afterId, final int max, final ByteArrayOutputStream out) {
+    lock.readLock().lock();
+    try {
+      final int from = firstPositionAfter(afterId);
+      final int to = (int) Math.min(size, (long) from + max);
+      long lastId = afterId;
+      for (int i = from; i < to; i++) {
+        writeJson(sortedRows[i], out);
+        lastId = sortedIds[i];
+      }
+      return lastId;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return The totals as of the last {@link #takeAggregatesDelta() delta}, so that the deltas that follow can be
+   *         applied to them.
+   */
+  ContactAggregates getAggregates() {
+    lock.readLock().lock();
+    try {
+      final ContactTally published = tally.copy();
+      published.subtract(pendingTally);
+      return published.toAggregates(aggregatesSequence);
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return The changes to the {@link #getAggregates() totals} since the last delta, or null if there are none.
+   */
+  ContactAggregatesDelta takeAggregatesDelta() {
+    lock.writeLock().lock();
+    try {
+      if (pendingTally.isEmpty()) {
+        return null;
+      }
+      final ContactAggregatesDelta delta = pendingTally.toDelta(++aggregatesSequence);
+      pendingTally = new ContactTally();
+      return delta;
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return The capacity of the direct buffers.
+   */
+  long getOffHeapBytes() {
+    lock.readLock().lock();
+    try {
+      long bytes = ids.capacity() + revisions.capacity() + birthdays.capacity();
+      for (final StringColumn column : strings) {
+        bytes += column.refs.capacity() + column.data.capacity();
+      }
+      return bytes;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return The size of the primitive arrays indexing the columns.
+   */
+  long getHeapBytes() {
+    lock.readLock().lock();
+    try {
+      return sortedIds.length * 8L + sortedRows.length * 4L + freeRows.length * 4L;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  static int toEpochDay(final Date date) {
+    return (date == null ? NO_BIRTHDAY : (int) Math.floorDiv(date.getTime(), MILLIS_PER_DAY));
+  }
+
+  static Date fromEpochDay(final int epochDay) {
+    return (epochDay == NO_BIRTHDAY ? null : new Date(epochDay * MILLIS_PER_DAY));
+  }
+
+  /**
+   * Counts or uncounts the stored contact in the given row.
+   */
+  private void count(final int row, final int sign) {
+    count(strings[PHONENUMBER].get(row), strings[EMAIL].get(row), birthdays.getInt(row * 4), sign);
+  }
+
+  private void count(final String phonenumber, final String email, final int birthday, final int sign) {
+    tally.add(phonenumber, email, birthday, sign);
+    pendingTally.add(phonenumber, email, birthday, sign);
+  }
+
+  private int firstPositionAfter(final long afterId) {
+    final int position = Arrays.binarySearch(sortedIds, 0, size, afterId);
+    return (position >= 0 ? position + 1 : -position - 1);
+  }
+
+  private void write(final int row, final Contact contact) {
+    ids.putLong(row * 8, contact.getId());
+    revisions.putLong(row * 8, contact.getLastModified());
+    birthdays.putInt(row * 4, toEpochDay(contact.getBirthday()));
+    strings[FULLNAME].set(row, contact.getFullname());
+    strings[NICKNAME].set(row, contact.getNickname());
+    strings[PHONENUMBER].set(row, contact.getPhonenumber());
+    strings[EMAIL].set(row, contact.getEmail());
+    strings[NOTES].set(row, contact.getNotes());
+  }
+
+  private Contact read(final int row) {
+    final Contact contact = new Contact();
+    contact.setId(ids.getLong(row * 8));
+    contact.setLastModified(revisions.getLong(row * 8));
+    final int birthday = birthdays.getInt(row * 4);
+    contact.setBirthday(fromEpochDay(birthday));
+    contact.setBirthdayOfYear(birthday == NO_BIRTHDAY ? null : Birthdays.dayOfYear(LocalDate.ofEpochDay(birthday)));
+    contact.setFullname(strings[FULLNAME].get(row));
+    contact.setNickname(strings[NICKNAME].get(row));
+    contact.setPhonenumber(strings[PHONENUMBER].get(row));
+    contact.setEmail(strings[EMAIL].get(row));
+    contact.setNotes(strings[NOTES].get(row));
+    return contact;
+  }
+
+  private void writeJson(final int row, final ByteArrayOutputStream out) {
+    writeAscii(out, "{\"id\":" + ids.getLong(row * 8));
+    for (int i = 0; i < strings.length; i++) {
+      writeAscii(out, ",\"" + FIELD_NAMES[i] + "\":");
+      strings[i].writeJson(row, out);
+    }
+    final int birthday = birthdays.getInt(row * 4);
+    writeAscii(out, ",\"birthday\":" + (birthday == NO_BIRTHDAY ? "null" : "\"" + LocalDate.ofEpochDay(birthday) + "\""));
+    writeAscii(out, ",\"lastModified\":" + revisions.getLong(row * 8) + "}\n");
+  }
+
+  private static void writeAscii(final ByteArrayOutputStream out, final String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private int allocateRow() {
+    if (freeCount > 0) {
+      return freeRows[--freeCount];
+    }
+    if (rowLimit == rowCapacity) {
+      final int capacity = grow(rowCapacity, rowCapacity + 1, MAX_BUFFER_SIZE / 8);
+      ids = copy(ids, capacity * 8, rowLimit * 8);
+      revisions = copy(revisions, capacity * 8, rowLimit * 8);
+      birthdays = copy(birthdays, capacity * 4, rowLimit * 4);
+      for (final StringColumn column : strings) {
+        column.growRows(capacity, rowLimit);
+      }
+      rowCapacity = capacity;
+    }
+    return rowLimit++;
+  }
+
+  private void insertSorted(final int position, final long id, final int row) {
+    if (size == sortedIds.length) {
+      final int capacity = grow(size, size + 1, Integer.MAX_VALUE - 8);
+      sortedIds = Arrays.copyOf(sortedIds, capacity);
+      sortedRows = Arrays.copyOf(sortedRows, capacity);
+    }
+    // Ids are mostly allocated in increasing order, so this usually appends without moving anything.
+    System.arraycopy(sortedIds, position, sortedIds, position + 1, size - position);
+    System.arraycopy(sortedRows, position, sortedRows, position + 1, size - position);
+    sortedIds[position] = id;
+    sortedRows[position] = row;
+    size++;
+  }
+
+  private static int grow(final int current, final int needed, final int max) {
+    if (needed > max) {
+      throw new IllegalStateException("The contact cache is full");
+    }
+    return (int) Math.min(max, Math.max((long) needed, current * 2L));
+  }
+
+  /**
+   * @return A new direct buffer of the given capacity, starting with the first {@code used} bytes of the given buffer.
+   */
+  private static ByteBuffer copy(final ByteBuffer buffer, final int capacity, final int used) {
+    final ByteBuffer copy = ByteBuffer.allocateDirect(capacity);
+    final ByteBuffer source = buffer.duplicate();
+    source.position(0);
+    source.limit(used);
+    copy.put(source);
+    copy.clear();
+    return copy;
+  }
+
+  /**
+   * One string field: an offset and length for each row, and the UTF-8 bytes of the values. A length of -1 is null.
+   */
+  private static final class StringColumn {
+
+    /**
+     * Compaction is not worthwhile for smaller buffers.
+     */
+    private static final int MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private ByteBuffer refs;
+    private ByteBuffer data;
+    private int dataSize;
+    private int garbage;
+
+    private StringColumn(final int rows) {
+      refs = ByteBuffer.allocateDirect(rows * 8);
+      data = ByteBuffer.allocateDirect(rows * 16);
+    }
+
+    private void growRows(final int rows, final int used) {
+      refs = copy(refs, rows * 8, used * 8);
+    }
+
+    private void set(final int row, final String value) {
+      final int oldLength = refs.getInt(row * 8 + 4);
+      if (oldLength > 0) {
+        garbage += oldLength;
+      }
+      if (value == null) {
+        refs.putInt(row * 8, 0);
+        refs.putInt(row * 8 + 4, -1);
+        return;
+      }
+
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      if (dataSize + bytes.length > data.capacity()) {
+        if (garbage > dataSize / 2 && dataSize > MIN_COMPACTION_SIZE) {
+          // The row being set still references its old value, which is garbage.
+          refs.putInt(row * 8 + 4, -1);
+          compact();
+        }
+        if (dataSize + bytes.length > data.capacity()) {
+          data = copy(data, grow(data.capacity(), dataSize + bytes.length, MAX_BUFFER_SIZE), dataSize);
+        }
+      }
+      final ByteBuffer target = data.duplicate();
+      target.position(dataSize);
+      target.put(bytes);
+      refs.putInt(row * 8, dataSize);
+      refs.putInt(row * 8 + 4, bytes.length);
+      dataSize += bytes.length;
+    }
+
+    private String get(final int row) {
+      final int length = refs.getInt(row * 8 + 4);
+      if (length < 0) {
+        return null;
+      }
+      final byte[] bytes = new byte[length];
+      final ByteBuffer source = data.duplicate();
+      source.position(refs.getInt(row * 8));
+      source.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the value as a JSON string, escaping the UTF-8 bytes in place. Bytes of multi-byte characters are never
+     * quotes, backslashes, or control characters, so they are copied unchanged.
+     */
+    private void writeJson(final int row, final ByteArrayOutputStream out) {
+      final int length = refs.getInt(row * 8 + 4);
+      if (length < 0) {
+        writeAscii(out, "null");
+        return;
+      }
+      final int offset = refs.getInt(row * 8);
+      out.write('"');
+      for (int i = offset; i < offset + length; i++) {
+        final byte b = data.get(i);
+        if (b == '"' || b == '\\') {
+          out.write('\\');
+          out.write(b);
+        }
+        else if (b >= 0 && b < 0x20) {
+          out.write('\\');
+          out.write('u');
+          out.write('0');
+          out.write('0');
+          out.write(HEX[b >> 4]);
+          out.write(HEX[b & 0xf]);
+        }
+        else {
+          out.write(b);
+        }
+      }
+      out.write('"');
+    }
+
+    /**
+     * Copies every live value to the start of a new buffer, in row order.
+     */
+    private void compact() {
+      final ByteBuffer compacted = ByteBuffer.allocateDirect(data.capacity());
+      final ByteBuffer source = data.duplicate();
+      final int rows = refs.capacity() / 8;
+      for (int row = 0; row < rows; row++) {
+        final int length = refs.getInt(row * 8 + 4);
+        if (length >= 0) {
+          final int offset = refs.getInt(row * 8);
+          source.limit(offset + length);
+          source.position(offset);
+          refs.putInt(row * 8, compacted.position());
+          compacted.put(source);
+          source.limit(source.capacity());
+        }
+      }
+      dataSize = compacted.position();
+      garbage = 0;
+      compacted.clear();
+      data = compacted;
+    }
+
+  }
+
+}
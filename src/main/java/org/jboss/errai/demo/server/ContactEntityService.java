@@ -16,46 +16,553 @@
 
 package org.jboss.errai.demo.server;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContexts;
+import javax.persistence.TemporalType;
 
 import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactBatchResult;
 
 /**
- * A service that provides transaction boundaries around CRUD operations on {@link Contact Contacts}.
+ * <p>
+ * A service that provides transaction boundaries around CRUD operations on {@link Contact Contacts} in one shard
+ * database. Every method takes the index of the shard to operate on, and the tenant (see {@link Tenants}) whose
+ * contacts it may read or write. Contacts of other tenants are treated as if they did not exist. Callers should use
+ * the {@link ContactShardRouter}, which decides which shard holds a contact.
+ *
+ * <p>
+ * Queries that are run on every shard are {@link Asynchronous}, so the {@link ContactShardRouter} can run them in
+ * parallel.
+ *
+ * <p>
+ * Every write transaction takes one revision from the {@link ContactRevisionCounter} of its shard. The revision is
+ * issued in a short transaction of its own, which records it as a {@link PendingContactRevision} until the write
+ * commits, so concurrent writes to a shard do not wait for each other's commits (see {@link ContactRevisions}). Updates
+ * and deletes lock the contacts they write before they take the revision, so the revisions of a contact increase in the
+ * order in which its writes commit.
  */
 @Stateless
 @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+@PersistenceContexts({
+  @PersistenceContext(name = "persistence/shard0", unitName = "forge-default"),
+  @PersistenceContext(name = "persistence/shard1", unitName = "contact-shard-1")
+})
 public class ContactEntityService {
 
-  @PersistenceContext(unitName = "forge-default")
-  private EntityManager em;
+  /**
+   * The number of shard databases. Each has a persistence context reference named {@code persistence/shard<index>}.
+   * Contacts are assigned to shards by id, so changing this requires moving existing contacts.
+   */
+  public static final int SHARD_COUNT = 2;
+
+  /**
+   * During bulk imports, the persistence context is flushed and cleared after this many contacts, so that it does not
+   * grow with the size of the import. This matches the JDBC batch size of the persistence units.
+   */
+  static final int IMPORT_FLUSH_INTERVAL = 50;
+
+  /**
+   * Loaded entities are not snapshotted for dirty checking.
+   */
+  private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
+  /**
+   * Writes every field a client can change in one statement, without loading the contact first.
+   */
+  private static final String UPDATE_QUERY = "UPDATE Contact c SET c.fullname = :fullname, c.nickname = :nickname, "
+          + "c.phonenumber = :phonenumber, c.email = :email, c.birthday = :birthday, c.notes = :notes, "
+          + "c.birthdayOfYear = :birthdayOfYear WHERE c.id = :id AND c.tenant = :tenant";
+
+  /**
+   * Sets the revision of contacts that were updated, and so locked, earlier in the transaction.
+   */
+  private static final String REVISION_QUERY = "UPDATE Contact c SET c.lastModified = :revision WHERE c.id IN :ids";
+
+  private static final String DELETE_QUERY = "DELETE FROM Contact c WHERE c.id = :id AND c.tenant = :tenant";
+
+  /**
+   * Uses the index on the tenant and {@link Contact#getBirthdayOfYear() day of the year}.
+   */
+  private static final String BIRTHDAYS_QUERY = "SELECT c FROM Contact c WHERE c.tenant = :tenant "
+          + "AND c.birthdayOfYear BETWEEN :from AND :to ORDER BY c.birthdayOfYear, c.id";
+
+  /**
+   * Uses the index on the {@link Contact#getBirthdayOfYear() day of the year} and id, across all tenants.
+   */
+  private static final String BIRTHDAYS_ON_QUERY = "SELECT c FROM Contact c WHERE c.birthdayOfYear = :day "
+          + "AND c.id > :after ORDER BY c.id";
+
+  @Resource
+  private SessionContext context;
+
+  private final EntityManager[] shards;
+
+  /**
+   * Issues revisions in transactions of their own. This is the container's view of this bean, or the bean itself if it
+   * was created without a container.
+   */
+  private ContactEntityService revisionIssuer;
+
+  public ContactEntityService() {
+    shards = new EntityManager[SHARD_COUNT];
+  }
+
+  /**
+   * Creates a service without a container, as the persistence benchmark does. It uses the entity managers in the given
+   * array, which the caller may replace between transactions, and issues revisions in the caller's transaction.
+   */
+  ContactEntityService(final EntityManager[] shards) {
+    this.shards = shards;
+    revisionIssuer = this;
+  }
+
+  @PostConstruct
+  private void init() {
+    for (int i = 0; i < SHARD_COUNT; i++) {
+      shards[i] = (EntityManager) context.lookup("persistence/shard" + i);
+    }
+    revisionIssuer = context.getBusinessObject(ContactEntityService.class);
+  }
+
+  /**
+   * @param max
+   *          The maximum number of contacts to return, or a negative number for all contacts.
+   * @return Contacts in the given shard in id order.
+   */
+  @Asynchronous
+  public Future<List<Contact>> getContacts(final int shard, final String tenant, final int max) {
+    return new AsyncResult<>(shards[shard].createNamedQuery(Contact.TENANT_CONTACTS_QUERY, Contact.class)
+            .setParameter("tenant", tenant)
+            .setMaxResults(max < 0 ? Integer.MAX_VALUE : max)
+            .getResultList());
+  }
+
+  /**
+   * Reads one page of a keyset cursor over the given shard. Each page is read in its own short, read-only transaction,
+   * so a long-running export holds no locks or connections between pages, and the persistence context is discarded
+   * after every page.
+   *
+   * @return Up to {@code max} contacts in the given shard with ids greater than {@code afterId}, in id order.
+   */
+  public List<Contact> getContactsAfter(final int shard, final String tenant, final long afterId, final int max) {
+    return shards[shard].createNamedQuery(Contact.CONTACTS_AFTER_QUERY, Contact.class)
+            .setParameter("tenant", tenant)
+            .setParameter("after", afterId)
+            .setMaxResults(max)
+            .setHint(READ_ONLY_HINT, true)
+            .getResultList();
+  }
+
+  /**
+   * @return Contacts of the tenant in the given shard whose {@link Contact#getBirthdayOfYear() birthdays} fall between
+   *         the given days of the year, inclusive, in order of the day of the year.
+   */
+  @Asynchronous
+  public Future<List<Contact>> getBirthdays(final int shard, final String tenant, final int fromDay, final int toDay) {
+    return new AsyncResult<>(shards[shard].createQuery(BIRTHDAYS_QUERY, Contact.class)
+            .setParameter("tenant", tenant)
+            .setParameter("from", fromDay)
+            .setParameter("to", toDay)
+            .setHint(READ_ONLY_HINT, true)
+            .getResultList());
+  }
+
+  /**
+   * Reads one page of a keyset cursor over the contacts of every tenant in the given shard whose birthday falls on the
+   * given day of the year. Like {@link #getContactsAfter(int, String, long, int)}, each page is read in its own
+   * transaction.
+   *
+   * @return Up to {@code max} contacts with ids greater than {@code afterId}, in id order.
+   */
+  public List<Contact> getBirthdaysOn(final int shard, final int day, final long afterId, final int max) {
+    return shards[shard].createQuery(BIRTHDAYS_ON_QUERY, Contact.class)
+            .setParameter("day", day)
+            .setParameter("after", afterId)
+            .setMaxResults(max)
+            .setHint(READ_ONLY_HINT, true)
+            .getResultList();
+  }
+
+  /**
+   * @return The contact of the tenant with the given id in the given shard, or null if there is none.
+   */
+  public Contact find(final int shard, final String tenant, final long id) {
+    final Contact contact = shards[shard].find(Contact.class, id);
+    return (contact != null && tenant.equals(contact.getTenant()) ? contact : null);
+  }
+
+  /**
+   * @return Contacts in the given shard created or updated after the given revision, in id order.
+   */
+  @Asynchronous
+  public Future<List<Contact>> getChangedContacts(final int shard, final String tenant, final long since) {
+    return new AsyncResult<>(shards[shard].createNamedQuery(Contact.CHANGED_CONTACTS_QUERY, Contact.class)
+            .setParameter("tenant", tenant)
+            .setParameter("since", since)
+            .getResultList());
+  }
+
+  /**
+   * @return Ids of contacts in the given shard deleted after the given revision.
+   */
+  @Asynchronous
+  public Future<List<Long>> getDeletedIds(final int shard, final String tenant, final long since) {
+    return new AsyncResult<>(shards[shard].createNamedQuery(ContactTombstone.DELETED_SINCE_QUERY, Long.class)
+            .setParameter("tenant", tenant)
+            .setParameter("since", since)
+            .getResultList());
+  }
+
+  /**
+   * @return The first of {@code count} consecutive counter values reserved in the given shard. These are unique within
+   *         the shard, and are turned into globally unique ids by the {@link ContactShardRouter}.
+   */
+  public long reserveIds(final int shard, final int count) {
+    final EntityManager em = shards[shard];
+    ContactIdCounter counter = em.find(ContactIdCounter.class, ContactIdCounter.ROW_ID, LockModeType.PESSIMISTIC_WRITE);
+    if (counter == null) {
+      // Counter values start at 1, because an id of 0 marks an unsaved contact.
+      counter = new ContactIdCounter(1);
+      em.persist(counter);
+    }
+    final long first = counter.getNext();
+    counter.setNext(first + count);
+
+    return first;
+  }
+
+  /**
+   * @return The revision counter of the given shard, or null if it has not been created. It is read without a lock, so
+   *         it holds the last revision issued, whether or not its write has committed.
+   */
+  public ContactRevisionCounter getRevisionCounter(final int shard) {
+    return shards[shard].find(ContactRevisionCounter.class, ContactRevisionCounter.ROW_ID);
+  }
+
+  /**
+   * Advances the revision counter of the given shard to at least the given revision, creating it if there is none.
+   *
+   * @return The revision counter's new value.
+   */
+  public long advanceRevision(final int shard, final long atLeast) {
+    final ContactRevisionCounter counter = lockRevisionCounter(shard);
+    counter.setLast(Math.max(counter.getLast(), atLeast));
+    return counter.getLast();
+  }
+
+  /**
+   * Issues a revision for a write transaction on the given shard, and records it as pending until that transaction
+   * releases it. Called in a transaction of its own, so the counter is locked only while the revision is issued.
+   */
+  public long issueRevision(final int shard) {
+    final ContactRevisionCounter counter = lockRevisionCounter(shard);
+    final long now = System.currentTimeMillis();
+    final long revision = Math.max(counter.getLast() + 1, now);
+    counter.setLast(revision);
+    shards[shard].persist(new PendingContactRevision(revision, now));
+    return revision;
+  }
 
-  public List<Contact> getAllContacts() {
-    return em.createNamedQuery(Contact.ALL_CONTACTS_QUERY, Contact.class).getResultList();
+  /**
+   * Releases a pending revision whose write transaction failed.
+   */
+  public void releaseRevision(final int shard, final long revision) {
+    shards[shard].createNamedQuery(PendingContactRevision.RELEASE_QUERY).setParameter("revision", revision)
+            .executeUpdate();
   }
 
-  public void create(final Contact newContact) {
-    em.persist(newContact);
+  /**
+   * @return The lowest revision of the given shard whose write transaction has not yet committed, or null if there is
+   *         none.
+   */
+  public Long getOldestPendingRevision(final int shard) {
+    return shards[shard].createNamedQuery(PendingContactRevision.OLDEST_QUERY, Long.class).getSingleResult();
   }
 
-  public void update(final Contact contact) {
-    em.merge(contact);
+  /**
+   * Deletes the pending revisions issued before the given time, whose write transactions can no longer commit.
+   *
+   * @return The number of pending revisions deleted.
+   */
+  public int purgePendingRevisions(final int shard, final long before) {
+    return shards[shard].createNamedQuery(PendingContactRevision.PURGE_QUERY).setParameter("before", before)
+            .executeUpdate();
   }
 
-  public void delete(final Long id) {
-    final Contact contact = em.find(Contact.class, id);
-    if (contact != null) {
-      em.remove(contact);
-    } else {
+  /**
+   * @param newContact
+   *          A contact to which the {@link ContactShardRouter} has assigned an id in the given shard.
+   */
+  public void create(final int shard, final String tenant, final Contact newContact) {
+    write(shard, revision -> persist(shard, tenant, newContact, revision));
+  }
+
+  /**
+   * @throws IllegalArgumentException
+   *           If the tenant has no contact with the id of the given contact.
+   */
+  public void update(final int shard, final String tenant, final Contact contact) {
+    if (!tryUpdate(shard, tenant, contact)) {
+      throw new IllegalArgumentException(
+              "The given id, " + contact.getId() + ", was not a key for any " + Contact.class.getSimpleName());
+    }
+    write(shard, revision -> setRevision(shard, Collections.singletonList(contact), revision));
+  }
+
+  /**
+   * @return The revision of the delete.
+   * @throws IllegalArgumentException
+   *           If the tenant has no contact with the given id.
+   */
+  public long delete(final int shard, final String tenant, final Long id) {
+    if (!tryDelete(shard, tenant, id)) {
       throw new IllegalArgumentException(
               "The given id, " + id + ", was not a key for any " + Contact.class.getSimpleName());
     }
+    return write(shard, revision -> shards[shard].persist(new ContactTombstone(id, tenant, revision)));
+  }
+
+  /**
+   * Creates the given contacts, to which the {@link ContactShardRouter} has assigned ids in the given shard, in one
+   * transaction.
+   *
+   * @return The number of contacts created.
+   */
+  @Asynchronous
+  public Future<Integer> importContacts(final int shard, final String tenant, final List<Contact> newContacts) {
+    final EntityManager em = shards[shard];
+    write(shard, revision -> {
+      for (int i = 0; i < newContacts.size(); i++) {
+        persist(shard, tenant, newContacts.get(i), revision);
+        if ((i + 1) % IMPORT_FLUSH_INTERVAL == 0) {
+          em.flush();
+          em.clear();
+        }
+      }
+    });
+
+    return new AsyncResult<>(newContacts.size());
+  }
+
+  /**
+   * Applies every write in the batch, all of which must belong to the given shard, in one transaction and at one
+   * revision. Updates and deletes of contacts that no longer exist are skipped.
+   * <p>
+   * If the batch has an idempotency key, its outcome is recorded in the same transaction (see
+   * {@link ContactBatchRecord}). If it was already applied to this shard, nothing is written; the ids and revision of
+   * the first attempt are set on the batch's contacts, and its outcome is returned.
+   *
+   * @return The ids of the contacts created, the ids of contacts that were to be updated or deleted but do not exist,
+   *         and the revision of each applied delete.
+   */
+  @Asynchronous
+  public Future<AppliedBatch> applyBatch(final int shard, final String tenant, final ContactBatch batch) {
+    final String batchKey = (batch.getIdempotencyKey() != null ? tenant + "/" + batch.getIdempotencyKey() : null);
+    if (batchKey != null) {
+      final ContactBatchRecord record = shards[shard].find(ContactBatchRecord.class, batchKey);
+      if (record != null) {
+        return new AsyncResult<>(replay(tenant, batch, record));
+      }
+    }
+
+    final List<Long> missing = new ArrayList<>();
+    final List<Contact> updated = new ArrayList<>();
+    for (final Contact contact : batch.getUpdated()) {
+      if (tryUpdate(shard, tenant, contact)) {
+        updated.add(contact);
+      }
+      else {
+        missing.add(contact.getId());
+      }
+    }
+    final List<Long> deletedIds = new ArrayList<>();
+    for (final Long id : batch.getDeleted()) {
+      if (tryDelete(shard, tenant, id)) {
+        deletedIds.add(id);
+      }
+      else {
+        missing.add(id);
+      }
+    }
+    final List<Long> createdIds = new ArrayList<>(batch.getCreated().size());
+    final long revision = write(shard, r -> {
+      setRevision(shard, updated, r);
+      for (final Long id : deletedIds) {
+        shards[shard].persist(new ContactTombstone(id, tenant, r));
+      }
+      for (final Contact contact : batch.getCreated()) {
+        persist(shard, tenant, contact, r);
+        createdIds.add(contact.getId());
+      }
+      if (batchKey != null) {
+        // A concurrent attempt with the same key fails to insert its record, and is rolled back.
+        shards[shard].persist(new ContactBatchRecord(batchKey, r, createdIds, missing, deletedIds));
+      }
+    });
+    final Map<Long, Long> deleteRevisions = new HashMap<>();
+    for (final Long id : deletedIds) {
+      deleteRevisions.put(id, revision);
+    }
+
+    return new AsyncResult<>(new AppliedBatch(new ContactBatchResult(createdIds, missing), deleteRevisions));
+  }
+
+  /**
+   * Deletes the {@link ContactBatchRecord batch records} of batches applied before the given time.
+   *
+   * @return The number of records deleted.
+   */
+  public int purgeBatchRecords(final int shard, final long before) {
+    return shards[shard].createNamedQuery(ContactBatchRecord.PURGE_QUERY).setParameter("before", before)
+            .executeUpdate();
+  }
+
+  private static AppliedBatch replay(final String tenant, final ContactBatch batch, final ContactBatchRecord record) {
+    final List<Long> createdIds = record.getCreatedIds();
+    for (int i = 0; i < batch.getCreated().size(); i++) {
+      final Contact contact = batch.getCreated().get(i);
+      contact.setId(createdIds.get(i));
+      contact.setTenant(tenant);
+      contact.setBirthdayOfYear(Birthdays.dayOfYear(contact.getBirthday()));
+      contact.setLastModified(record.getAppliedAt());
+    }
+    final List<Long> missing = record.getMissing();
+    for (final Contact contact : batch.getUpdated()) {
+      if (!missing.contains(contact.getId())) {
+        contact.setTenant(tenant);
+        contact.setBirthdayOfYear(Birthdays.dayOfYear(contact.getBirthday()));
+        contact.setLastModified(record.getAppliedAt());
+      }
+    }
+    final Map<Long, Long> deleteRevisions = new HashMap<>();
+    for (final Long id : record.getDeleted()) {
+      deleteRevisions.put(id, record.getAppliedAt());
+    }
+    return new AppliedBatch(new ContactBatchResult(createdIds, missing), deleteRevisions);
+  }
+
+  /**
+   * Issues the revision for the writes of this transaction, and runs them. The pending revision is released by the last
+   * statement of the transaction, so it is released when the writes commit. If the writes fail, it is released in a
+   * transaction of its own.
+   *
+   * @return The revision.
+   */
+  private long write(final int shard, final LongConsumer writes) {
+    final long revision = revisionIssuer.issueRevision(shard);
+    try {
+      writes.accept(revision);
+      shards[shard].flush();
+      shards[shard].createNamedQuery(PendingContactRevision.RELEASE_QUERY).setParameter("revision", revision)
+              .executeUpdate();
+      return revision;
+    }
+    catch (final RuntimeException e) {
+      try {
+        revisionIssuer.releaseRevision(shard, revision);
+      }
+      catch (final RuntimeException releaseFailure) {
+        // Purged by ContactRevisions once it is old enough.
+        e.addSuppressed(releaseFailure);
+      }
+      throw e;
+    }
+  }
+
+  private ContactRevisionCounter lockRevisionCounter(final int shard) {
+    final EntityManager em = shards[shard];
+    ContactRevisionCounter counter = em.find(ContactRevisionCounter.class, ContactRevisionCounter.ROW_ID,
+            LockModeType.PESSIMISTIC_WRITE);
+    if (counter == null) {
+      // Normally created at startup by ContactRevisions.
+      counter = new ContactRevisionCounter(System.currentTimeMillis());
+      em.persist(counter);
+    }
+    return counter;
+  }
+
+  private void persist(final int shard, final String tenant, final Contact newContact, final long revision) {
+    newContact.setTenant(tenant);
+    newContact.setBirthdayOfYear(Birthdays.dayOfYear(newContact.getBirthday()));
+    newContact.setLastModified(revision);
+    shards[shard].persist(newContact);
+  }
+
+  /**
+   * Updates the contact with a single statement, rather than loading it to check its tenant and then merging it. This
+   * locks the contact until the transaction ends; its revision is set by {@link #setRevision}.
+   *
+   * @return True iff the tenant has a contact with the id of the given contact, which was updated.
+   */
+  private boolean tryUpdate(final int shard, final String tenant, final Contact contact) {
+    final Integer birthdayOfYear = Birthdays.dayOfYear(contact.getBirthday());
+    final int updated = shards[shard].createQuery(UPDATE_QUERY)
+            .setParameter("fullname", contact.getFullname())
+            .setParameter("nickname", contact.getNickname())
+            .setParameter("phonenumber", contact.getPhonenumber())
+            .setParameter("email", contact.getEmail())
+            .setParameter("birthday", contact.getBirthday(), TemporalType.TIMESTAMP)
+            .setParameter("notes", contact.getNotes())
+            .setParameter("birthdayOfYear", birthdayOfYear)
+            .setParameter("id", contact.getId())
+            .setParameter("tenant", tenant)
+            .executeUpdate();
+    if (updated == 0) {
+      return false;
+    }
+    contact.setTenant(tenant);
+    contact.setBirthdayOfYear(birthdayOfYear);
+    return true;
+  }
+
+  /**
+   * Sets the revision of the given contacts, which were updated earlier in this transaction, with a single statement.
+   */
+  private void setRevision(final int shard, final List<Contact> updated, final long revision) {
+    if (updated.isEmpty()) {
+      return;
+    }
+    final List<Long> ids = new ArrayList<>(updated.size());
+    for (final Contact contact : updated) {
+      ids.add(contact.getId());
+      contact.setLastModified(revision);
+    }
+    shards[shard].createQuery(REVISION_QUERY)
+            .setParameter("revision", revision)
+            .setParameter("ids", ids)
+            .executeUpdate();
+  }
+
+  /**
+   * Deletes the contact with a single statement, rather than loading it first. The caller records a tombstone once it
+   * has the revision of the delete.
+   *
+   * @return True iff the tenant had a contact with the given id, which was deleted.
+   */
+  private boolean tryDelete(final int shard, final String tenant, final Long id) {
+    return shards[shard].createQuery(DELETE_QUERY)
+            .setParameter("id", id)
+            .setParameter("tenant", tenant)
+            .executeUpdate() > 0;
   }
 
 }
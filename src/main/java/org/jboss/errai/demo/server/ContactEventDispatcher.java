@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactEventsDropped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Delivers {@link ContactChange ContactChanges} to connected clients (through
+ * {@link ContactEventPublisher#fireLocally(ContactChange)}) on dedicated threads, once the transaction that made the
+ * change has committed. Requests that write contacts only queue their changes, so their latency does not grow with the
+ * number of connected clients, and clients are never told about changes that were rolled back.
+ *
+ * <p>
+ * Changes are queued on one of {@link #LANE_COUNT} single-threaded lanes, chosen by {@link Contact} id, so that changes
+ * to the same contact are delivered in order. Each lane queues at most {@link #QUEUE_CAPACITY} changes. When a lane is
+ * full the change is dropped rather than blocking the writer, and once delivery catches up the clients of each tenant
+ * whose changes were dropped are sent a {@link ContactEventsDropped} so that they fetch the changes they missed. Counters
+ * are available from {@link #getMetrics()}.
+ */
+@ApplicationScoped
+public class ContactEventDispatcher {
+
+  static final int LANE_COUNT = 4;
+
+  static final int QUEUE_CAPACITY = 10000;
+
+  private static final Logger logger = LoggerFactory.getLogger(ContactEventDispatcher.class);
+
+  @Resource
+  private ManagedThreadFactory threadFactory;
+
+  @Inject
+  private ContactEventPublisher publisher;
+
+  @Inject
+  private ContactSubscriptions subscriptions;
+
+  private final ThreadPoolExecutor[] lanes = new ThreadPoolExecutor[LANE_COUNT];
+
+  private final AtomicLong dispatched = new AtomicLong();
+
+  private final AtomicLong delivered = new AtomicLong();
+
+  private final AtomicLong overflowed = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  private final AtomicLong maxQueueDelayNanos = new AtomicLong();
+
+  /**
+   * Changes dropped since the clients of each tenant were last told to fetch missed changes, by tenant.
+   */
+  private final Map<String, AtomicLong> unreportedDrops = new ConcurrentHashMap<>();
+
+  /**
+   * Changes dropped since clients were last told, of all tenants, so that deliveries only look for unreported drops
+   * when there are some.
+   */
+  private final AtomicLong unreportedTotal = new AtomicLong();
+
+  @PostConstruct
+  private void start() {
+    for (int i = 0; i < LANE_COUNT; i++) {
+      lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+              threadFactory);
+    }
+  }
+
+  @PreDestroy
+  private void stop() {
+    for (final ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+  }
+
+  /**
+   * Queues every change written on this server once its transaction has committed. Without a transaction, this is
+   * called immediately.
+   */
+  public void onCommitted(final @Observes(during = TransactionPhase.AFTER_SUCCESS) ContactChange change) {
+    dispatch(change);
+  }
+
+  /**
+   * Queues a change for delivery to the clients connected to this server, without waiting for it to be delivered.
+   */
+  public void dispatch(final ContactChange change) {
+    final long queuedAt = System.nanoTime();
+    dispatched.incrementAndGet();
+    try {
+      lanes[(int) (change.getId() % LANE_COUNT)].execute(() -> deliver(change, queuedAt));
+    }
+    catch (final RejectedExecutionException e) {
+      dispatched.decrementAndGet();
+      overflowed.incrementAndGet();
+      unreportedDrops.computeIfAbsent(change.getTenant(), tenant -> new AtomicLong()).incrementAndGet();
+      unreportedTotal.incrementAndGet();
+      logger.debug("Dropped " + change.getType() + " of contact " + change.getId() + " because its queue was full");
+    }
+  }
+
+  public DispatchMetrics getMetrics() {
+    long queued = 0;
+    for (final ThreadPoolExecutor lane : lanes) {
+      queued += lane.getQueue().size();
+    }
+    return new DispatchMetrics(dispatched.get(), delivered.get(), overflowed.get(), failed.get(), queued,
+            TimeUnit.NANOSECONDS.toMillis(maxQueueDelayNanos.get()));
+  }
+
+  private void deliver(final ContactChange change, final long queuedAt) {
+    final long delay = System.nanoTime() - queuedAt;
+    maxQueueDelayNanos.accumulateAndGet(delay, Math::max);
+    try {
+      publisher.fireLocally(change);
+      delivered.incrementAndGet();
+    }
+    catch (final RuntimeException e) {
+      failed.incrementAndGet();
+      logger.error("Could not deliver " + change.getType() + " of contact " + change.getId(), e);
+    }
+
+    // A drop counted after this is reported by a later delivery.
+    if (unreportedTotal.getAndSet(0) > 0) {
+      unreportedDrops.forEach(this::reportDrops);
+    }
+  }
+
+  private void reportDrops(final String tenant, final AtomicLong unreported) {
+    final long drops = unreported.getAndSet(0);
+    if (drops > 0) {
+      // The dropped changes are committed, so clients fetching changes now will receive them.
+      try {
+        subscriptions.deliver(tenant, new ContactEventsDropped(drops));
+      }
+      catch (final RuntimeException e) {
+        logger.error("Could not report " + drops + " dropped changes of tenant " + tenant, e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.CREATE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.UPDATE;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactOperation;
+import org.jboss.errai.demo.client.shared.ContactsImported;
+
+/**
+ * Publishes the creation, update, and deletion of {@link Contact Contacts}, and bulk imports, to the clients of the
+ * tenant that made them. Shared by every transport through which clients write contacts.
+ * <p>
+ * Every change written on this server is fired as a server-side {@link ContactChange} event. Once the transaction
+ * commits, the {@link ContactEventDispatcher} delivers it to clients with {@link #fireLocally(ContactChange)} on its own
+ * threads, and in a cluster it is also forwarded to the other servers.
+ */
+@ApplicationScoped
+public class ContactEventPublisher {
+
+  @Inject
+  private ContactSubscriptions subscriptions;
+
+  @Inject
+  private Event<ContactChange> changed;
+
+  public void created(final ContactOperation contactOperation) {
+    final Contact contact = contactOperation.getContact();
+    publish(new ContactChange(CREATE, contact.getTenant(), contact.getId(), contact.getLastModified(),
+            contactOperation));
+  }
+
+  public void updated(final ContactOperation contactOperation) {
+    final Contact contact = contactOperation.getContact();
+    publish(new ContactChange(UPDATE, contact.getTenant(), contact.getId(), contact.getLastModified(),
+            contactOperation));
+  }
+
+  /**
+   * @param revision
+   *          The revision of the delete, as returned by the {@link ContactShardRouter}.
+   */
+  public void deleted(final String tenant, final Long id, final long revision) {
+    publish(new ContactChange(DELETE, tenant, id, revision, null));
+  }
+
+  /**
+   * Notifies the tenant's clients of a bulk import with one message, rather than one per contact.
+   */
+  public void imported(final String tenant, final ContactsImported contactsImported) {
+    subscriptions.deliver(tenant, contactsImported);
+  }
+
+  /**
+   * Fires one event for every write in the batch that was applied.
+   */
+  public void batchApplied(final String tenant, final ContactBatch batch, final AppliedBatch applied) {
+    for (final Contact contact : batch.getCreated()) {
+      created(new ContactOperation(contact, batch.getSourceQueueSessionId(), null));
+    }
+    for (final Contact contact : batch.getUpdated()) {
+      if (!applied.getResult().getMissing().contains(contact.getId())) {
+        updated(new ContactOperation(contact, batch.getSourceQueueSessionId(), null));
+      }
+    }
+    applied.getDeleteRevisions().forEach((id, revision) -> deleted(tenant, id, revision));
+  }
+
+  /**
+   * Delivers a change to the interested clients connected to this server (see {@link ContactSubscriptions}), without
+   * firing a {@link ContactChange}. This blocks until the change is queued for every recipient, so it is called by the
+   * {@link ContactEventDispatcher} rather than on the request path.
+   */
+  public void fireLocally(final ContactChange change) {
+    subscriptions.deliver(change);
+  }
+
+  private void publish(final ContactChange change) {
+    // After the transaction commits, this event is delivered to the clients interested in the contact (see
+    // ContactSubscriptions).
+    changed.fire(change);
+  }
+
+}
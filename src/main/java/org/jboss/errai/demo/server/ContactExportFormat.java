@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * The file formats in which {@link Contact Contacts} can be exported. Both can be imported again with the
+ * {@link ContactImportService}.
+ */
+enum ContactExportFormat {
+
+  /**
+   * RFC 4180 CSV with a header row, in the columns read by {@link CsvContactParser}.
+   */
+  CSV("text/csv", "csv") {
+
+    @Override
+    void writeHeader(final Writer out) throws IOException {
+      out.write("fullname,nickname,phonenumber,email,birthday,notes\r\n");
+    }
+
+    @Override
+    void write(final Writer out, final Contact contact) throws IOException {
+      out.write(csvField(contact.getFullname()));
+      out.write(',');
+      out.write(csvField(contact.getNickname()));
+      out.write(',');
+      out.write(csvField(contact.getPhonenumber()));
+      out.write(',');
+      out.write(csvField(contact.getEmail()));
+      out.write(',');
+      out.write(ContactRecords.formatBirthday(contact.getBirthday()));
+      out.write(',');
+      out.write(csvField(contact.getNotes()));
+      out.write("\r\n");
+    }
+
+  },
+
+  /**
+   * vCard 3.0, one card per contact.
+   */
+  VCARD("text/vcard", "vcf") {
+
+    @Override
+    void writeHeader(final Writer out) {
+    }
+
+    @Override
+    void write(final Writer out, final Contact contact) throws IOException {
+      final String name = (contact.getFullname() != null ? contact.getFullname() : contact.getNickname());
+      out.write("BEGIN:VCARD\r\nVERSION:3.0\r\n");
+      writeProperty(out, "FN", vCardValue(name));
+      writeProperty(out, "N", vCardValue(name) + ";;;;");
+      writeProperty(out, "NICKNAME", vCardValue(contact.getNickname()));
+      writeProperty(out, "TEL", vCardValue(contact.getPhonenumber()));
+      writeProperty(out, "EMAIL", vCardValue(contact.getEmail()));
+      writeProperty(out, "BDAY", ContactRecords.formatBirthday(contact.getBirthday()));
+      writeProperty(out, "NOTE", vCardValue(contact.getNotes()));
+      out.write("END:VCARD\r\n");
+    }
+
+  };
+
+  /**
+   * vCard lines longer than this are folded.
+   */
+  private static final int VCARD_LINE_LENGTH = 75;
+
+  private final String mediaType;
+  private final String extension;
+
+  private ContactExportFormat(final String mediaType, final String extension) {
+    this.mediaType = mediaType;
+    this.extension = extension;
+  }
+
+  String getMediaType() {
+    return mediaType;
+  }
+
+  String getExtension() {
+    return extension;
+  }
+
+  abstract void writeHeader(Writer out) throws IOException;
+
+  abstract void write(Writer out, Contact contact) throws IOException;
+
+  /**
+   * @param name
+   *          A format name, ignoring case, or null for {@link #CSV}.
+   * @throws IllegalArgumentException
+   *           If the name is not a known format.
+   */
+  static ContactExportFormat forName(final String name) {
+    if (name == null || name.isEmpty()) {
+      return CSV;
+    }
+    return valueOf(name.toUpperCase());
+  }
+
+  private static String csvField(final String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.matches("(?s).*[\",\r\n].*") || !value.equals(value.trim())) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
+
+  private static String vCardValue(final String value) {
+    if (value == null) {
+      return "";
+    }
+    return value.replace("\\", "\\\\").replace(",", "\\,").replace(";", "\\;").replace("\r\n", "\\n")
+            .replace("\n", "\\n");
+  }
+
+  private static void writeProperty(final Writer out, final String name, final String value) throws IOException {
+    if (value.isEmpty()) {
+      return;
+    }
+    final String line = name + ":" + value;
+    out.write(line, 0, Math.min(line.length(), VCARD_LINE_LENGTH));
+    for (int i = VCARD_LINE_LENGTH; i < line.length(); i += VCARD_LINE_LENGTH - 1) {
+      // A continuation line starts with a space, which is removed when the line is unfolded.
+      out.write("\r\n ");
+      out.write(line, i, Math.min(line.length() - i, VCARD_LINE_LENGTH - 1));
+    }
+    out.write("\r\n");
+  }
+
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * The single row in each shard database from which the {@link ContactShardRouter} reserves blocks of
+ * {@link Contact} ids.
+ */
+@Entity
+public class ContactIdCounter {
+
+  static final int ROW_ID = 1;
+
+  @Id
+  private int id;
+
+  private long next;
+
+  protected ContactIdCounter() {
+  }
+
+  public ContactIdCounter(final long next) {
+    this.id = ROW_ID;
+    this.next = next;
+  }
+
+  public long getNext() {
+    return next;
+  }
+
+  public void setNext(final long next) {
+    this.next = next;
+  }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Tracks the {@link ImportProgress} of recent contact imports, so that progress can be read while an import runs. Jobs
+ * are named per tenant, so a tenant cannot read the progress of another tenant's imports.
+ */
+@ApplicationScoped
+public class ContactImportJobs {
+
+  /**
+   * Progress is kept for this many of the most recent imports.
+   */
+  static final int MAX_JOBS = 100;
+
+  private final Map<String, ImportProgress> jobs = new LinkedHashMap<String, ImportProgress>(16, 0.75f, false) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, ImportProgress> eldest) {
+      return size() > MAX_JOBS;
+    }
+  };
+
+  public synchronized ImportProgress start(final String tenant, final String job) {
+    final ImportProgress progress = new ImportProgress(job);
+    jobs.remove(key(tenant, job));
+    jobs.put(key(tenant, job), progress);
+    return progress;
+  }
+
+  /**
+   * @return The progress of the given import of the tenant, or null if it is unknown.
+   */
+  public synchronized ImportProgress get(final String tenant, final String job) {
+    return jobs.get(key(tenant, job));
+  }
+
+  private static String key(final String tenant, final String job) {
+    // Tenant ids cannot contain a slash.
+    return tenant + "/" + job;
+  }
+
+}
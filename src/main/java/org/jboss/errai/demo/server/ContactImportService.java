@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.annotation.Resource;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactsImported;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A JaxRS HTTP service for bulk-importing {@link Contact Contacts} from CSV ({@code text/csv}, see
+ * {@link CsvContactParser}) or vCard ({@code text/vcard}, see {@link VCardContactParser}) uploads. This is not part of
+ * {@link org.jboss.errai.demo.client.shared.ContactStorageService ContactStorageService} because it is not called from
+ * the GWT client. For example:
+ *
+ * <pre>
+ * curl -X POST -H 'Content-Type: text/csv' --data-binary @contacts.csv http://localhost:8080/errai-crud/rest/contact/import
+ * </pre>
+ *
+ * <p>
+ * The upload is streamed: records are read in chunks of {@link #CHUNK_SIZE}, chunks are parsed and validated in
+ * parallel on the container's managed executor, and the valid contacts of each chunk are inserted (in input order)
+ * through the {@link ContactShardRouter}, with one transaction per chunk and shard. At most
+ * {@link #MAX_PARSING_CHUNKS} chunks are held in memory at once, so memory use does not grow with the size of the
+ * upload. Invalid records are counted and skipped.
+ *
+ * <p>
+ * Progress can be read during the import from {@code GET /contact/import/<job>}, where the job id is given with the
+ * {@code job} query parameter (or generated if it is omitted). The final progress is the response to the upload.
+ * Connected clients of the tenant receive a single {@link ContactsImported} message once the import ends, rather than
+ * an event per contact. Contacts are imported into the address book of the tenant of the request (see
+ * {@link Tenants}), and job ids are only visible to that tenant.
+ */
+@Path("/contact/import")
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ContactImportService {
+
+  static final int CHUNK_SIZE = 1000;
+
+  static final int MAX_PARSING_CHUNKS = 4;
+
+  private static final Logger logger = LoggerFactory.getLogger(ContactImportService.class);
+
+  @Inject
+  private ContactShardRouter router;
+
+  @Inject
+  private ContactEventPublisher publisher;
+
+  @Inject
+  private ContactImportJobs jobs;
+
+  @Resource
+  private ManagedExecutorService executor;
+
+  @Inject
+  private HttpServletRequest request;
+
+  @POST
+  @Consumes({ "text/csv", "text/vcard", "text/x-vcard" })
+  @Produces("application/json")
+  public Response importContacts(@HeaderParam("Content-Type") final MediaType type, @QueryParam("job") final String job,
+          final InputStream input) {
+    final String tenant = Tenants.of(request);
+    final ImportProgress progress = jobs.start(tenant, job != null ? job : UUID.randomUUID().toString());
+    final String charset = type.getParameters().get(MediaType.CHARSET_PARAMETER);
+    final BufferedReader reader = new BufferedReader(
+            new InputStreamReader(input, charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8));
+    final ContactParser parser = ("csv".equalsIgnoreCase(type.getSubtype()) ? new CsvContactParser(reader)
+            : new VCardContactParser(reader));
+
+    Status status = Status.OK;
+    try {
+      importAll(tenant, parser, progress);
+      progress.finish(null);
+    }
+    catch (final IllegalArgumentException e) {
+      status = Status.BAD_REQUEST;
+      progress.finish(e.getMessage());
+    }
+    catch (final IOException | RuntimeException e) {
+      logger.error("Import " + progress.getJob() + " failed", e);
+      status = Status.INTERNAL_SERVER_ERROR;
+      progress.finish("The import failed: " + e);
+    }
+    logger.info("Import " + progress.getJob() + " read " + progress.getRead() + " records, imported "
+            + progress.getImported() + ", rejected " + progress.getRejected());
+
+    if (progress.getImported() > 0) {
+      // This is delivered to all connected clients of the tenant.
+      publisher.imported(tenant, new ContactsImported(progress.getImported()));
+    }
+
+    return Response.status(status).entity(progress).build();
+  }
+
+  @GET
+  @Path("/{job}")
+  @Produces("application/json")
+  public Response getProgress(@PathParam("job") final String job) {
+    final ImportProgress progress = jobs.get(Tenants.of(request), job);
+    return (progress == null ? Response.status(Status.NOT_FOUND) : Response.ok(progress)).build();
+  }
+
+  private void importAll(final String tenant, final ContactParser parser, final ImportProgress progress)
+          throws IOException {
+    // Chunks being parsed, in input order.
+    final Deque<Future<List<Contact>>> parsing = new ArrayDeque<>();
+    try {
+      List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+      long firstRecordNumber = 1;
+      String record;
+      while ((record = parser.nextRecord()) != null) {
+        progress.recordRead();
+        chunk.add(record);
+        if (chunk.size() == CHUNK_SIZE) {
+          parsing.add(parse(parser, chunk, firstRecordNumber, progress));
+          firstRecordNumber += chunk.size();
+          chunk = new ArrayList<>(CHUNK_SIZE);
+          if (parsing.size() == MAX_PARSING_CHUNKS) {
+            store(tenant, parsing.poll(), progress);
+          }
+        }
+      }
+      if (!chunk.isEmpty()) {
+        parsing.add(parse(parser, chunk, firstRecordNumber, progress));
+      }
+      while (!parsing.isEmpty()) {
+        store(tenant, parsing.poll(), progress);
+      }
+    }
+    finally {
+      for (final Future<List<Contact>> future : parsing) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private Future<List<Contact>> parse(final ContactParser parser, final List<String> records,
+          final long firstRecordNumber, final ImportProgress progress) {
+    return executor.submit(() -> {
+      final List<Contact> contacts = new ArrayList<>(records.size());
+      for (int i = 0; i < records.size(); i++) {
+        try {
+          contacts.add(parser.parse(records.get(i)));
+        }
+        catch (final IllegalArgumentException e) {
+          progress.recordRejected(firstRecordNumber + i, e.getMessage());
+        }
+      }
+      return contacts;
+    });
+  }
+
+  private void store(final String tenant, final Future<List<Contact>> parsed, final ImportProgress progress) {
+    final List<Contact> contacts;
+    try {
+      contacts = parsed.get();
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing", e);
+    }
+    catch (final ExecutionException e) {
+      throw new IllegalStateException("Parsing failed", e.getCause());
+    }
+    if (!contacts.isEmpty()) {
+      router.importContacts(tenant, contacts);
+      progress.recordImported(contacts.size());
+    }
+  }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.IOException;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * Reads {@link Contact Contacts} from an import file. Splitting the input into records is sequential, but records can
+ * then be parsed in parallel.
+ */
+interface ContactParser {
+
+  /**
+   * Called sequentially, from one thread.
+   *
+   * @return The raw text of the next record, or null at the end of the input.
+   */
+  String nextRecord() throws IOException;
+
+  /**
+   * Safe to call from multiple threads once the first record has been read.
+   *
+   * @return A new, unsaved {@link Contact}.
+   * @throws IllegalArgumentException
+   *           If the record is malformed or is not a valid contact.
+   */
+  Contact parse(String record);
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * Maps field values from imported records (see {@link ContactParser}) to {@link Contact Contacts}, applying the same
+ * rules to every import format.
+ */
+final class ContactRecords {
+
+  static final int MAX_FIELD_LENGTH = 255;
+
+  private ContactRecords() {
+  }
+
+  /**
+   * @return A new {@link Contact} with the given (possibly null or blank) values, trimmed.
+   * @throws IllegalArgumentException
+   *           If the values do not make a valid contact: one with a full name or nickname, a plausible email address,
+   *           a valid birthday, and no field (other than the notes) longer than {@link #MAX_FIELD_LENGTH}.
+   */
+  static Contact toContact(final String fullname, final String nickname, final String phonenumber, final String email,
+          final String birthday, final String notes) {
+    final Contact contact = new Contact();
+    contact.setFullname(field("full name", fullname));
+    contact.setNickname(field("nickname", nickname));
+    contact.setPhonenumber(field("phone number", phonenumber));
+    contact.setEmail(field("email", email));
+    contact.setNotes(notes == null ? null : notes.trim());
+    contact.setBirthday(parseBirthday(birthday));
+
+    if (contact.getFullname() == null && contact.getNickname() == null) {
+      throw new IllegalArgumentException("A full name or nickname is required");
+    }
+    if (contact.getEmail() != null && contact.getEmail().indexOf('@') < 1) {
+      throw new IllegalArgumentException("Invalid email address: " + contact.getEmail());
+    }
+
+    return contact;
+  }
+
+  /**
+   * Formats a birthday the same way as the client-side {@code DateConverter} (an ISO 8601 date in UTC).
+   */
+  static String formatBirthday(final Date birthday) {
+    return (birthday == null ? "" : utcFormat("yyyy-MM-dd").format(birthday));
+  }
+
+  /**
+   * Accepts ISO 8601 dates with or without dashes ({@code 2016-01-31} or {@code 20160131}).
+   */
+  private static Date parseBirthday(final String value) {
+    final String trimmed = (value == null ? "" : value.trim());
+    if (trimmed.isEmpty()) {
+      return null;
+    }
+    try {
+      final SimpleDateFormat format = utcFormat(trimmed.indexOf('-') == -1 ? "yyyyMMdd" : "yyyy-MM-dd");
+      format.setLenient(false);
+      return format.parse(trimmed);
+    }
+    catch (final ParseException e) {
+      throw new IllegalArgumentException("Invalid birthday: " + trimmed);
+    }
+  }
+
+  private static String field(final String name, final String value) {
+    final String trimmed = (value == null ? "" : value.trim());
+    if (trimmed.length() > MAX_FIELD_LENGTH) {
+      throw new IllegalArgumentException("The " + name + " is longer than " + MAX_FIELD_LENGTH + " characters");
+    }
+    return (trimmed.isEmpty() ? null : trimmed);
+  }
+
+  private static SimpleDateFormat utcFormat(final String pattern) {
+    final SimpleDateFormat format = new SimpleDateFormat(pattern);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format;
+  }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * The single row in each shard database from which the {@link ContactEntityService} issues the revisions of writes to
+ * {@link Contact Contacts} in that shard (see {@link ContactRevisions}).
+ */
+@Entity
+public class ContactRevisionCounter {
+
+  static final int ROW_ID = 1;
+
+  @Id
+  private int id;
+
+  /**
+   * The first revision issued by this database, so that versions from before it was created can be recognized.
+   */
+  private long first;
+
+  /**
+   * The last revision issued, or a later revision that the counter was advanced to.
+   */
+  private long last;
+
+  protected ContactRevisionCounter() {
+  }
+
+  public ContactRevisionCounter(final long first) {
+    this.id = ROW_ID;
+    this.first = first;
+    this.last = first;
+  }
+
+  public long getFirst() {
+    return first;
+  }
+
+  public long getLast() {
+    return last;
+  }
+
+  public void setLast(final long last) {
+    this.last = last;
+  }
+
+}
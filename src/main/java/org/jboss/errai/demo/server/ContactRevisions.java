@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import static org.jboss.errai.demo.server.ContactEntityService.SHARD_COUNT;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJBException;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Reports how far the revisions recorded in {@link Contact#getLastModified()} and
+ * {@link ContactTombstone#getDeletedAt()} are committed. Revisions are issued by each shard database from its
+ * {@link ContactRevisionCounter}, in a short transaction that also records the revision as a
+ * {@link PendingContactRevision}, which the write transaction deletes as it commits (see {@link ContactEntityService}).
+ * Writes therefore do not wait for each other's commits, and may commit in any order. Revisions are at least the server
+ * clock in milliseconds, so they also tell roughly when a write was made.
+ *
+ * <p>
+ * {@link #committed()} is a version up to which the writes of every shard have committed. It is the lowest, over all
+ * shards, of the last revision issued, or of the revision before the oldest pending one. A client that has the changes
+ * up to that version never misses a write that commits later, because that write has a greater revision. Changes with
+ * greater revisions that have already committed are sent again with the next changes, which is harmless. A shard
+ * without recent writes would hold back the version, so its counter is advanced to the other shards' every second.
+ *
+ * <p>
+ * The revision of a write that fails is released, but that of a write whose server stopped before it could commit or
+ * release it stays pending until it is purged after {@link #PENDING_TIMEOUT_MILLIS}, which is longer than a transaction
+ * may run.
+ *
+ * <p>
+ * Changes can only be computed for revisions issued since the shard databases were created, so clients with an older
+ * version receive a full reset (see {@link #getEpoch()}).
+ */
+@Singleton
+@Startup
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class ContactRevisions {
+
+  static final long PENDING_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+  private static final Logger logger = LoggerFactory.getLogger(ContactRevisions.class);
+
+  @Inject
+  private ContactEntityService entityService;
+
+  private volatile long epoch;
+
+  /**
+   * Creates the counters of new shard databases, so that concurrent first writes do not both create one.
+   */
+  @PostConstruct
+  private void init() {
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      try {
+        entityService.advanceRevision(shard, 0);
+      }
+      catch (final EJBException e) {
+        // Another server created the counter first.
+        logger.debug("Could not create the revision counter of shard " + shard, e);
+      }
+    }
+  }
+
+  /**
+   * Reads the counters and pending revisions of every shard, without locking or writing anything.
+   *
+   * @return A version such that every write with a revision up to it has committed, in every shard.
+   */
+  @Lock(LockType.READ)
+  public long committed() {
+    long version = Long.MAX_VALUE;
+    long first = 0;
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      // The counter is read first: every revision up to its value was already pending, so it is still pending or has
+      // been released when the pending revisions are read.
+      final ContactRevisionCounter counter = entityService.getRevisionCounter(shard);
+      if (counter == null) {
+        return 0;
+      }
+      first = Math.max(first, counter.getFirst());
+      final Long oldestPending = entityService.getOldestPendingRevision(shard);
+      version = Math.min(version, (oldestPending != null ? Math.min(counter.getLast(), oldestPending - 1)
+              : counter.getLast()));
+    }
+    epoch = first;
+
+    return version;
+  }
+
+  /**
+   * @return The first revision issued by the newest shard database, as of the last call to {@link #committed()}.
+   *         Changes since an earlier version are not known.
+   */
+  @Lock(LockType.READ)
+  public long getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Advances the counters of shards that are behind another shard's, so that a shard without recent writes does not
+   * hold back the {@link #committed() version}. Runs on every server, which is harmless because a counter is never
+   * moved back.
+   */
+  @Lock(LockType.READ)
+  @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+  private void advanceLaggingShards() {
+    try {
+      final long[] last = new long[SHARD_COUNT];
+      long max = 0;
+      for (int shard = 0; shard < SHARD_COUNT; shard++) {
+        final ContactRevisionCounter counter = entityService.getRevisionCounter(shard);
+        last[shard] = (counter != null ? counter.getLast() : 0);
+        max = Math.max(max, last[shard]);
+      }
+      for (int shard = 0; shard < SHARD_COUNT; shard++) {
+        if (last[shard] < max) {
+          entityService.advanceRevision(shard, max);
+        }
+      }
+    }
+    catch (final RuntimeException e) {
+      logger.warn("Could not advance the revision counters", e);
+    }
+  }
+
+  @Lock(LockType.READ)
+  @Schedule(hour = "*", minute = "*", persistent = false)
+  private void purgePendingRevisions() {
+    final long before = System.currentTimeMillis() - PENDING_TIMEOUT_MILLIS;
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      try {
+        final int purged = entityService.purgePendingRevisions(shard, before);
+        if (purged > 0) {
+          logger.warn("Purged {} abandoned pending revisions from shard {}", purged, shard);
+        }
+      }
+      catch (final RuntimeException e) {
+        logger.warn("Could not purge the pending revisions of shard " + shard, e);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.bus.server.annotations.Service;
+import org.jboss.errai.bus.server.api.RpcContext;
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactBatchResult;
+import org.jboss.errai.demo.client.shared.ContactChanges;
+import org.jboss.errai.demo.client.shared.ContactRpcService;
+
+/**
+ * Server-side implementation of the Errai RPC service, {@link ContactRpcService}. Like the {@link ContactStorageServiceImpl},
+ * this uses the {@link ContactShardRouter} for storage and the {@link ContactEventPublisher} to notify clients, for the
+ * tenant of the HTTP request that carried the call (see {@link Tenants}).
+ */
+@Service
+@ApplicationScoped
+public class ContactRpcServiceImpl implements ContactRpcService {
+
+  @Inject
+  private ContactShardRouter router;
+
+  @Inject
+  private ContactEventPublisher publisher;
+
+  @Inject
+  private ContactCache cache;
+
+  @Inject
+  private IdempotentWrites idempotentWrites;
+
+  @Override
+  public ContactChanges getChanges(final long since) {
+    return router.getChangesSince(Tenants.of(RpcContext.getMessage()), since);
+  }
+
+  @Override
+  public ContactAggregates getAggregates() {
+    return cache.getAggregates(Tenants.of(RpcContext.getMessage()));
+  }
+
+  @Override
+  public ContactBatchResult batch(final ContactBatch batch) {
+    final String tenant = Tenants.of(RpcContext.getMessage());
+    return idempotentWrites.run(tenant, batch.getIdempotencyKey(), () -> {
+      final AppliedBatch applied = router.applyBatch(tenant, batch);
+      publisher.batchApplied(tenant, batch, applied);
+      return applied.getResult();
+    });
+  }
+
+}
@@ -0,0 +1,556 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import static org.jboss.errai.demo.server.ContactEntityService.SHARD_COUNT;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactBatchResult;
+import org.jboss.errai.demo.client.shared.ContactChanges;
+import org.jboss.errai.demo.client.shared.ContactPage;
+
+/**
+ * <p>
+ * Partitions {@link Contact Contacts} across the shard databases of the {@link ContactEntityService}, and offers CRUD
+ * operations over all of them.
+ *
+ * <p>
+ * A contact is stored in shard {@code id % SHARD_COUNT}, so operations on a single contact go to one shard. Ids are
+ * made globally unique by interleaving: each shard hands out counter values that are unique within it, and a counter
+ * value {@code n} from shard {@code s} becomes the id {@code n * SHARD_COUNT + s}. Counter values are reserved in
+ * blocks, so most creates do not need an extra database round trip. New contacts are spread across shards in
+ * round-robin order, so write load is divided evenly.
+ *
+ * <p>
+ * Listing and change queries are sent to every shard in parallel, and the results (each in id order) are merged into
+ * a single list in id order.
+ *
+ * <p>
+ * Every operation is for the contacts of one tenant (see {@link Tenants}), and waits for a permit from the
+ * {@link TenantQuotas}. Contacts of all tenants share the shards, and ids are unique across tenants.
+ *
+ * <p>
+ * Once the contacts of a tenant are loaded into the {@link ContactCache}, they are listed and read from it instead of
+ * the shards. Every write is applied to the cache after it commits. Listings that carry a version, from which a client
+ * later asks for changes, always read the shards, because the cache may not yet hold every write up to that version.
+ */
+@ApplicationScoped
+public class ContactShardRouter {
+
+  static final int ID_BLOCK_SIZE = 100;
+
+  /**
+   * The number of contacts read from each shard at a time by {@link #forEachContact(String, Consumer)}.
+   */
+  static final int SCAN_PAGE_SIZE = 500;
+
+  private static final Comparator<Contact> BY_ID = (a, b) -> Long.compare(a.getId(), b.getId());
+
+  @Inject
+  private ContactEntityService entityService;
+
+  @Inject
+  private ContactRevisions revisions;
+
+  @Inject
+  private ContactCache cache;
+
+  @Inject
+  private TenantQuotas quotas;
+
+  private final AtomicInteger nextShard = new AtomicInteger();
+
+  private final long[] nextCounter = new long[SHARD_COUNT];
+
+  private final long[] counterLimit = new long[SHARD_COUNT];
+
+  public static int shardOf(final long id) {
+    return (int) (id % SHARD_COUNT);
+  }
+
+  public List<Contact> getAllContacts(final String tenant) {
+    return quotas.run(tenant, () -> {
+      final ContactColumns cached = cache.getColumns(tenant);
+      if (cached != null) {
+        return cached.page(0, Integer.MAX_VALUE);
+      }
+      return mergeById(gather(shard -> entityService.getContacts(shard, tenant, -1)));
+    });
+  }
+
+  /**
+   * Passes every contact of the tenant to the given action, in id order, without loading all contacts into memory.
+   * Contacts created or deleted during the scan may or may not be included.
+   * <p>
+   * A permit of the {@link TenantQuotas} is held only while each page is read, not while the action runs, so a long
+   * scan (such as an export to a slow client) does not take a permit from the tenant's other operations for its whole
+   * length.
+   */
+  public void forEachContact(final String tenant, final Consumer<Contact> action) {
+    final ContactColumns cached = cache.getColumns(tenant);
+    if (cached == null) {
+      scanShards(tenant, action, true);
+      return;
+    }
+    long lastId = 0;
+    List<Contact> page;
+    do {
+      final long after = lastId;
+      page = quotas.run(tenant, () -> cached.page(after, SCAN_PAGE_SIZE));
+      for (final Contact contact : page) {
+        action.accept(contact);
+        lastId = contact.getId();
+      }
+    } while (page.size() == SCAN_PAGE_SIZE);
+  }
+
+  /**
+   * Like {@link #forEachContact(String, Consumer)}, but always reads the shards, and is not limited by the
+   * {@link TenantQuotas}. Each shard is read with a keyset cursor that holds one page at a time (see
+   * {@link ContactEntityService#getContactsAfter}), and the shards are merged as they are read.
+   */
+  void forEachStoredContact(final String tenant, final Consumer<Contact> action) {
+    scanShards(tenant, action, false);
+  }
+
+  /**
+   * @param limited
+   *          Whether each page is read with a permit of the {@link TenantQuotas}.
+   */
+  private void scanShards(final String tenant, final Consumer<Contact> action, final boolean limited) {
+    final PriorityQueue<ShardCursor> heads = new PriorityQueue<>(SHARD_COUNT,
+            (a, b) -> BY_ID.compare(a.head(), b.head()));
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      final ShardCursor cursor = new ShardCursor(shard, tenant, limited);
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+    while (!heads.isEmpty()) {
+      final ShardCursor cursor = heads.poll();
+      action.accept(cursor.head());
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+  }
+
+  /**
+   * @return The first {@code max} contacts of the tenant in id order, read from the shards after every write up to the
+   *         page's version has committed.
+   */
+  public ContactPage getFirstContacts(final String tenant, final int max) {
+    return quotas.run(tenant, () -> {
+      final long version = revisions.committed();
+      final List<Contact> contacts = mergeById(gather(shard -> entityService.getContacts(shard, tenant, max + 1)));
+      final boolean complete = (contacts.size() <= max);
+
+      return new ContactPage(complete ? contacts : new ArrayList<>(contacts.subList(0, max)), version, complete);
+    });
+  }
+
+  /**
+   * The returned version is one up to which every write has committed (see {@link ContactRevisions#committed()}), so a
+   * write that commits after this query has a greater revision and is found by the next one. Writes committed after the
+   * version was taken may also be returned now, and again by the next query, which is harmless to clients.
+   *
+   * @return All contacts of the tenant changed or deleted since the given version, or a reset containing all its
+   *         contacts if changes since that version are not known.
+   */
+  public ContactChanges getChangesSince(final String tenant, final long since) {
+    return quotas.run(tenant, () -> {
+      final long version = revisions.committed();
+      if (since == 0 || since < revisions.getEpoch()) {
+        return new ContactChanges(mergeById(gather(shard -> entityService.getContacts(shard, tenant, -1))),
+                new ArrayList<>(), version, true);
+      }
+
+      final List<Future<List<Contact>>> changed = startOnEveryShard(
+              shard -> entityService.getChangedContacts(shard, tenant, since));
+      final List<Future<List<Long>>> deleted = startOnEveryShard(
+              shard -> entityService.getDeletedIds(shard, tenant, since));
+      final List<Long> deletedIds = new ArrayList<>();
+      for (final List<Long> ids : awaitAll(deleted)) {
+        deletedIds.addAll(ids);
+      }
+      Collections.sort(deletedIds);
+
+      return new ContactChanges(mergeById(awaitAll(changed)), deletedIds, version, false);
+    });
+  }
+
+  /**
+   * Finds birthdays with the index on the {@link Contact#getBirthdayOfYear() day of the year}, so the cost depends on
+   * the number of matching contacts rather than on the number of contacts of the tenant. A window that runs past the
+   * end of the year is queried as two ranges. Counting by date means that, outside leap years, a window containing
+   * February 28 and March 1 also finds birthdays on February 29.
+   *
+   * @param days
+   *          The number of days after today to include, from 0 (only today) up to a whole year.
+   * @return Contacts of the tenant whose birthdays fall within the given number of days from today (in UTC), soonest
+   *         first.
+   */
+  public List<Contact> getUpcomingBirthdays(final String tenant, final int days) {
+    final LocalDate today = Birthdays.today();
+    final int from = Birthdays.dayOfYear(today);
+    final int to = (days >= Birthdays.DAYS - 1 ? from - 1 : Birthdays.dayOfYear(today.plusDays(Math.max(0, days))));
+
+    return quotas.run(tenant, () -> {
+      final List<Contact> contacts = new ArrayList<>();
+      if (from <= to) {
+        gather(shard -> entityService.getBirthdays(shard, tenant, from, to)).forEach(contacts::addAll);
+      }
+      else {
+        gather(shard -> entityService.getBirthdays(shard, tenant, from, Birthdays.DAYS)).forEach(contacts::addAll);
+        gather(shard -> entityService.getBirthdays(shard, tenant, 1, to)).forEach(contacts::addAll);
+      }
+      contacts.sort(Comparator.comparingInt((Contact c) -> Math.floorMod(c.getBirthdayOfYear() - from, Birthdays.DAYS))
+              .thenComparing(BY_ID));
+      return contacts;
+    });
+  }
+
+  /**
+   * @return The contact of the tenant with the given id, or null if there is none.
+   */
+  public Contact get(final String tenant, final long id) {
+    return quotas.run(tenant, () -> {
+      final ContactColumns cached = cache.getColumns(tenant);
+      return (cached != null ? cached.get(id) : entityService.find(shardOf(id), tenant, id));
+    });
+  }
+
+  /**
+   * Assigns the new contact an id and stores it in the shard for that id.
+   */
+  public void create(final String tenant, final Contact newContact) {
+    quotas.run(tenant, () -> {
+      final int shard = nextShard();
+      newContact.setId(allocateId(shard));
+      entityService.create(shard, tenant, newContact);
+      cache.put(newContact);
+    });
+  }
+
+  public void update(final String tenant, final Contact contact) {
+    quotas.run(tenant, () -> {
+      entityService.update(shardOf(contact.getId()), tenant, contact);
+      cache.put(contact);
+    });
+  }
+
+  /**
+   * @return The revision of the delete.
+   */
+  public long delete(final String tenant, final Long id) {
+    return quotas.run(tenant, () -> {
+      final long revision = entityService.delete(shardOf(id), tenant, id);
+      cache.remove(tenant, id);
+      return revision;
+    });
+  }
+
+  /**
+   * Splits the batch by shard and applies the parts in parallel, each in its own transaction. Unlike a batch on a
+   * single database, the parts commit independently: if one shard fails, writes to other shards may still be applied.
+   * <p>
+   * The new contacts of a batch with an idempotency key are placed by the key rather than in turn, so every attempt of
+   * the batch splits it into the same parts. Each shard records the part it applied (see
+   * {@link ContactEntityService#applyBatch}), so a retry applies only the parts that did not commit.
+   */
+  public AppliedBatch applyBatch(final String tenant, final ContactBatch batch) {
+    return quotas.run(tenant, () -> {
+      final List<List<Contact>> created = emptyLists();
+      final List<List<Contact>> updated = emptyLists();
+      final List<List<Long>> deleted = emptyLists();
+      final String key = batch.getIdempotencyKey();
+      for (int i = 0; i < batch.getCreated().size(); i++) {
+        final Contact contact = batch.getCreated().get(i);
+        final int shard = (key != null ? Math.floorMod(key.hashCode() + i, SHARD_COUNT) : nextShard());
+        contact.setId(allocateId(shard));
+        created.get(shard).add(contact);
+      }
+      for (final Contact contact : batch.getUpdated()) {
+        updated.get(shardOf(contact.getId())).add(contact);
+      }
+      for (final Long id : batch.getDeleted()) {
+        deleted.get(shardOf(id)).add(id);
+      }
+
+      final List<Future<AppliedBatch>> parts = new ArrayList<>(SHARD_COUNT);
+      for (int shard = 0; shard < SHARD_COUNT; shard++) {
+        if (!created.get(shard).isEmpty() || !updated.get(shard).isEmpty() || !deleted.get(shard).isEmpty()) {
+          parts.add(entityService.applyBatch(shard, tenant, new ContactBatch(created.get(shard), updated.get(shard),
+                  deleted.get(shard), batch.getSourceQueueSessionId(), key)));
+        }
+      }
+      final List<Long> missing = new ArrayList<>();
+      final Map<Long, Long> deleteRevisions = new HashMap<>();
+      try {
+        for (final AppliedBatch part : awaitAll(parts)) {
+          missing.addAll(part.getResult().getMissing());
+          deleteRevisions.putAll(part.getDeleteRevisions());
+        }
+      }
+      catch (final RuntimeException e) {
+        // Parts on other shards may have committed, so cache whatever the shards now hold.
+        for (final Contact contact : batch.getCreated()) {
+          refreshCached(tenant, contact.getId());
+        }
+        for (final Contact contact : batch.getUpdated()) {
+          refreshCached(tenant, contact.getId());
+        }
+        for (final Long id : batch.getDeleted()) {
+          refreshCached(tenant, id);
+        }
+        throw e;
+      }
+
+      cache.putAll(batch.getCreated());
+      for (final Contact contact : batch.getUpdated()) {
+        if (!missing.contains(contact.getId())) {
+          cache.put(contact);
+        }
+      }
+      for (final Long id : batch.getDeleted()) {
+        cache.remove(tenant, id);
+      }
+
+      // The parts set the ids of their created contacts, which differ from those allocated above if they were replayed.
+      final List<Long> createdIds = new ArrayList<>(batch.getCreated().size());
+      for (final Contact contact : batch.getCreated()) {
+        createdIds.add(contact.getId());
+      }
+      return new AppliedBatch(new ContactBatchResult(createdIds, missing), deleteRevisions);
+    });
+  }
+
+  /**
+   * Creates the given new contacts, spread across shards, with one transaction per shard. Used for bulk imports, so
+   * that a large number of contacts is not inserted one transaction at a time.
+   */
+  public void importContacts(final String tenant, final List<Contact> newContacts) {
+    quotas.run(tenant, () -> {
+      final List<List<Contact>> created = emptyLists();
+      for (final Contact contact : newContacts) {
+        final int shard = nextShard();
+        contact.setId(allocateId(shard));
+        created.get(shard).add(contact);
+      }
+
+      final List<Future<Integer>> parts = new ArrayList<>(SHARD_COUNT);
+      for (int shard = 0; shard < SHARD_COUNT; shard++) {
+        if (!created.get(shard).isEmpty()) {
+          parts.add(entityService.importContacts(shard, tenant, created.get(shard)));
+        }
+      }
+      try {
+        awaitAll(parts);
+      }
+      catch (final RuntimeException e) {
+        for (final Contact contact : newContacts) {
+          refreshCached(tenant, contact.getId());
+        }
+        throw e;
+      }
+      cache.putAll(newContacts);
+    });
+  }
+
+  /**
+   * Replaces the cached copy of a contact with the one in its shard, or removes it if the shard has none.
+   */
+  private void refreshCached(final String tenant, final long id) {
+    final Contact stored = entityService.find(shardOf(id), tenant, id);
+    if (stored == null) {
+      cache.remove(tenant, id);
+    }
+    else {
+      cache.put(stored);
+    }
+  }
+
+  private int nextShard() {
+    return Math.floorMod(nextShard.getAndIncrement(), SHARD_COUNT);
+  }
+
+  private synchronized long allocateId(final int shard) {
+    if (nextCounter[shard] == counterLimit[shard]) {
+      nextCounter[shard] = entityService.reserveIds(shard, ID_BLOCK_SIZE);
+      counterLimit[shard] = nextCounter[shard] + ID_BLOCK_SIZE;
+    }
+    return nextCounter[shard]++ * SHARD_COUNT + shard;
+  }
+
+  private static <T> List<List<T>> emptyLists() {
+    final List<List<T>> lists = new ArrayList<>(SHARD_COUNT);
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      lists.add(new ArrayList<>());
+    }
+    return lists;
+  }
+
+  private static <T> List<Future<T>> startOnEveryShard(final IntFunction<Future<T>> query) {
+    final List<Future<T>> futures = new ArrayList<>(SHARD_COUNT);
+    for (int shard = 0; shard < SHARD_COUNT; shard++) {
+      futures.add(query.apply(shard));
+    }
+    return futures;
+  }
+
+  private static <T> List<T> gather(final IntFunction<Future<T>> query) {
+    return awaitAll(startOnEveryShard(query));
+  }
+
+  /**
+   * Waits for every future, even if one fails, so that no shard is still being written when this returns.
+   *
+   * @throws RuntimeException The first failure, if any.
+   */
+  private static <T> List<T> awaitAll(final List<Future<T>> futures) {
+    final List<T> results = new ArrayList<>(futures.size());
+    RuntimeException failure = null;
+    for (final Future<T> future : futures) {
+      try {
+        results.add(future.get());
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for a shard", e);
+      }
+      catch (final ExecutionException e) {
+        if (failure == null) {
+          failure = (e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                  : new IllegalStateException("A shard operation failed", e.getCause()));
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  /**
+   * Merges lists that are each in id order into one list in id order.
+   */
+  private static List<Contact> mergeById(final List<List<Contact>> sortedLists) {
+    int size = 0;
+    final PriorityQueue<Cursor> heads = new PriorityQueue<>(SHARD_COUNT, (a, b) -> BY_ID.compare(a.head(), b.head()));
+    for (final List<Contact> list : sortedLists) {
+      size += list.size();
+      if (!list.isEmpty()) {
+        heads.add(new Cursor(list));
+      }
+    }
+
+    final List<Contact> merged = new ArrayList<>(size);
+    while (!heads.isEmpty()) {
+      final Cursor cursor = heads.poll();
+      merged.add(cursor.head());
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Reads one shard in id order, a page at a time.
+   */
+  private class ShardCursor {
+
+    private final int shard;
+    private final String tenant;
+    private final boolean limited;
+    private List<Contact> page = Collections.emptyList();
+    private int index = -1;
+    private long lastId;
+
+    private ShardCursor(final int shard, final String tenant, final boolean limited) {
+      this.shard = shard;
+      this.tenant = tenant;
+      this.limited = limited;
+    }
+
+    private Contact head() {
+      return page.get(index);
+    }
+
+    /**
+     * @return True iff there are more elements.
+     */
+    private boolean advance() {
+      if (++index < page.size()) {
+        return true;
+      }
+      if (index > 0 && page.size() < SCAN_PAGE_SIZE) {
+        // The last page was not full, so the shard is exhausted.
+        return false;
+      }
+      if (!page.isEmpty()) {
+        lastId = page.get(page.size() - 1).getId();
+      }
+      page = (limited ? quotas.run(tenant, () -> entityService.getContactsAfter(shard, tenant, lastId, SCAN_PAGE_SIZE))
+              : entityService.getContactsAfter(shard, tenant, lastId, SCAN_PAGE_SIZE));
+      index = 0;
+      return !page.isEmpty();
+    }
+
+  }
+
+  private static class Cursor {
+
+    private final List<Contact> list;
+    private int index;
+
+    private Cursor(final List<Contact> list) {
+      this.list = list;
+    }
+
+    private Contact head() {
+      return list.get(index);
+    }
+
+    /**
+     * @return True iff there are more elements.
+     */
+    private boolean advance() {
+      return ++index < list.size();
+    }
+
+  }
+
+}
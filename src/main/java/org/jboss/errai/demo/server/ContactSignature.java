@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * The normalized fields of a {@link Contact} used for duplicate detection (see {@link DuplicateDetector}), without the
+ * rest of the entity, so that signatures for millions of contacts fit in memory.
+ */
+final class ContactSignature {
+
+  /**
+   * Phone numbers with fewer digits are too short to identify a contact.
+   */
+  private static final int MIN_PHONE_DIGITS = 7;
+
+  /**
+   * Phone numbers are compared by their last digits, so that numbers with and without a country code match.
+   */
+  private static final int COMPARED_PHONE_DIGITS = 10;
+
+  final long id;
+  final String name;
+  final String email;
+  final String phone;
+  final String phoneticName;
+
+  private ContactSignature(final long id, final String name, final String email, final String phone) {
+    this.id = id;
+    this.name = name;
+    this.email = email;
+    this.phone = phone;
+    this.phoneticName = (name == null ? null : phoneticKey(name));
+  }
+
+  static ContactSignature of(final Contact contact) {
+    final String fullname = normalizeName(contact.getFullname());
+    return new ContactSignature(contact.getId(),
+            (fullname != null ? fullname : normalizeName(contact.getNickname())),
+            normalizeEmail(contact.getEmail()),
+            normalizePhone(contact.getPhonenumber()));
+  }
+
+  /**
+   * @return The keys of the blocks this contact belongs to. Only contacts sharing a block are compared.
+   */
+  List<String> blockingKeys() {
+    final List<String> keys = new ArrayList<>(3);
+    if (email != null) {
+      keys.add("e:" + email);
+    }
+    if (phone != null) {
+      keys.add("p:" + phone);
+    }
+    if (phoneticName != null) {
+      keys.add("n:" + phoneticName);
+    }
+    return keys;
+  }
+
+  /**
+   * Lower case, with punctuation removed and whitespace collapsed.
+   */
+  static String normalizeName(final String name) {
+    if (name == null) {
+      return null;
+    }
+    final String normalized = name.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}\\s]", "")
+            .replaceAll("\\s+", " ").trim();
+    return (normalized.isEmpty() ? null : normalized);
+  }
+
+  /**
+   * Lower case, without a "+tag" suffix on the local part.
+   */
+  static String normalizeEmail(final String email) {
+    if (email == null) {
+      return null;
+    }
+    String normalized = email.trim().toLowerCase(Locale.ROOT);
+    final int at = normalized.indexOf('@');
+    if (at < 1) {
+      return null;
+    }
+    final int plus = normalized.indexOf('+');
+    if (plus > 0 && plus < at) {
+      normalized = normalized.substring(0, plus) + normalized.substring(at);
+    }
+    return normalized;
+  }
+
+  /**
+   * The last {@link #COMPARED_PHONE_DIGITS} digits, or null for numbers that are too short.
+   */
+  static String normalizePhone(final String phone) {
+    if (phone == null) {
+      return null;
+    }
+    final String digits = phone.replaceAll("[^0-9]", "");
+    if (digits.length() < MIN_PHONE_DIGITS) {
+      return null;
+    }
+    return digits.substring(Math.max(0, digits.length() - COMPARED_PHONE_DIGITS));
+  }
+
+  /**
+   * @return The Soundex codes of the first and last words of a normalized name, so that names spelled differently but
+   *         pronounced alike share a key.
+   */
+  static String phoneticKey(final String name) {
+    final String[] words = name.split(" ");
+    final String first = soundex(words[0]);
+    final String last = soundex(words[words.length - 1]);
+    if (first == null || last == null) {
+      return null;
+    }
+    return (words.length == 1 ? first : first + last);
+  }
+
+  private static String soundex(final String word) {
+    final StringBuilder code = new StringBuilder(4);
+    char previous = 0;
+    for (int i = 0; i < word.length() && code.length() < 4; i++) {
+      final char c = word.charAt(i);
+      if (c < 'a' || c > 'z') {
+        continue;
+      }
+      final char digit = "01230120022455012623010202".charAt(c - 'a');
+      if (code.length() == 0) {
+        code.append(Character.toUpperCase(c));
+      }
+      else if (digit != '0' && digit != previous) {
+        code.append(digit);
+      }
+      // As in American Soundex, 'h' and 'w' do not separate letters with the same code.
+      if (c != 'h' && c != 'w') {
+        previous = digit;
+      }
+    }
+    if (code.length() == 0) {
+      return null;
+    }
+    while (code.length() < 4) {
+      code.append('0');
+    }
+    return code.toString();
+  }
+
+}
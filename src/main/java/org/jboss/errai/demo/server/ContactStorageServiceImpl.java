@@ -16,77 +16,250 @@
 
 package org.jboss.errai.demo.server;
 
-import static org.jboss.errai.demo.client.shared.Operation.OperationType.CREATE;
-import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
-import static org.jboss.errai.demo.client.shared.Operation.OperationType.UPDATE;
-
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import javax.ejb.Stateless;
-import javax.enterprise.event.Event;
 import javax.inject.Inject;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 
 import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactBatchResult;
+import org.jboss.errai.demo.client.shared.ContactChanges;
 import org.jboss.errai.demo.client.shared.ContactOperation;
 import org.jboss.errai.demo.client.shared.ContactStorageService;
-import org.jboss.errai.demo.client.shared.Operation;
 
 /**
  * Server-side implementation for the RPC service, {@link ContactStorageService}. Performs database CRUD operations
- * using the {@link ContactEntityService} and fires Errai CDI {@link Event Events} that are observed by clients over the
- * wire to publish creation, update, and deletion of {@link Contact Contacts}.
+ * using the {@link ContactShardRouter} and publishes creation, update, and deletion of {@link Contact Contacts} to
+ * interested clients through the {@link ContactEventPublisher}. Every operation is on the address book of the tenant
+ * named by the host name of the request (see {@link Tenants}). Writes sent with an idempotency key are applied at most
+ * once (see {@link IdempotentWrites}). Writes are rate limited per session and remote address (see
+ * {@link WriteRateLimits}).
  */
 @Stateless
 public class ContactStorageServiceImpl implements ContactStorageService {
 
+  private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The web.xml context parameter that enables {@link #getServerCpuTime()} when set to {@code true}. It is off by
+   * default, since the CPU time of the server process is of no use to clients outside of benchmarks.
+   */
+  static final String BENCHMARK_PARAM = "errai-crud.benchmark";
+
+  @Inject
+  private ContactShardRouter router;
+
+  @Inject
+  private ContactEventPublisher publisher;
+
+  @Inject
+  private ContactCache cache;
+
   @Inject
-  private ContactEntityService entityService;
+  private IdempotentWrites idempotentWrites;
 
   @Inject
-  @Operation(CREATE)
-  private Event<ContactOperation> created;
+  private WriteRateLimits rateLimits;
 
   @Inject
-  @Operation(UPDATE)
-  private Event<ContactOperation> updated;
+  private HttpServletRequest request;
 
   @Inject
-  @Operation(DELETE)
-  private Event<Long> deleted;
+  private ServletContext servletContext;
 
   @Override
   public List<Contact> getAllContacts() {
-    return entityService.getAllContacts();
+    return router.getAllContacts(Tenants.of(request));
+  }
+
+  @Override
+  public ContactChanges getChanges(final long since) {
+    return router.getChangesSince(Tenants.of(request), since);
+  }
+
+  @Override
+  public ContactAggregates getAggregates() {
+    return cache.getAggregates(Tenants.of(request));
+  }
+
+  @Override
+  public List<Contact> getUpcomingBirthdays(final int days) {
+    return router.getUpcomingBirthdays(Tenants.of(request), days);
   }
 
   @Override
   public Response create(final ContactOperation contactOperation) {
-    entityService.create(contactOperation.getContact());
-    // This event is delivered to call connected clients.
-    created.fire(contactOperation);
+    final String tenant = Tenants.of(request);
+    // A retried create returns the id assigned by the first attempt.
+    final long id = rateLimits.run(request, 1,
+            () -> idempotentWrites.run(tenant, contactOperation.getIdempotencyKey(), () -> {
+              router.create(tenant, contactOperation.getContact());
+              // This event is delivered to the clients of the tenant that are interested in the contact.
+              publisher.created(contactOperation);
+              return contactOperation.getContact().getId();
+            }));
 
     return Response.created(UriBuilder.fromResource(ContactStorageService.class)
-            .path(String.valueOf(contactOperation.getContact().getId())).build()).build();
+            .path(String.valueOf(id)).build()).build();
   }
 
   @Override
   public Response update(final ContactOperation contactOperation) {
-    entityService.update(contactOperation.getContact());
-    // This event is delivered to call connected clients.
-    updated.fire(contactOperation);
+    final String tenant = Tenants.of(request);
+    rateLimits.run(request, 1, () -> idempotentWrites.run(tenant, contactOperation.getIdempotencyKey(), () -> {
+      router.update(tenant, contactOperation.getContact());
+      // This event is delivered to the clients of the tenant that are interested in the contact.
+      publisher.updated(contactOperation);
+      return true;
+    }));
 
     return Response.noContent().build();
   }
 
   @Override
   public Response delete(Long id) {
-    entityService.delete(id);
-    // This event is delivered to call connected clients.
-    deleted.fire(id);
+    final String tenant = Tenants.of(request);
+    rateLimits.run(request, 1, () -> {
+      final long revision = router.delete(tenant, id);
+      // This event is delivered to the clients of the tenant that are interested in the contact.
+      publisher.deleted(tenant, id, revision);
+    });
 
     return Response.noContent().build();
   }
 
+  @Override
+  public ContactBatchResult batch(final ContactBatch batch) {
+    final String tenant = Tenants.of(request);
+    final int writes = batch.getCreated().size() + batch.getUpdated().size() + batch.getDeleted().size();
+    return rateLimits.run(request, writes, () -> idempotentWrites.run(tenant, batch.getIdempotencyKey(), () -> {
+      final AppliedBatch applied = router.applyBatch(tenant, batch);
+      // One event per applied write, each delivered to the clients of the tenant interested in its contact.
+      publisher.batchApplied(tenant, batch, applied);
+      return applied.getResult();
+    }));
+  }
+
+  /**
+   * The export is written after this method returns, as the response is sent. Contacts are read from the
+   * {@link ContactShardRouter} a page at a time, so memory use does not depend on the number of contacts.
+   */
+  @Override
+  public Response export(final String format, final boolean gzip) {
+    final String tenant = Tenants.of(request);
+    if ("json".equalsIgnoreCase(format)) {
+      return exportJson(tenant, gzip);
+    }
+    final ContactExportFormat exportFormat;
+    try {
+      exportFormat = ContactExportFormat.forName(format);
+    }
+    catch (final IllegalArgumentException e) {
+      return Response.status(Status.BAD_REQUEST).entity("Unknown export format: " + format).build();
+    }
+
+    final StreamingOutput body = output -> {
+      final OutputStream stream = (gzip ? new GZIPOutputStream(output, EXPORT_BUFFER_SIZE) : output);
+      final Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8),
+              EXPORT_BUFFER_SIZE);
+      exportFormat.writeHeader(writer);
+      try {
+        router.forEachContact(tenant, contact -> {
+          try {
+            exportFormat.write(writer, contact);
+          }
+          catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      }
+      catch (final UncheckedIOException e) {
+        // The client has probably disconnected.
+        throw e.getCause();
+      }
+      writer.flush();
+      if (gzip) {
+        ((GZIPOutputStream) stream).finish();
+      }
+    };
+    final String filename = "contacts." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+
+    return Response.ok(body, gzip ? "application/gzip" : exportFormat.getMediaType() + ";charset=UTF-8")
+            .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+            .build();
+  }
+
+  /**
+   * Writes contacts as JSON lines encoded directly from the {@link ContactCache}, without creating a {@link Contact}
+   * for each. Unavailable until the contacts of the tenant are cached.
+   */
+  private Response exportJson(final String tenant, final boolean gzip) {
+    final ContactColumns columns = cache.getColumns(tenant);
+    if (columns == null) {
+      return Response.status(Status.SERVICE_UNAVAILABLE).header("Retry-After", 10)
+              .entity("Contacts are still being loaded").build();
+    }
+
+    final StreamingOutput body = output -> {
+      final OutputStream stream = (gzip ? new GZIPOutputStream(output, EXPORT_BUFFER_SIZE) : output);
+      final ByteArrayOutputStream page = new ByteArrayOutputStream(EXPORT_BUFFER_SIZE);
+      long lastId = 0;
+      while (true) {
+        final long pageEnd = columns.writeJson(lastId, ContactShardRouter.SCAN_PAGE_SIZE, page);
+        if (pageEnd == lastId) {
+          break;
+        }
+        page.writeTo(stream);
+        page.reset();
+        lastId = pageEnd;
+      }
+      if (gzip) {
+        ((GZIPOutputStream) stream).finish();
+      }
+    };
+    final String filename = "contacts.ndjson" + (gzip ? ".gz" : "");
+
+    return Response.ok(body, gzip ? "application/gzip" : "application/x-ndjson;charset=UTF-8")
+            .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+            .build();
+  }
+
+  /**
+   * @throws NotFoundException
+   *           Unless enabled with {@link #BENCHMARK_PARAM}.
+   */
+  @Override
+  public long getServerCpuTime() {
+    if (!"true".equals(servletContext.getInitParameter(BENCHMARK_PARAM))) {
+      throw new NotFoundException();
+    }
+    final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+    }
+    else {
+      return -1;
+    }
+  }
+
 }
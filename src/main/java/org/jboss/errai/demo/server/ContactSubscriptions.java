@@ -0,0 +1,325 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.bus.client.api.base.MessageBuilder;
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.bus.client.api.messaging.MessageCallback;
+import org.jboss.errai.bus.client.api.messaging.RequestDispatcher;
+import org.jboss.errai.bus.server.annotations.Service;
+import org.jboss.errai.bus.server.api.QueueSession;
+import org.jboss.errai.common.client.protocols.MessageParts;
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactAggregatesDelta;
+import org.jboss.errai.demo.client.shared.ContactEventsDropped;
+import org.jboss.errai.demo.client.shared.ContactInterest;
+import org.jboss.errai.demo.client.shared.ContactTokens;
+import org.jboss.errai.demo.client.shared.ContactsImported;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Keeps the {@link ContactInterest} of every client connected to this server, and sends each {@link ContactChange} only
+ * to the clients interested in it, so that the traffic to a client grows with what it displays rather than with the
+ * number of writes. Clients register their interest by sending messages to {@link ContactInterest#INTEREST_SUBJECT},
+ * which are answered once the interest is in effect.
+ *
+ * <p>
+ * Each tenant (see {@link Tenants}) has its own channel of subscriptions, so changes, {@link ContactsImported imports},
+ * and aggregates only reach the clients of the tenant that made them, and matching a change does not look at the
+ * clients of other tenants. Within a channel, subscriptions are indexed by visible contact id, so finding the clients
+ * showing a contact does not scan every client. Only clients with a filter are checked against the tokens of a created
+ * or updated contact. A subscription is removed when its bus session ends.
+ */
+@Service(ContactInterest.INTEREST_SUBJECT)
+@ApplicationScoped
+public class ContactSubscriptions implements MessageCallback {
+
+  /**
+   * Ids beyond this many per client are ignored, to bound the size of the index. Clients only send the ids of the
+   * contacts rendered on screen.
+   */
+  static final int MAX_VISIBLE_IDS = 1000;
+
+  private static final Logger logger = LoggerFactory.getLogger(ContactSubscriptions.class);
+
+  @Inject
+  private RequestDispatcher dispatcher;
+
+  private final Map<String, Subscription> bySession = new ConcurrentHashMap<>();
+
+  private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+  private final AtomicLong sent = new AtomicLong();
+
+  private final AtomicLong skipped = new AtomicLong();
+
+  @Override
+  public void callback(final Message message) {
+    final QueueSession session = message.getResource(QueueSession.class, "Session");
+    register(session, Tenants.of(message), message.get(ContactInterest.class, ContactInterest.INTEREST_PART));
+
+    MessageBuilder.createConversation(message)
+            .subjectProvided()
+            .signalling()
+            .with(ContactInterest.SERVER_TIME_PART, System.currentTimeMillis())
+            .noErrorHandling()
+            .reply();
+  }
+
+  /**
+   * Sends a change to every interested client of its tenant connected to this server.
+   */
+  public void deliver(final ContactChange change) {
+    final Channel channel = channels.get(change.getTenant());
+    if (channel == null) {
+      return;
+    }
+    final Set<Subscription> recipients = recipients(channel, change);
+    for (final Subscription subscription : recipients) {
+      send(subscription.sessionId, change);
+    }
+    sent.addAndGet(recipients.size());
+    skipped.addAndGet(Math.max(0, channel.members.size() - recipients.size()));
+  }
+
+  /**
+   * @return The ids of the sessions that {@link #deliver(ContactChange)} sends the change to.
+   */
+  Set<String> recipientsOf(final ContactChange change) {
+    final Channel channel = channels.get(change.getTenant());
+    final Set<String> sessionIds = new HashSet<>();
+    if (channel != null) {
+      for (final Subscription subscription : recipients(channel, change)) {
+        sessionIds.add(subscription.sessionId);
+      }
+    }
+    return sessionIds;
+  }
+
+  private static Set<Subscription> recipients(final Channel channel, final ContactChange change) {
+    final Set<Subscription> recipients = new HashSet<>();
+    final Set<Subscription> showing = channel.byVisibleId.get(change.getId());
+    if (showing != null) {
+      recipients.addAll(showing);
+    }
+    if (change.getType() != OperationType.DELETE) {
+      final Collection<String> tokens = ContactTokens.tokenize(change.getOperation().getContact());
+      for (final Subscription subscription : channel.filtered) {
+        if (ContactTokens.matches(tokens, subscription.terms)) {
+          recipients.add(subscription);
+        }
+      }
+      if (change.getType() == OperationType.CREATE) {
+        recipients.addAll(channel.unfiltered);
+      }
+    }
+    return recipients;
+  }
+
+  /**
+   * Tells every client of the tenant connected to this server about a bulk import.
+   */
+  public void deliver(final String tenant, final ContactsImported contactsImported) {
+    broadcast(tenant, ContactInterest.IMPORTS_SUBJECT, ContactInterest.IMPORTED_PART, contactsImported);
+  }
+
+  /**
+   * Tells every client of the tenant connected to this server that some of the tenant's changes were not delivered.
+   */
+  public void deliver(final String tenant, final ContactEventsDropped contactEventsDropped) {
+    broadcast(tenant, ContactInterest.DROPS_SUBJECT, ContactInterest.DROPPED_PART, contactEventsDropped);
+  }
+
+  /**
+   * Sends the changes to the aggregates of the tenant to every client of the tenant connected to this server.
+   */
+  public void deliver(final String tenant, final ContactAggregatesDelta delta) {
+    broadcast(tenant, ContactInterest.AGGREGATES_SUBJECT, ContactInterest.AGGREGATES_PART, delta);
+  }
+
+  private void broadcast(final String tenant, final String subject, final String part, final Object value) {
+    final Channel channel = channels.get(tenant);
+    if (channel == null) {
+      return;
+    }
+    for (final Subscription subscription : channel.members) {
+      try {
+        MessageBuilder.createMessage()
+                .toSubject(subject)
+                .signalling()
+                .with(MessageParts.SessionID, subscription.sessionId)
+                .with(part, value)
+                .noErrorHandling()
+                .sendNowWith(dispatcher);
+      }
+      catch (final RuntimeException e) {
+        logger.debug("Could not send to " + subject + " for session " + subscription.sessionId, e);
+        unregister(subscription.sessionId);
+      }
+    }
+    sent.addAndGet(channel.members.size());
+  }
+
+  public SubscriptionMetrics getMetrics() {
+    return new SubscriptionMetrics(bySession.size(), sent.get(), skipped.get());
+  }
+
+  private synchronized void register(final QueueSession session, final String tenant,
+          final ContactInterest interest) {
+    final String sessionId = session.getSessionId();
+    if (subscribe(sessionId, tenant, interest)) {
+      session.addSessionEndListener(event -> unregister(sessionId));
+    }
+  }
+
+  /**
+   * Replaces the interest of a session.
+   *
+   * @return True iff the session had no interest before.
+   */
+  synchronized boolean subscribe(final String sessionId, final String tenant, final ContactInterest interest) {
+    final List<Long> visibleIds = (interest.getVisibleIds() == null ? Collections.<Long> emptyList()
+            : interest.getVisibleIds());
+    final Subscription subscription = new Subscription(sessionId, tenant,
+            ContactTokens.splitTerms(interest.getFilter()),
+            new ArrayList<>(visibleIds.subList(0, Math.min(visibleIds.size(), MAX_VISIBLE_IDS))));
+
+    final Subscription previous = bySession.put(sessionId, subscription);
+    if (previous != null) {
+      unindex(previous);
+    }
+    index(subscription);
+    return previous == null;
+  }
+
+  private synchronized void unregister(final String sessionId) {
+    final Subscription subscription = bySession.remove(sessionId);
+    if (subscription != null) {
+      unindex(subscription);
+    }
+  }
+
+  private void index(final Subscription subscription) {
+    final Channel channel = channels.computeIfAbsent(subscription.tenant, tenant -> new Channel());
+    channel.members.add(subscription);
+    for (final Long id : subscription.visibleIds) {
+      channel.byVisibleId.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+    }
+    (subscription.terms.isEmpty() ? channel.unfiltered : channel.filtered).add(subscription);
+  }
+
+  private void unindex(final Subscription subscription) {
+    final Channel channel = channels.get(subscription.tenant);
+    for (final Long id : subscription.visibleIds) {
+      final Set<Subscription> showing = channel.byVisibleId.get(id);
+      if (showing != null) {
+        showing.remove(subscription);
+        if (showing.isEmpty()) {
+          channel.byVisibleId.remove(id);
+        }
+      }
+    }
+    channel.filtered.remove(subscription);
+    channel.unfiltered.remove(subscription);
+    channel.members.remove(subscription);
+    if (channel.members.isEmpty()) {
+      channels.remove(subscription.tenant);
+    }
+  }
+
+  private void send(final String sessionId, final ContactChange change) {
+    try {
+      if (change.getType() == OperationType.DELETE) {
+        MessageBuilder.createMessage()
+                .toSubject(ContactInterest.CHANGES_SUBJECT)
+                .signalling()
+                .with(MessageParts.SessionID, sessionId)
+                .with(ContactInterest.TYPE_PART, change.getType().name())
+                .with(ContactInterest.ID_PART, change.getId())
+                .with(ContactInterest.REVISION_PART, change.getRevision())
+                .noErrorHandling()
+                .sendNowWith(dispatcher);
+      }
+      else {
+        MessageBuilder.createMessage()
+                .toSubject(ContactInterest.CHANGES_SUBJECT)
+                .signalling()
+                .with(MessageParts.SessionID, sessionId)
+                .with(ContactInterest.TYPE_PART, change.getType().name())
+                .with(ContactInterest.ID_PART, change.getId())
+                .with(ContactInterest.REVISION_PART, change.getRevision())
+                .with(ContactInterest.OPERATION_PART, change.getOperation())
+                .noErrorHandling()
+                .sendNowWith(dispatcher);
+      }
+    }
+    catch (final RuntimeException e) {
+      // The session ended before its end listener ran.
+      logger.debug("Could not send a change to session " + sessionId, e);
+      unregister(sessionId);
+    }
+  }
+
+  /**
+   * The interest of one client. Immutable, so it can be read by delivering threads while a newer interest replaces it.
+   */
+  private static class Subscription {
+
+    private final String sessionId;
+    private final String tenant;
+    private final Collection<String> terms;
+    private final List<Long> visibleIds;
+
+    private Subscription(final String sessionId, final String tenant, final Collection<String> terms,
+            final List<Long> visibleIds) {
+      this.sessionId = sessionId;
+      this.tenant = tenant;
+      this.terms = terms;
+      this.visibleIds = visibleIds;
+    }
+
+  }
+
+  /**
+   * The subscriptions of one tenant.
+   */
+  private static class Channel {
+
+    private final Set<Subscription> members = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscription>> byVisibleId = new ConcurrentHashMap<>();
+    private final Set<Subscription> filtered = ConcurrentHashMap.newKeySet();
+    private final Set<Subscription> unfiltered = ConcurrentHashMap.newKeySet();
+
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jboss.errai.demo.client.shared.ContactAggregates;
+import org.jboss.errai.demo.client.shared.ContactAggregatesDelta;
+
+/**
+ * Counters behind {@link ContactAggregates}, kept by {@link ContactColumns}. Counting or uncounting a contact takes
+ * constant time, so the counters can be maintained with every write. The same class holds the changes since the last
+ * {@link ContactAggregatesDelta}.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class ContactTally {
+
+  private long total;
+
+  private long missingPhonenumber;
+
+  private long missingEmail;
+
+  /**
+   * Counts by email domain. Domains whose count returns to zero are removed.
+   */
+  private final Map<String, Long> emailDomains = new HashMap<>();
+
+  private final long[] birthMonths = new long[12];
+
+  /**
+   * Counts (with a {@code sign} of 1) or uncounts (with -1) a contact with the given fields.
+   *
+   * @param birthday
+   *          The epoch day of the birthday, or {@link ContactColumns#NO_BIRTHDAY}.
+   */
+  void add(final String phonenumber, final String email, final int birthday, final int sign) {
+    total += sign;
+    if (isBlank(phonenumber)) {
+      missingPhonenumber += sign;
+    }
+    if (isBlank(email)) {
+      missingEmail += sign;
+    }
+    else {
+      final int at = email.lastIndexOf('@');
+      if (at >= 0 && at < email.length() - 1) {
+        addDomain(email.substring(at + 1).trim().toLowerCase(Locale.ROOT), sign);
+      }
+    }
+    if (birthday != ContactColumns.NO_BIRTHDAY) {
+      birthMonths[LocalDate.ofEpochDay(birthday).getMonthValue() - 1] += sign;
+    }
+  }
+
+  /**
+   * Uncounts everything counted by another tally.
+   */
+  void subtract(final ContactTally other) {
+    total -= other.total;
+    missingPhonenumber -= other.missingPhonenumber;
+    missingEmail -= other.missingEmail;
+    for (final Map.Entry<String, Long> domain : other.emailDomains.entrySet()) {
+      addDomain(domain.getKey(), -domain.getValue());
+    }
+    for (int i = 0; i < birthMonths.length; i++) {
+      birthMonths[i] -= other.birthMonths[i];
+    }
+  }
+
+  /**
+   * @return True iff every counter is zero, such as after counting a contact and uncounting an identical one.
+   */
+  boolean isEmpty() {
+    if (total != 0 || missingPhonenumber != 0 || missingEmail != 0 || !emailDomains.isEmpty()) {
+      return false;
+    }
+    for (final long count : birthMonths) {
+      if (count != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  ContactTally copy() {
+    final ContactTally copy = new ContactTally();
+    copy.total = total;
+    copy.missingPhonenumber = missingPhonenumber;
+    copy.missingEmail = missingEmail;
+    copy.emailDomains.putAll(emailDomains);
+    System.arraycopy(birthMonths, 0, copy.birthMonths, 0, birthMonths.length);
+    return copy;
+  }
+
+  ContactAggregates toAggregates(final long sequence) {
+    final List<Long> months = new ArrayList<>(birthMonths.length);
+    for (final long count : birthMonths) {
+      months.add(count);
+    }
+    return new ContactAggregates(sequence, total, missingPhonenumber, missingEmail, new HashMap<>(emailDomains),
+            months);
+  }
+
+  ContactAggregatesDelta toDelta(final long sequence) {
+    final Map<Integer, Long> months = new HashMap<>();
+    for (int i = 0; i < birthMonths.length; i++) {
+      if (birthMonths[i] != 0) {
+        months.put(i + 1, birthMonths[i]);
+      }
+    }
+    return new ContactAggregatesDelta(sequence, total, missingPhonenumber, missingEmail, new HashMap<>(emailDomains),
+            months);
+  }
+
+  private void addDomain(final String domain, final long count) {
+    final long updated = emailDomains.getOrDefault(domain, 0L) + count;
+    if (updated == 0) {
+      emailDomains.remove(domain);
+    }
+    else {
+      emailDomains.put(domain, updated);
+    }
+  }
+
+  private static boolean isBlank(final String value) {
+    return value == null || value.trim().isEmpty();
+  }
+
+}
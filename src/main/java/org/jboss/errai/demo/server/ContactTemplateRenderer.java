@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * <p>
+ * Renders {@link Contact Contacts} to HTML on the server, using the same {@code contact-page.html#contact} template as
+ * the client-side {@code ContactDisplay} component. This allows the host page to display contacts before the GWT
+ * module has been downloaded.
+ *
+ * <p>
+ * Only the text content of the bound elements of the template (those with a CSS class matching a {@link Contact}
+ * property) is replaced, so the rendered markup looks the same as the markup rendered by the client.
+ */
+@ApplicationScoped
+public class ContactTemplateRenderer {
+
+  private static final String TEMPLATE_PACKAGE = "/org/jboss/errai/demo/client/local/";
+
+  private static final String CONTACT_DATA_FIELD = "data-field=\"contact\"";
+
+  private String contactTemplate;
+
+  private String stylesheet;
+
+  @PostConstruct
+  private void loadTemplate() {
+    contactTemplate = extractElement(readResource("contact-page.html"), CONTACT_DATA_FIELD);
+    stylesheet = readResource("contact-page.css");
+  }
+
+  /**
+   * @return The stylesheet of the contact components, which must be included in the page along with rendered contacts
+   *         (on the client, Errai UI injects it when the components are first created).
+   */
+  public String getStylesheet() {
+    return stylesheet;
+  }
+
+  public String render(final List<Contact> contacts) {
+    final StringBuilder builder = new StringBuilder();
+    for (final Contact contact : contacts) {
+      builder.append(render(contact));
+    }
+    return builder.toString();
+  }
+
+  public String render(final Contact contact) {
+    String html = contactTemplate;
+    html = replaceContent(html, "nickname", contact.getNickname());
+    html = replaceContent(html, "fullname", contact.getFullname());
+    html = replaceContent(html, "phonenumber", contact.getPhonenumber());
+    html = replaceContent(html, "email", contact.getEmail());
+    html = replaceContent(html, "birthday", formatDate(contact.getBirthday()));
+    html = replaceContent(html, "notes", contact.getNotes());
+
+    return html;
+  }
+
+  /**
+   * Matches the same output as the client-side {@code DateConverter} (an ISO 8601 date in UTC).
+   */
+  private static String formatDate(final Date date) {
+    if (date == null) {
+      return "";
+    }
+    final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format.format(date);
+  }
+
+  /**
+   * Replaces the content of the first element in {@code html} with the given CSS class.
+   */
+  private static String replaceContent(final String html, final String cssClass, final String value) {
+    final Pattern pattern = Pattern.compile(
+            "(<(\\w+)[^>]*\\sclass=\"(?:[^\"]*\\s)?" + cssClass + "(?:\\s[^\"]*)?\"[^>]*>)(.*?)(</\\2>)", Pattern.DOTALL);
+    final Matcher matcher = pattern.matcher(html);
+    if (!matcher.find()) {
+      throw new IllegalStateException("No element with class " + cssClass + " in contact template.");
+    }
+
+    return html.substring(0, matcher.end(1)) + escape(value) + html.substring(matcher.start(4));
+  }
+
+  /**
+   * @return The outer HTML of the element containing the given attribute.
+   */
+  private static String extractElement(final String html, final String attribute) {
+    final int attributeIndex = html.indexOf(attribute);
+    if (attributeIndex == -1) {
+      throw new IllegalStateException("Could not find " + attribute + " in contact-page.html.");
+    }
+    final int start = html.lastIndexOf('<', attributeIndex);
+    final Matcher tagName = Pattern.compile("<(\\w+)").matcher(html);
+    tagName.find(start);
+    final String tag = tagName.group(1);
+
+    final Matcher tags = Pattern.compile("<(/?)" + tag + "\\b").matcher(html);
+    int depth = 0;
+    int position = start;
+    while (tags.find(position)) {
+      depth += (tags.group(1).isEmpty() ? 1 : -1);
+      position = tags.end();
+      if (depth == 0) {
+        return html.substring(start, html.indexOf('>', position) + 1);
+      }
+    }
+
+    throw new IllegalStateException("Unclosed <" + tag + "> in contact-page.html.");
+  }
+
+  private static String escape(final String value) {
+    if (value == null) {
+      return "";
+    }
+    return value.replace("&", "&amp;")
+            .replace("<", "&lt;")
+            .replace(">", "&gt;")
+            .replace("\"", "&quot;");
+  }
+
+  private static String readResource(final String name) {
+    try (final InputStream stream = ContactTemplateRenderer.class.getResourceAsStream(TEMPLATE_PACKAGE + name)) {
+      if (stream == null) {
+        throw new IllegalStateException("Could not find " + name + " on the classpath.");
+      }
+      try (final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+        return reader.lines().collect(Collectors.joining("\n"));
+      }
+    } catch (final IOException e) {
+      throw new RuntimeException("Could not read " + name, e);
+    }
+  }
+
+}
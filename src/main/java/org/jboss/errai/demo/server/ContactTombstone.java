@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * Records the deletion of a {@link Contact} so that clients synchronizing incrementally can remove it from their
+ * caches.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "tenant, deletedAt"))
+@NamedQueries({
+  @NamedQuery(name = ContactTombstone.DELETED_SINCE_QUERY, query = "SELECT t.id FROM ContactTombstone t WHERE t.tenant = :tenant AND t.deletedAt > :since")
+})
+public class ContactTombstone {
+
+  public static final String DELETED_SINCE_QUERY = "deletedContactIds";
+
+  @Id
+  private long id;
+
+  @Column(nullable = false, length = 63)
+  private String tenant;
+
+  private long deletedAt;
+
+  protected ContactTombstone() {
+  }
+
+  public ContactTombstone(final long id, final String tenant, final long deletedAt) {
+    this.id = id;
+    this.tenant = tenant;
+    this.deletedAt = deletedAt;
+  }
+
+  /**
+   * The id of the deleted {@link Contact}.
+   */
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * The tenant of the deleted {@link Contact}.
+   */
+  public String getTenant() {
+    return tenant;
+  }
+
+  /**
+   * The revision at which the {@link Contact} was deleted.
+   */
+  public long getDeletedAt() {
+    return deletedAt;
+  }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * <p>
+ * Parses contacts from RFC 4180 CSV. The first record is a header naming the columns, which may be in any order:
+ * {@code fullname} (or {@code name}), {@code nickname}, {@code phonenumber} (or {@code phone}), {@code email},
+ * {@code birthday}, and {@code notes}. Header names are matched ignoring case, spaces, and punctuation. Other columns
+ * are ignored.
+ *
+ * <p>
+ * Quoted fields may contain commas, doubled quotes, and line breaks.
+ */
+class CsvContactParser implements ContactParser {
+
+  private static final Map<String, String> COLUMN_ALIASES = new HashMap<>();
+
+  static {
+    COLUMN_ALIASES.put("name", "fullname");
+    COLUMN_ALIASES.put("phone", "phonenumber");
+    COLUMN_ALIASES.put("telephone", "phonenumber");
+    COLUMN_ALIASES.put("birthdate", "birthday");
+    COLUMN_ALIASES.put("note", "notes");
+  }
+
+  private final BufferedReader reader;
+
+  /**
+   * Column index by normalized column name. Written once, when the header is read.
+   */
+  private volatile Map<String, Integer> columns;
+
+  CsvContactParser(final BufferedReader reader) {
+    this.reader = reader;
+  }
+
+  @Override
+  public String nextRecord() throws IOException {
+    if (columns == null) {
+      readHeader();
+    }
+    return readRecord();
+  }
+
+  @Override
+  public Contact parse(final String record) {
+    final List<String> fields = split(record);
+    return ContactRecords.toContact(field(fields, "fullname"), field(fields, "nickname"),
+            field(fields, "phonenumber"), field(fields, "email"), field(fields, "birthday"), field(fields, "notes"));
+  }
+
+  private void readHeader() throws IOException {
+    final String header = readRecord();
+    if (header == null) {
+      throw new IllegalArgumentException("The CSV input is empty");
+    }
+    final Map<String, Integer> headerColumns = new HashMap<>();
+    final List<String> names = split(header);
+    for (int i = 0; i < names.size(); i++) {
+      final String name = names.get(i).toLowerCase().replaceAll("[^a-z]", "");
+      final String alias = COLUMN_ALIASES.get(name);
+      headerColumns.put(alias != null ? alias : name, i);
+    }
+    if (!headerColumns.containsKey("fullname") && !headerColumns.containsKey("nickname")) {
+      throw new IllegalArgumentException("The CSV header must include a fullname or nickname column");
+    }
+    columns = headerColumns;
+  }
+
+  /**
+   * @return The next non-blank record, which spans several lines if a quoted field contains line breaks.
+   */
+  private String readRecord() throws IOException {
+    String line;
+    do {
+      line = reader.readLine();
+    } while (line != null && line.trim().isEmpty());
+    if (line == null) {
+      return null;
+    }
+
+    final StringBuilder record = new StringBuilder(line);
+    boolean quoted = isQuoteOpen(line, false);
+    while (quoted) {
+      line = reader.readLine();
+      if (line == null) {
+        throw new IllegalArgumentException("Unterminated quoted field at the end of the input");
+      }
+      record.append('\n').append(line);
+      quoted = isQuoteOpen(line, true);
+    }
+
+    return record.toString();
+  }
+
+  /**
+   * A doubled quote toggles twice, so counting quotes is enough to track whether a quoted field is still open.
+   */
+  private static boolean isQuoteOpen(final String line, final boolean openAtStart) {
+    boolean open = openAtStart;
+    for (int i = 0; i < line.length(); i++) {
+      if (line.charAt(i) == '"') {
+        open = !open;
+      }
+    }
+    return open;
+  }
+
+  private static List<String> split(final String record) {
+    final List<String> fields = new ArrayList<>();
+    final StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < record.length(); i++) {
+      final char c = record.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        }
+        else if (c == '"') {
+          quoted = false;
+        }
+        else {
+          field.append(c);
+        }
+      }
+      else if (c == '"') {
+        quoted = true;
+      }
+      else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      }
+      else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+
+    return fields;
+  }
+
+  private String field(final List<String> fields, final String column) {
+    final Integer index = columns.get(column);
+    return (index == null || index >= fields.size() ? null : fields.get(index));
+  }
+
+}
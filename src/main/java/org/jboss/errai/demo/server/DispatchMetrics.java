@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+/**
+ * Counters describing the delivery of {@link ContactChange ContactChanges} to clients by the
+ * {@link ContactEventDispatcher}.
+ */
+public class DispatchMetrics {
+
+  private final long dispatched;
+
+  private final long delivered;
+
+  private final long overflowed;
+
+  private final long failed;
+
+  private final long queued;
+
+  private final long maxQueueDelayMillis;
+
+  DispatchMetrics(final long dispatched, final long delivered, final long overflowed, final long failed,
+          final long queued, final long maxQueueDelayMillis) {
+    this.dispatched = dispatched;
+    this.delivered = delivered;
+    this.overflowed = overflowed;
+    this.failed = failed;
+    this.queued = queued;
+    this.maxQueueDelayMillis = maxQueueDelayMillis;
+  }
+
+  /**
+   * The number of changes queued for delivery.
+   */
+  public long getDispatched() {
+    return dispatched;
+  }
+
+  /**
+   * The number of changes delivered to clients.
+   */
+  public long getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * The number of changes dropped because their queue was full.
+   */
+  public long getOverflowed() {
+    return overflowed;
+  }
+
+  /**
+   * The number of changes whose delivery threw an exception.
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * The number of changes waiting for delivery.
+   */
+  public long getQueued() {
+    return queued;
+  }
+
+  /**
+   * The longest time a change has waited in a queue before delivery.
+   */
+  public long getMaxQueueDelayMillis() {
+    return maxQueueDelayMillis;
+  }
+
+}
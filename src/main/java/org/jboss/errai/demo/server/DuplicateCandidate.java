@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.List;
+
+/**
+ * Two contacts that are probably the same person, found by the {@link DuplicateDetector}. The contact with the lower id
+ * is always first, so each pair has one representation.
+ */
+public class DuplicateCandidate {
+
+  private final long firstId;
+
+  private final long secondId;
+
+  private final double score;
+
+  private final List<String> reasons;
+
+  DuplicateCandidate(final long firstId, final long secondId, final double score, final List<String> reasons) {
+    this.firstId = Math.min(firstId, secondId);
+    this.secondId = Math.max(firstId, secondId);
+    this.score = score;
+    this.reasons = reasons;
+  }
+
+  public long getFirstId() {
+    return firstId;
+  }
+
+  public long getSecondId() {
+    return secondId;
+  }
+
+  /**
+   * How likely the contacts are to be duplicates, between 0 and 1.
+   */
+  public double getScore() {
+    return score;
+  }
+
+  /**
+   * The fields that matched: {@code email}, {@code phone}, and/or {@code name}.
+   */
+  public List<String> getReasons() {
+    return reasons;
+  }
+
+  boolean involves(final long id) {
+    return firstId == id || secondId == id;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (!(obj instanceof DuplicateCandidate)) {
+      return false;
+    }
+    final DuplicateCandidate other = (DuplicateCandidate) obj;
+    return firstId == other.firstId && secondId == other.secondId;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(firstId) * 31 + Long.hashCode(secondId);
+  }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.List;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactOperation;
+
+/**
+ * <p>
+ * A JaxRS HTTP service for finding and merging duplicate {@link Contact Contacts} (see {@link DuplicateDetector}). Like
+ * the {@link ContactImportService}, this is not called from the GWT client. For example:
+ *
+ * <pre>
+ * curl -X POST http://localhost:8080/errai-crud/rest/contact/duplicates/scan
+ * curl http://localhost:8080/errai-crud/rest/contact/duplicates/scan
+ * curl 'http://localhost:8080/errai-crud/rest/contact/duplicates?offset=0&amp;max=100'
+ * curl -X POST 'http://localhost:8080/errai-crud/rest/contact/duplicates/merge?keep=4&amp;remove=17'
+ * </pre>
+ *
+ * <p>
+ * A merge is an update of the kept contact followed by a delete of the other, so connected clients are notified of
+ * them as if those changes were made by a user. Scans and merges are limited to the contacts of the tenant of the
+ * request (see {@link Tenants}).
+ */
+@Path("/contact/duplicates")
+@Stateless
+public class DuplicateContactService {
+
+  @Inject
+  private DuplicateDetector detector;
+
+  @Inject
+  private ContactShardRouter router;
+
+  @Inject
+  private ContactEventPublisher publisher;
+
+  @Inject
+  private HttpServletRequest request;
+
+  /**
+   * Starts a scan for duplicates, unless one is already running.
+   */
+  @POST
+  @Path("/scan")
+  @Produces("application/json")
+  public Response scan() {
+    return Response.status(Status.ACCEPTED).entity(detector.start(Tenants.of(request))).build();
+  }
+
+  @GET
+  @Path("/scan")
+  @Produces("application/json")
+  public Response getScan() {
+    final DuplicateScan scan = detector.getScan(Tenants.of(request));
+    return (scan == null ? Response.status(Status.NOT_FOUND) : Response.ok(scan)).build();
+  }
+
+  /**
+   * @return Duplicate candidates found by the last finished scan, by decreasing score.
+   */
+  @GET
+  @Produces("application/json")
+  public List<DuplicateCandidate> getCandidates(@QueryParam("offset") @DefaultValue("0") final int offset,
+          @QueryParam("max") @DefaultValue("100") final int max) {
+    return detector.getCandidates(Tenants.of(request), offset, max);
+  }
+
+  /**
+   * Fills empty fields of the kept contact from the removed one, appends the notes of the removed contact if they
+   * differ and there is room, and deletes the removed contact.
+   *
+   * @return The merged contact.
+   */
+  @POST
+  @Path("/merge")
+  @Produces("application/json")
+  public Response merge(@QueryParam("keep") final long keepId, @QueryParam("remove") final long removeId) {
+    if (keepId == removeId) {
+      return Response.status(Status.BAD_REQUEST).entity("A contact cannot be merged with itself").build();
+    }
+    final String tenant = Tenants.of(request);
+    final Contact kept = router.get(tenant, keepId);
+    final Contact removed = router.get(tenant, removeId);
+    if (kept == null || removed == null) {
+      return Response.status(Status.NOT_FOUND).build();
+    }
+
+    if (isBlank(kept.getFullname())) {
+      kept.setFullname(removed.getFullname());
+    }
+    if (isBlank(kept.getNickname())) {
+      kept.setNickname(removed.getNickname());
+    }
+    if (isBlank(kept.getPhonenumber())) {
+      kept.setPhonenumber(removed.getPhonenumber());
+    }
+    if (isBlank(kept.getEmail())) {
+      kept.setEmail(removed.getEmail());
+    }
+    if (kept.getBirthday() == null) {
+      kept.setBirthday(removed.getBirthday());
+    }
+    if (isBlank(kept.getNotes())) {
+      kept.setNotes(removed.getNotes());
+    }
+    else if (!isBlank(removed.getNotes()) && !kept.getNotes().contains(removed.getNotes())) {
+      final String notes = kept.getNotes() + "\n" + removed.getNotes();
+      if (notes.length() <= ContactRecords.MAX_FIELD_LENGTH) {
+        kept.setNotes(notes);
+      }
+    }
+
+    router.update(tenant, kept);
+    // These events are delivered to the clients of the tenant interested in either contact.
+    publisher.updated(new ContactOperation(kept, null, null));
+    final long revision = router.delete(tenant, removeId);
+    publisher.deleted(tenant, removeId, revision);
+    detector.forget(tenant, removeId);
+
+    return Response.ok(kept).build();
+  }
+
+  private static boolean isBlank(final String value) {
+    return value == null || value.trim().isEmpty();
+  }
+
+}
@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Finds pairs of {@link Contact Contacts} of a tenant (see {@link Tenants}) that are probably the same person. Scans
+ * run in the background, one at a time per tenant, and the candidates of a tenant's last finished scan are kept until
+ * its next one finishes.
+ *
+ * <p>
+ * A scan streams all contacts of the tenant through {@link ContactShardRouter#forEachContact}, keeping only a
+ * {@link ContactSignature} of each, and puts each contact in a block for each of its blocking keys: normalized email,
+ * normalized phone number, and phonetic name key. Only contacts that share a block are compared, which avoids comparing
+ * every pair of contacts. Blocks larger than {@link #MAX_BLOCK_SIZE} (such as a shared office number) are sorted by
+ * name, and each contact is only compared with its next {@link #WINDOW_SIZE} neighbours, so that one large block does
+ * not dominate the scan.
+ *
+ * <p>
+ * Blocks are compared in parallel on a fork/join pool, split into tasks of roughly equal numbers of comparisons. The
+ * pool only runs the comparisons, which use no container resources, so it does not need to be managed.
+ */
+@ApplicationScoped
+public class DuplicateDetector {
+
+  static final int MAX_BLOCK_SIZE = 1000;
+
+  static final int WINDOW_SIZE = 50;
+
+  /**
+   * Fork/join tasks are not split further once they have at most this many comparisons.
+   */
+  static final long LEAF_COMPARISONS = 20000;
+
+  /**
+   * At most this many candidates are kept, so that a scan of badly duplicated data does not exhaust memory. Merging the
+   * candidates found and scanning again finds more.
+   */
+  static final int MAX_CANDIDATES = 100000;
+
+  /**
+   * Pairs scoring less than this are not candidates.
+   */
+  static final double MIN_SCORE = 0.8;
+
+  /**
+   * Names less similar than this (by Jaro-Winkler similarity) do not count as matching.
+   */
+  static final double MIN_NAME_SIMILARITY = 0.85;
+
+  private static final Logger logger = LoggerFactory.getLogger(DuplicateDetector.class);
+
+  private static final Comparator<DuplicateCandidate> BY_SCORE = Comparator
+          .comparingDouble(DuplicateCandidate::getScore).reversed()
+          .thenComparingLong(DuplicateCandidate::getFirstId)
+          .thenComparingLong(DuplicateCandidate::getSecondId);
+
+  @Inject
+  private ContactShardRouter router;
+
+  @Resource
+  private ManagedExecutorService executor;
+
+  /**
+   * The last scan and candidates of each tenant. Guarded by this.
+   */
+  private final Map<String, TenantScans> tenants = new HashMap<>();
+
+  /**
+   * Starts a scan of the tenant's contacts, unless one is already running.
+   *
+   * @return The progress of the running scan.
+   */
+  public synchronized DuplicateScan start(final String tenant) {
+    final TenantScans scans = tenants.computeIfAbsent(tenant, key -> new TenantScans());
+    if (scans.scan == null || scans.scan.isDone()) {
+      final DuplicateScan newScan = new DuplicateScan();
+      scans.scan = newScan;
+      executor.submit(() -> run(tenant, scans, newScan));
+    }
+    return scans.scan;
+  }
+
+  /**
+   * @return The progress of the tenant's last scan, or null if there has been none.
+   */
+  public synchronized DuplicateScan getScan(final String tenant) {
+    final TenantScans scans = tenants.get(tenant);
+    return (scans == null ? null : scans.scan);
+  }
+
+  /**
+   * @return Candidates of the tenant's last finished scan, by decreasing score.
+   */
+  public synchronized List<DuplicateCandidate> getCandidates(final String tenant, final int offset, final int max) {
+    final TenantScans scans = tenants.get(tenant);
+    final List<DuplicateCandidate> candidates = (scans == null ? Collections.emptyList() : scans.candidates);
+    final int from = Math.min(Math.max(offset, 0), candidates.size());
+    return new ArrayList<>(candidates.subList(from, Math.min(from + Math.max(max, 0), candidates.size())));
+  }
+
+  /**
+   * Removes candidates involving a contact of the tenant that no longer exists.
+   */
+  public synchronized void forget(final String tenant, final long id) {
+    final TenantScans scans = tenants.get(tenant);
+    if (scans == null) {
+      return;
+    }
+    final List<DuplicateCandidate> remaining = new ArrayList<>(scans.candidates.size());
+    for (final DuplicateCandidate candidate : scans.candidates) {
+      if (!candidate.involves(id)) {
+        remaining.add(candidate);
+      }
+    }
+    scans.candidates = remaining;
+  }
+
+  private void run(final String tenant, final TenantScans scans, final DuplicateScan scan) {
+    try {
+      final List<DuplicateCandidate> found = findCandidates(tenant, scan);
+      synchronized (this) {
+        scans.candidates = found;
+      }
+      scan.finish(found.size(), null);
+      logger.info("Duplicate scan of tenant " + tenant + " compared " + scan.getComparisons() + " pairs of "
+              + scan.getScanned() + " contacts and found " + found.size() + " candidates");
+    }
+    catch (final RuntimeException e) {
+      logger.error("Duplicate scan of tenant " + tenant + " failed", e);
+      scan.finish(0, "The scan failed: " + e);
+    }
+  }
+
+  private List<DuplicateCandidate> findCandidates(final String tenant, final DuplicateScan scan) {
+    final List<ContactSignature> signatures = new ArrayList<>();
+    final Map<String, Block> blocksByKey = new HashMap<>();
+    router.forEachContact(tenant, contact -> {
+      final ContactSignature signature = ContactSignature.of(contact);
+      final int index = signatures.size();
+      signatures.add(signature);
+      for (final String key : signature.blockingKeys()) {
+        blocksByKey.computeIfAbsent(key, k -> new Block()).add(index);
+      }
+      scan.recordScanned();
+    });
+
+    final List<Block> blocks = new ArrayList<>();
+    for (final Block block : blocksByKey.values()) {
+      if (block.size > 1) {
+        blocks.add(block);
+      }
+    }
+    blocksByKey.clear();
+    scan.recordBlocks(blocks.size());
+
+    // Running totals of comparisons, for splitting the blocks into tasks of equal work.
+    final long[] work = new long[blocks.size() + 1];
+    for (int i = 0; i < blocks.size(); i++) {
+      work[i + 1] = work[i] + blocks.get(i).comparisons();
+    }
+
+    final Set<DuplicateCandidate> found = ConcurrentHashMap.newKeySet();
+    final ForkJoinPool pool = new ForkJoinPool();
+    try {
+      pool.invoke(new CompareTask(blocks, work, 0, blocks.size(), signatures, found, scan));
+    }
+    finally {
+      pool.shutdown();
+    }
+
+    final List<DuplicateCandidate> sorted = new ArrayList<>(found);
+    sorted.sort(BY_SCORE);
+    return sorted;
+  }
+
+  /**
+   * @return The candidate for the given pair, or null if they are probably not duplicates.
+   */
+  static DuplicateCandidate compare(final ContactSignature a, final ContactSignature b) {
+    final List<String> reasons = new ArrayList<>(3);
+    // The chance that the pair is not a duplicate, combining the evidence of each field as if it were independent.
+    double distinct = 1;
+    if (a.email != null && a.email.equals(b.email)) {
+      reasons.add("email");
+      distinct *= 0.1;
+    }
+    if (a.phone != null && a.phone.equals(b.phone)) {
+      reasons.add("phone");
+      distinct *= 0.25;
+    }
+    if (a.name != null && b.name != null) {
+      final double similarity = jaroWinkler(a.name, b.name);
+      if (similarity >= MIN_NAME_SIMILARITY) {
+        reasons.add("name");
+        distinct *= 1 - 0.8 * (similarity - MIN_NAME_SIMILARITY) / (1 - MIN_NAME_SIMILARITY);
+      }
+    }
+    final double score = 1 - distinct;
+    return (score >= MIN_SCORE ? new DuplicateCandidate(a.id, b.id, score, reasons) : null);
+  }
+
+  static double jaroWinkler(final String a, final String b) {
+    if (a.equals(b)) {
+      return 1;
+    }
+    final int range = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+    final boolean[] aMatched = new boolean[a.length()];
+    final boolean[] bMatched = new boolean[b.length()];
+    int matches = 0;
+    for (int i = 0; i < a.length(); i++) {
+      for (int j = Math.max(0, i - range); j < Math.min(b.length(), i + range + 1); j++) {
+        if (!bMatched[j] && a.charAt(i) == b.charAt(j)) {
+          aMatched[i] = bMatched[j] = true;
+          matches++;
+          break;
+        }
+      }
+    }
+    if (matches == 0) {
+      return 0;
+    }
+    int transpositions = 0;
+    for (int i = 0, j = 0; i < a.length(); i++) {
+      if (aMatched[i]) {
+        while (!bMatched[j]) {
+          j++;
+        }
+        if (a.charAt(i) != b.charAt(j)) {
+          transpositions++;
+        }
+        j++;
+      }
+    }
+    final double m = matches;
+    final double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2.0) / m) / 3;
+    int prefix = 0;
+    while (prefix < 4 && prefix < a.length() && prefix < b.length() && a.charAt(prefix) == b.charAt(prefix)) {
+      prefix++;
+    }
+    return jaro + prefix * 0.1 * (1 - jaro);
+  }
+
+  /**
+   * The indexes of the signatures of the contacts sharing a blocking key.
+   */
+  private static class Block {
+
+    private int[] members = new int[2];
+    private int size;
+
+    private void add(final int index) {
+      if (size == members.length) {
+        members = Arrays.copyOf(members, size * 2);
+      }
+      members[size++] = index;
+    }
+
+    private long comparisons() {
+      if (size <= MAX_BLOCK_SIZE) {
+        return (long) size * (size - 1) / 2;
+      }
+      return (long) (size - WINDOW_SIZE) * WINDOW_SIZE + (long) WINDOW_SIZE * (WINDOW_SIZE - 1) / 2;
+    }
+
+    private void compare(final List<ContactSignature> signatures, final Set<DuplicateCandidate> found) {
+      if (size <= MAX_BLOCK_SIZE) {
+        for (int i = 0; i < size; i++) {
+          for (int j = i + 1; j < size; j++) {
+            addCandidate(signatures.get(members[i]), signatures.get(members[j]), found);
+          }
+        }
+      }
+      else {
+        final ContactSignature[] sorted = new ContactSignature[size];
+        for (int i = 0; i < size; i++) {
+          sorted[i] = signatures.get(members[i]);
+        }
+        Arrays.sort(sorted, Comparator.comparing((ContactSignature s) -> s.name,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        for (int i = 0; i < size; i++) {
+          for (int j = i + 1; j < Math.min(size, i + WINDOW_SIZE + 1); j++) {
+            addCandidate(sorted[i], sorted[j], found);
+          }
+        }
+      }
+    }
+
+    private static void addCandidate(final ContactSignature a, final ContactSignature b,
+            final Set<DuplicateCandidate> found) {
+      final DuplicateCandidate candidate = DuplicateDetector.compare(a, b);
+      // A pair sharing several blocks is compared once per block, with the same result.
+      if (candidate != null && found.size() < MAX_CANDIDATES) {
+        found.add(candidate);
+      }
+    }
+
+  }
+
+  /**
+   * Compares the blocks in a range, splitting the range in two halves of equal work while it is too large.
+   */
+  private static class CompareTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Block> blocks;
+    private final long[] work;
+    private final int from;
+    private final int to;
+    private final List<ContactSignature> signatures;
+    private final Set<DuplicateCandidate> found;
+    private final DuplicateScan scan;
+
+    private CompareTask(final List<Block> blocks, final long[] work, final int from, final int to,
+            final List<ContactSignature> signatures, final Set<DuplicateCandidate> found, final DuplicateScan scan) {
+      this.blocks = blocks;
+      this.work = work;
+      this.from = from;
+      this.to = to;
+      this.signatures = signatures;
+      this.found = found;
+      this.scan = scan;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1 && work[to] - work[from] > LEAF_COMPARISONS) {
+        final long half = work[from] + (work[to] - work[from]) / 2;
+        int split = Arrays.binarySearch(work, from + 1, to, half);
+        split = (split >= 0 ? split : -split - 1);
+        split = Math.min(Math.max(split, from + 1), to - 1);
+        invokeAll(new CompareTask(blocks, work, from, split, signatures, found, scan),
+                new CompareTask(blocks, work, split, to, signatures, found, scan));
+      }
+      else {
+        for (int i = from; i < to; i++) {
+          blocks.get(i).compare(signatures, found);
+        }
+        scan.recordComparisons(work[to] - work[from]);
+      }
+    }
+
+  }
+
+  /**
+   * The last scan of one tenant, and the candidates it found.
+   */
+  private static class TenantScans {
+
+    private DuplicateScan scan;
+    private List<DuplicateCandidate> candidates = Collections.emptyList();
+
+  }
+
+}
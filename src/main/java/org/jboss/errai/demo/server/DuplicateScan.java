@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of one duplicate detection scan (see {@link DuplicateDetector}), readable while the scan is running.
+ */
+public class DuplicateScan {
+
+  private final AtomicLong scanned = new AtomicLong();
+
+  private final AtomicLong comparisons = new AtomicLong();
+
+  private volatile long blocks;
+
+  private volatile long candidates;
+
+  private volatile boolean done;
+
+  private volatile String failure;
+
+  /**
+   * The number of contacts read so far.
+   */
+  public long getScanned() {
+    return scanned.get();
+  }
+
+  /**
+   * The number of blocks with more than one contact, once all contacts have been read.
+   */
+  public long getBlocks() {
+    return blocks;
+  }
+
+  /**
+   * The number of contact pairs compared so far.
+   */
+  public long getComparisons() {
+    return comparisons.get();
+  }
+
+  /**
+   * The number of duplicate candidates found, once the scan is done.
+   */
+  public long getCandidates() {
+    return candidates;
+  }
+
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Why the scan stopped before comparing all contacts, or null.
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+  void recordScanned() {
+    scanned.incrementAndGet();
+  }
+
+  void recordBlocks(final long blocks) {
+    this.blocks = blocks;
+  }
+
+  void recordComparisons(final long count) {
+    comparisons.addAndGet(count);
+  }
+
+  void finish(final long candidates, final String failure) {
+    this.candidates = candidates;
+    this.failure = failure;
+    this.done = true;
+  }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.errai.demo.client.shared.ContactBatch;
+import org.jboss.errai.demo.client.shared.ContactOperation;
+
+/**
+ * <p>
+ * Remembers the outcome of writes sent with an idempotency key (see {@link ContactOperation#getIdempotencyKey()} and
+ * {@link ContactBatch#getIdempotencyKey()}), so that a write that is retried because its reply was lost is not applied
+ * twice. A retry of a write that is still running waits for it to finish.
+ *
+ * <p>
+ * Outcomes are remembered only by this server, and only for writes that succeeded, so a retry of a failed write, or a
+ * retry sent to another server, runs again. For a single contact write that failed, this is safe because it was rolled
+ * back. A batch is applied in one transaction per shard, so it may fail after some of its parts committed; each shard
+ * therefore also records the parts it applied (see {@link ContactBatchRecord}), and a batch that runs again applies
+ * only the remaining parts, whichever server it is sent to. Outcomes are kept for {@link #RETENTION_MILLIS}, which
+ * bounds how late a retry can arrive, and at most {@link #MAX_ENTRIES} are kept at once in memory, the oldest being
+ * forgotten first. Keys are scoped by tenant (see {@link Tenants}).
+ */
+@ApplicationScoped
+public class IdempotentWrites {
+
+  static final int MAX_ENTRIES = 10000;
+
+  static final long RETENTION_MILLIS = 10 * 60 * 1000;
+
+  static final int MAX_KEY_LENGTH = 128;
+
+  private static class Entry {
+
+    private final CompletableFuture<Object> outcome = new CompletableFuture<>();
+    private final long createdAt;
+
+    private Entry(final long createdAt) {
+      this.createdAt = createdAt;
+    }
+
+  }
+
+  /**
+   * In insertion order, so that the oldest entries are at the head.
+   */
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  /**
+   * The current time in milliseconds.
+   */
+  private final LongSupplier clock;
+
+  public IdempotentWrites() {
+    this(System::currentTimeMillis);
+  }
+
+  /**
+   * Creates an instance that reads the time from the given clock, as in tests.
+   */
+  IdempotentWrites(final LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Runs a write unless a write with the same key has run for the same tenant, and returns the outcome of the first
+   * write with the key.
+   *
+   * @param key
+   *          The idempotency key sent by the client. If null, the write is always run.
+   * @throws IllegalArgumentException
+   *           If the key is longer than {@link #MAX_KEY_LENGTH}.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T run(final String tenant, final String key, final Supplier<T> write) {
+    if (key == null) {
+      return write.get();
+    }
+    if (key.length() > MAX_KEY_LENGTH) {
+      throw new IllegalArgumentException("Idempotency key is longer than " + MAX_KEY_LENGTH + " characters");
+    }
+
+    final String scopedKey = tenant + "/" + key;
+    final Entry entry;
+    final Entry existing;
+    synchronized (entries) {
+      final long now = clock.getAsLong();
+      evict(now);
+      existing = entries.get(scopedKey);
+      entry = (existing == null ? new Entry(now) : existing);
+      if (existing == null) {
+        entries.put(scopedKey, entry);
+      }
+    }
+    if (existing != null) {
+      return (T) await(existing);
+    }
+
+    try {
+      final T result = write.get();
+      entry.outcome.complete(result);
+      return result;
+    }
+    catch (final RuntimeException | Error e) {
+      synchronized (entries) {
+        entries.remove(scopedKey, entry);
+      }
+      entry.outcome.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  private void evict(final long now) {
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      final Entry oldest = iterator.next();
+      if (entries.size() < MAX_ENTRIES && now - oldest.createdAt < RETENTION_MILLIS) {
+        break;
+      }
+      iterator.remove();
+    }
+  }
+
+  /**
+   * @return The outcome of a write with the same key, once it has finished. If it failed, its exception is thrown.
+   */
+  private static Object await(final Entry entry) {
+    try {
+      return entry.outcome.get();
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for an earlier attempt of the same write", e);
+    }
+    catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw (Error) e.getCause();
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The progress of one contact import, readable while the import is running (see
+ * {@link ContactImportService#getProgress(String)}) and returned as its result.
+ */
+public class ImportProgress {
+
+  /**
+   * Only the first rejected records are described, to bound the size of the progress report.
+   */
+  static final int MAX_ERRORS = 100;
+
+  private final String job;
+
+  private final AtomicLong read = new AtomicLong();
+
+  private final AtomicLong imported = new AtomicLong();
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+  private volatile boolean done;
+
+  private volatile String failure;
+
+  ImportProgress(final String job) {
+    this.job = job;
+  }
+
+  public String getJob() {
+    return job;
+  }
+
+  /**
+   * The number of records read from the input so far.
+   */
+  public long getRead() {
+    return read.get();
+  }
+
+  /**
+   * The number of contacts committed so far.
+   */
+  public long getImported() {
+    return imported.get();
+  }
+
+  /**
+   * The number of records that were not valid contacts.
+   */
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  /**
+   * Descriptions of the first {@link #MAX_ERRORS} rejected records, with their record numbers.
+   */
+  public List<String> getErrors() {
+    synchronized (errors) {
+      return new ArrayList<>(errors);
+    }
+  }
+
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * Why the import stopped before the end of the input, or null.
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+  void recordRead() {
+    read.incrementAndGet();
+  }
+
+  void recordImported(final int count) {
+    imported.addAndGet(count);
+  }
+
+  void recordRejected(final long recordNumber, final String reason) {
+    rejected.incrementAndGet();
+    synchronized (errors) {
+      if (errors.size() < MAX_ERRORS) {
+        errors.add("Record " + recordNumber + ": " + reason);
+      }
+    }
+  }
+
+  void finish(final String failure) {
+    this.failure = failure;
+    this.done = true;
+  }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * A JaxRS HTTP service reporting server metrics for monitoring. For example:
+ *
+ * <pre>
+ * curl http://localhost:8080/errai-crud/rest/metrics/events
+ * curl http://localhost:8080/errai-crud/rest/metrics/subscriptions
+ * curl http://localhost:8080/errai-crud/rest/metrics/cache
+ * curl http://localhost:8080/errai-crud/rest/metrics/tenants
+ * curl http://localhost:8080/errai-crud/rest/metrics/rate-limits
+ * curl http://localhost:8080/errai-crud/rest/metrics/client
+ * </pre>
+ */
+@Path("/metrics")
+@Stateless
+public class MetricsService {
+
+  @Inject
+  private ContactEventDispatcher dispatcher;
+
+  @Inject
+  private ContactSubscriptions subscriptions;
+
+  @Inject
+  private ContactCache cache;
+
+  @Inject
+  private TenantQuotas quotas;
+
+  @Inject
+  private WriteRateLimits rateLimits;
+
+  @Inject
+  private ClientLatencyHistograms clientLatencies;
+
+  /**
+   * @return Counters for the delivery of contact change events to clients.
+   */
+  @GET
+  @Path("/events")
+  @Produces("application/json")
+  public DispatchMetrics getEventMetrics() {
+    return dispatcher.getMetrics();
+  }
+
+  /**
+   * @return Counters for the change messages sent to, and withheld from, clients by interest.
+   */
+  @GET
+  @Path("/subscriptions")
+  @Produces("application/json")
+  public SubscriptionMetrics getSubscriptionMetrics() {
+    return subscriptions.getMetrics();
+  }
+
+  /**
+   * @return The size of the in-memory contact cache, on and off the Java heap, over all tenants.
+   */
+  @GET
+  @Path("/cache")
+  @Produces("application/json")
+  public CacheMetrics getCacheMetrics() {
+    return cache.getMetrics();
+  }
+
+  /**
+   * @return The load and quota rejections of every tenant that has been active since startup.
+   */
+  @GET
+  @Path("/tenants")
+  @Produces("application/json")
+  public List<TenantMetrics> getTenantMetrics() {
+    return quotas.getMetrics();
+  }
+
+  /**
+   * @return Counters for the contact writes admitted and rejected by the per-session and per-address rate limits.
+   */
+  @GET
+  @Path("/rate-limits")
+  @Produces("application/json")
+  public RateLimitMetrics getRateLimitMetrics() {
+    return rateLimits.getMetrics();
+  }
+
+  /**
+   * Receives a beacon of latencies measured in a browser, one {@code <name> <milliseconds>} sample per line.
+   */
+  @POST
+  @Path("/client")
+  @Consumes("text/plain")
+  public void recordClientLatencies(final Reader beacon) throws IOException {
+    clientLatencies.record(beacon);
+  }
+
+  /**
+   * @return Percentiles of the latencies measured in browsers since startup, by measurement.
+   */
+  @GET
+  @Path("/client")
+  @Produces("application/json")
+  public List<ClientLatency> getClientLatencies() {
+    return clientLatencies.getSummaries();
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * Marks a revision that was issued from the {@link ContactRevisionCounter} of a shard database but whose write
+ * transaction has not yet committed. It is inserted, with the counter update, in a short transaction of its own, and
+ * deleted by the write transaction itself, so it disappears when the write commits (see {@link ContactRevisions}).
+ */
+@Entity
+@Table(indexes = @Index(columnList = "issuedAt"))
+@NamedQueries({
+  @NamedQuery(name = PendingContactRevision.OLDEST_QUERY, query = "SELECT MIN(p.revision) FROM PendingContactRevision p"),
+  @NamedQuery(name = PendingContactRevision.RELEASE_QUERY, query = "DELETE FROM PendingContactRevision p WHERE p.revision = :revision"),
+  @NamedQuery(name = PendingContactRevision.PURGE_QUERY, query = "DELETE FROM PendingContactRevision p WHERE p.issuedAt < :before")
+})
+public class PendingContactRevision {
+
+  public static final String OLDEST_QUERY = "oldestPendingContactRevision";
+
+  public static final String RELEASE_QUERY = "releasePendingContactRevision";
+
+  public static final String PURGE_QUERY = "purgePendingContactRevisions";
+
+  @Id
+  private long revision;
+
+  /**
+   * The server time at which the revision was issued.
+   */
+  private long issuedAt;
+
+  protected PendingContactRevision() {
+  }
+
+  public PendingContactRevision(final long revision, final long issuedAt) {
+    this.revision = revision;
+    this.issuedAt = issuedAt;
+  }
+
+  public long getRevision() {
+    return revision;
+  }
+
+  public long getIssuedAt() {
+    return issuedAt;
+  }
+
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+/**
+ * Counters for the contact writes admitted and rejected by the {@link WriteRateLimits} since startup.
+ */
+public class RateLimitMetrics {
+
+  private final long admitted;
+
+  private final long limitedBySession;
+
+  private final long limitedByAddress;
+
+  private final long limitedByConcurrency;
+
+  private final long sessions;
+
+  private final long addresses;
+
+  private final long evicted;
+
+  RateLimitMetrics(final long admitted, final long limitedBySession, final long limitedByAddress,
+          final long limitedByConcurrency, final long sessions, final long addresses, final long evicted) {
+    this.admitted = admitted;
+    this.limitedBySession = limitedBySession;
+    this.limitedByAddress = limitedByAddress;
+    this.limitedByConcurrency = limitedByConcurrency;
+    this.sessions = sessions;
+    this.addresses = addresses;
+    this.evicted = evicted;
+  }
+
+  public long getAdmitted() {
+    return admitted;
+  }
+
+  /**
+   * The number of writes rejected because their session had too few tokens.
+   */
+  public long getLimitedBySession() {
+    return limitedBySession;
+  }
+
+  /**
+   * The number of writes rejected because their remote address had too few tokens.
+   */
+  public long getLimitedByAddress() {
+    return limitedByAddress;
+  }
+
+  /**
+   * The number of writes rejected because the other writes of their session ran for too long.
+   */
+  public long getLimitedByConcurrency() {
+    return limitedByConcurrency;
+  }
+
+  /**
+   * The number of sessions with a bucket now.
+   */
+  public long getSessions() {
+    return sessions;
+  }
+
+  /**
+   * The number of remote addresses with a bucket now.
+   */
+  public long getAddresses() {
+    return addresses;
+  }
+
+  /**
+   * The number of idle buckets removed.
+   */
+  public long getEvicted() {
+    return evicted;
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+/**
+ * Counters describing the delivery of {@link ContactChange ContactChanges} to interested clients by the
+ * {@link ContactSubscriptions}.
+ */
+public class SubscriptionMetrics {
+
+  private final long subscriptions;
+
+  private final long sent;
+
+  private final long skipped;
+
+  SubscriptionMetrics(final long subscriptions, final long sent, final long skipped) {
+    this.subscriptions = subscriptions;
+    this.sent = sent;
+    this.skipped = skipped;
+  }
+
+  /**
+   * The number of clients with a registered interest.
+   */
+  public long getSubscriptions() {
+    return subscriptions;
+  }
+
+  /**
+   * The number of change messages sent to clients.
+   */
+  public long getSent() {
+    return sent;
+  }
+
+  /**
+   * The number of change messages not sent because the client was not interested.
+   */
+  public long getSkipped() {
+    return skipped;
+  }
+
+}
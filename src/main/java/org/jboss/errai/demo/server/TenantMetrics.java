@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+/**
+ * Counters describing the load of one tenant (see {@link TenantQuotas}).
+ */
+public class TenantMetrics {
+
+  private final String tenant;
+
+  private final long active;
+
+  private final long admitted;
+
+  private final long rejected;
+
+  private final long cachedContacts;
+
+  TenantMetrics(final String tenant, final long active, final long admitted, final long rejected,
+          final long cachedContacts) {
+    this.tenant = tenant;
+    this.active = active;
+    this.admitted = admitted;
+    this.rejected = rejected;
+    this.cachedContacts = cachedContacts;
+  }
+
+  public String getTenant() {
+    return tenant;
+  }
+
+  /**
+   * The number of operations of the tenant running now.
+   */
+  public long getActive() {
+    return active;
+  }
+
+  /**
+   * The number of operations of the tenant started since startup.
+   */
+  public long getAdmitted() {
+    return admitted;
+  }
+
+  /**
+   * The number of operations of the tenant rejected because too many were running.
+   */
+  public long getRejected() {
+    return rejected;
+  }
+
+  /**
+   * The number of contacts of the tenant in the {@link ContactCache}, or -1 if they are not cached.
+   */
+  public long getCachedContacts() {
+    return cachedContacts;
+  }
+
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * <p>
+ * Limits the number of contact operations each tenant (see {@link Tenants}) can run at once, so that one tenant with
+ * heavy traffic cannot take all of the shard connections and worker threads, and raise the latency of every other
+ * tenant. An operation waits up to {@link #MAX_WAIT_MILLIS} for one of its tenant's {@link #MAX_CONCURRENT_OPERATIONS}
+ * permits, and otherwise fails with a {@link TenantQuotaExceededException}, which HTTP clients receive as a
+ * {@code 429 Too Many Requests} response.
+ *
+ * <p>
+ * Since each operation holds a permit only while it runs, a tenant's throughput is bounded by this limit divided by its
+ * latency, regardless of how many clients it has. A quota is kept for each tenant that has been used, of which there are
+ * at most as many as are configured (see {@link Tenants}).
+ */
+@ApplicationScoped
+public class TenantQuotas {
+
+  static final int MAX_CONCURRENT_OPERATIONS = 8;
+
+  static final long MAX_WAIT_MILLIS = 1000;
+
+  @Inject
+  private ContactCache cache;
+
+  private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+
+  /**
+   * Runs an operation for the given tenant once one of its permits is available.
+   *
+   * @throws TenantQuotaExceededException
+   *           If no permit became available in time.
+   */
+  public <T> T run(final String tenant, final Supplier<T> operation) {
+    final Quota quota = quotas.computeIfAbsent(tenant, Quota::new);
+    try {
+      if (!quota.permits.tryAcquire(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+        quota.rejected.incrementAndGet();
+        throw new TenantQuotaExceededException(tenant);
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a quota of tenant " + tenant, e);
+    }
+    quota.admitted.incrementAndGet();
+    try {
+      return operation.get();
+    }
+    finally {
+      quota.permits.release();
+    }
+  }
+
+  public void run(final String tenant, final Runnable operation) {
+    run(tenant, () -> {
+      operation.run();
+      return null;
+    });
+  }
+
+  /**
+   * @return Counters for every tenant that has run an operation since startup.
+   */
+  public List<TenantMetrics> getMetrics() {
+    final List<TenantMetrics> metrics = new ArrayList<>(quotas.size());
+    for (final Quota quota : quotas.values()) {
+      metrics.add(new TenantMetrics(quota.tenant, MAX_CONCURRENT_OPERATIONS - quota.permits.availablePermits(),
+              quota.admitted.get(), quota.rejected.get(), cache.getCachedContacts(quota.tenant)));
+    }
+    return metrics;
+  }
+
+  private static class Quota {
+
+    private final String tenant;
+    private final Semaphore permits = new Semaphore(MAX_CONCURRENT_OPERATIONS, true);
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private Quota(final String tenant) {
+      this.tenant = tenant;
+    }
+
+  }
+
+}
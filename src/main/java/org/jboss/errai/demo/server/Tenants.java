@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.jboss.errai.bus.client.api.messaging.Message;
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * <p>
+ * Identifies the tenant (the customer whose address book is used) of a request. Every tenant is served on its own host
+ * name, and the tenant id is the first label of that name: requests to {@code acme.contacts.example.com} are for the
+ * tenant {@code acme}. Requests to a host name with fewer than three labels, such as {@code localhost}, or to an IP
+ * address are for the tenant {@link #DEFAULT}.
+ *
+ * <p>
+ * The host name is sent by the client, so it is only trusted to select one of the tenants listed in the
+ * {@link #TENANTS_PARAM} context parameter. Requests for any other tenant are rejected (see {@link TenantFilter}), so
+ * clients cannot create tenants, and with them per-tenant state such as quotas and cached contacts, at will.
+ *
+ * <p>
+ * Each {@link Contact} belongs to one tenant, and every read and write is limited to the contacts of the tenant of the
+ * request. Work done off the request thread is given the tenant explicitly.
+ */
+final class Tenants {
+
+  static final String DEFAULT = "default";
+
+  /**
+   * The name of the context parameter that lists the tenant ids served, separated by commas.
+   */
+  static final String TENANTS_PARAM = "errai-crud.tenants";
+
+  /**
+   * The servlet context attribute in which the parsed {@link #TENANTS_PARAM} is kept.
+   */
+  private static final String TENANTS_ATTRIBUTE = Tenants.class.getName() + ".tenants";
+
+  private static final Pattern TENANT_ID = Pattern.compile("[a-z0-9]([a-z0-9-]{0,61}[a-z0-9])?");
+
+  private static final Pattern IP_ADDRESS = Pattern.compile("[0-9.]+|.*:.*");
+
+  private Tenants() {
+  }
+
+  /**
+   * @return The tenant id named by the host name, which may not be a configured tenant.
+   * @throws UnknownTenantException
+   *           If the first label of the host name is not a valid tenant id.
+   */
+  static String fromHost(final String host) {
+    if (host == null || IP_ADDRESS.matcher(host).matches()) {
+      return DEFAULT;
+    }
+    final String[] labels = host.toLowerCase(Locale.ROOT).split("\\.");
+    if (labels.length < 3) {
+      return DEFAULT;
+    }
+    if (!TENANT_ID.matcher(labels[0]).matches()) {
+      throw new UnknownTenantException(host);
+    }
+    return labels[0];
+  }
+
+  /**
+   * @throws UnknownTenantException
+   *           If the request's host name does not name a configured tenant.
+   */
+  static String of(final HttpServletRequest request) {
+    final String tenant = fromHost(request.getServerName());
+    if (!configured(request.getServletContext()).contains(tenant)) {
+      throw new UnknownTenantException(request.getServerName());
+    }
+    return tenant;
+  }
+
+  /**
+   * @return The tenant ids listed in the {@link #TENANTS_PARAM} context parameter.
+   */
+  @SuppressWarnings("unchecked")
+  private static Set<String> configured(final ServletContext servletContext) {
+    Set<String> tenants = (Set<String>) servletContext.getAttribute(TENANTS_ATTRIBUTE);
+    if (tenants == null) {
+      tenants = new HashSet<>();
+      final String param = servletContext.getInitParameter(TENANTS_PARAM);
+      for (final String tenant : (param != null ? param : DEFAULT).split(",")) {
+        if (!tenant.trim().isEmpty()) {
+          tenants.add(tenant.trim().toLowerCase(Locale.ROOT));
+        }
+      }
+      tenants = Collections.unmodifiableSet(tenants);
+      servletContext.setAttribute(TENANTS_ATTRIBUTE, tenants);
+    }
+    return tenants;
+  }
+
+  /**
+   * @return The tenant of the HTTP request that delivered a bus message.
+   */
+  static String of(final Message message) {
+    final HttpServletRequest request = message.getResource(HttpServletRequest.class,
+            HttpServletRequest.class.getName());
+    if (request == null) {
+      throw new IllegalStateException("The tenant of a message not received over HTTP is unknown");
+    }
+    return of(request);
+  }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import javax.ejb.ApplicationException;
+
+/**
+ * Thrown when a request is made to a host name that does not belong to a configured tenant (see {@link Tenants}). This
+ * is an {@link ApplicationException} so that it reaches clients unwrapped.
+ */
+@ApplicationException(rollback = true)
+public class UnknownTenantException extends IllegalArgumentException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String host;
+
+  public UnknownTenantException(final String host) {
+    super("No tenant is served on " + host);
+    this.host = host;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+}
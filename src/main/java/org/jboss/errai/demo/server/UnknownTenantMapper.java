@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Answers JaxRS requests made to the host name of an unknown tenant with {@code 404 Not Found}.
+ */
+@Provider
+public class UnknownTenantMapper implements ExceptionMapper<UnknownTenantException> {
+
+  @Override
+  public Response toResponse(final UnknownTenantException exception) {
+    return Response.status(Status.NOT_FOUND).entity(exception.getMessage()).build();
+  }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import org.jboss.errai.demo.client.shared.Contact;
+
+/**
+ * <p>
+ * Parses contacts from vCards (versions 2.1, 3.0, and 4.0). Each {@code BEGIN:VCARD} ... {@code END:VCARD} block is one
+ * record. These properties are mapped, using the first occurrence of each:
+ * <ul>
+ * <li>{@code FN} (or {@code N} if there is no {@code FN}) to the full name
+ * <li>{@code NICKNAME} to the nickname
+ * <li>{@code TEL} to the phone number
+ * <li>{@code EMAIL} to the email address
+ * <li>{@code BDAY} to the birthday
+ * <li>{@code NOTE} to the notes
+ * </ul>
+ * Other properties are ignored.
+ */
+class VCardContactParser implements ContactParser {
+
+  private final BufferedReader reader;
+
+  VCardContactParser(final BufferedReader reader) {
+    this.reader = reader;
+  }
+
+  @Override
+  public String nextRecord() throws IOException {
+    String line;
+    do {
+      line = reader.readLine();
+    } while (line != null && !line.trim().equalsIgnoreCase("BEGIN:VCARD"));
+    if (line == null) {
+      return null;
+    }
+
+    final StringBuilder record = new StringBuilder();
+    while ((line = reader.readLine()) != null && !line.trim().equalsIgnoreCase("END:VCARD")) {
+      record.append(line).append('\n');
+    }
+    if (line == null) {
+      throw new IllegalArgumentException("Missing END:VCARD at the end of the input");
+    }
+
+    return record.toString();
+  }
+
+  @Override
+  public Contact parse(final String record) {
+    String fullname = null;
+    String structuredName = null;
+    String nickname = null;
+    String phonenumber = null;
+    String email = null;
+    String birthday = null;
+    String notes = null;
+
+    // Lines starting with a space or tab continue the previous line.
+    for (final String line : record.replaceAll("\r?\n[ \t]", "").split("\r?\n")) {
+      final int colon = line.indexOf(':');
+      if (colon <= 0) {
+        continue;
+      }
+      String name = line.substring(0, colon);
+      final int parameters = name.indexOf(';');
+      if (parameters != -1) {
+        name = name.substring(0, parameters);
+      }
+      // Strip the group, as in "item1.EMAIL".
+      name = name.substring(name.lastIndexOf('.') + 1).toUpperCase();
+      final String value = line.substring(colon + 1);
+
+      switch (name) {
+      case "FN":
+        fullname = (fullname == null ? unescape(value) : fullname);
+        break;
+      case "N":
+        structuredName = (structuredName == null ? formatStructuredName(value) : structuredName);
+        break;
+      case "NICKNAME":
+        nickname = (nickname == null ? unescape(value) : nickname);
+        break;
+      case "TEL":
+        phonenumber = (phonenumber == null ? unescape(value.replaceFirst("(?i)^tel:", "")) : phonenumber);
+        break;
+      case "EMAIL":
+        email = (email == null ? unescape(value) : email);
+        break;
+      case "BDAY":
+        // Drop any time of day, as in "19850415T000000Z".
+        birthday = (birthday == null ? value.split("T")[0] : birthday);
+        break;
+      case "NOTE":
+        notes = (notes == null ? unescape(value) : notes);
+        break;
+      default:
+        break;
+      }
+    }
+
+    return ContactRecords.toContact(fullname != null ? fullname : structuredName, nickname, phonenumber, email,
+            birthday, notes);
+  }
+
+  /**
+   * @return "Given Family" from a structured name, "Family;Given;Additional;Prefix;Suffix".
+   */
+  private static String formatStructuredName(final String value) {
+    final String[] parts = value.split("(?<!\\\\);", -1);
+    final String family = unescape(parts[0]).trim();
+    final String given = (parts.length > 1 ? unescape(parts[1]).trim() : "");
+    return (given + " " + family).trim();
+  }
+
+  private static String unescape(final String value) {
+    final StringBuilder builder = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        final char next = value.charAt(++i);
+        builder.append(next == 'n' || next == 'N' ? '\n' : next);
+      }
+      else {
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.ejb.ApplicationException;
+
+/**
+ * Thrown when a session or remote address writes contacts faster than its {@link WriteRateLimits rate limit} allows.
+ * This is an {@link ApplicationException} so that it reaches clients unwrapped.
+ */
+@ApplicationException(rollback = true)
+public class WriteRateLimitedException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long retryAfterMillis;
+
+  /**
+   * @param limit
+   *          What is limited: {@code session} or {@code address}.
+   */
+  public WriteRateLimitedException(final String limit, final long retryAfterMillis) {
+    super("Too many writes from this " + limit);
+    this.retryAfterMillis = retryAfterMillis;
+  }
+
+  /**
+   * The time after which a retry of the same write could be admitted.
+   */
+  public long getRetryAfterMillis() {
+    return retryAfterMillis;
+  }
+
+}
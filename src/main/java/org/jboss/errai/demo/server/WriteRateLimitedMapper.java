@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Answers JaxRS requests rejected by the {@link WriteRateLimits} with {@code 429 Too Many Requests}, and tells the
+ * client how many seconds to wait before retrying.
+ */
+@Provider
+public class WriteRateLimitedMapper implements ExceptionMapper<WriteRateLimitedException> {
+
+  @Override
+  public Response toResponse(final WriteRateLimitedException exception) {
+    return Response.status(TenantQuotaExceededMapper.TOO_MANY_REQUESTS)
+            .header("Retry-After", Math.max(1, (exception.getRetryAfterMillis() + 999) / 1000))
+            .entity(exception.getMessage())
+            .build();
+  }
+
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.server;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * <p>
+ * Limits the rate of contact writes from each HTTP session (which carries the client's bus session) and from each
+ * remote address, so that one misbehaving client or script cannot flood the shards and the change events sent to every
+ * other client. Each session and address has a token bucket: it refills at a steady rate, holds up to a burst, and a
+ * write takes one token per contact it writes. A write without enough tokens fails with a
+ * {@link WriteRateLimitedException}, which HTTP clients receive as a {@code 429 Too Many Requests} response saying when
+ * to retry. Requests without a session are limited by their address alone.
+ *
+ * <p>
+ * Behind a reverse proxy or load balancer, every request comes from the proxy's address, so all clients would share
+ * one address bucket. The address of the client is then read from the header named by {@link #ADDRESS_HEADER_PARAM},
+ * which must be set by a proxy that is trusted to overwrite or append to it (otherwise clients can choose their own
+ * address). If the header has several comma-separated addresses, the last one, added by the proxy, is used. Limiting by
+ * address can also be turned off with {@link #BY_ADDRESS_PARAM}, leaving the session limits.
+ *
+ * <p>
+ * Writes are also scheduled fairly across sessions: a session may have at most
+ * {@link #MAX_CONCURRENT_WRITES_PER_SESSION} writes running, and further writes wait in arrival order for one of them
+ * to finish. Since writes then wait in the {@link TenantQuotas} in arrival order, a busy session cannot take all of its
+ * tenant's permits, and the writes of other sessions are interleaved with its own.
+ *
+ * <p>
+ * Buckets are kept in concurrent maps and updated without locks. Buckets left unused for {@link #IDLE_MILLIS}, by which
+ * time they are full again, are removed now and then, so the maps do not grow with the number of clients ever seen.
+ */
+@ApplicationScoped
+public class WriteRateLimits {
+
+  static final int SESSION_WRITES_PER_SECOND = 20;
+
+  /**
+   * Two full batches from a {@code ContactWriter}.
+   */
+  static final int SESSION_BURST = 100;
+
+  static final int ADDRESS_WRITES_PER_SECOND = 100;
+
+  static final int ADDRESS_BURST = 500;
+
+  static final int MAX_CONCURRENT_WRITES_PER_SESSION = 2;
+
+  static final long MAX_WAIT_MILLIS = 1000;
+
+  static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * The web.xml context parameter naming the request header that holds the client address, such as
+   * {@code X-Forwarded-For}. If unset, the address the request came from is used.
+   */
+  static final String ADDRESS_HEADER_PARAM = "errai-crud.rate-limit.address-header";
+
+  /**
+   * The web.xml context parameter that turns limiting by address off when set to {@code false}.
+   */
+  static final String BY_ADDRESS_PARAM = "errai-crud.rate-limit.by-address";
+
+  @Inject
+  private ServletContext servletContext;
+
+  private String addressHeader;
+
+  private boolean byAddress;
+
+  private final Map<String, Bucket> sessions = new ConcurrentHashMap<>();
+
+  private final Map<String, Bucket> addresses = new ConcurrentHashMap<>();
+
+  private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+  private final AtomicLong admitted = new AtomicLong();
+
+  private final AtomicLong limitedBySession = new AtomicLong();
+
+  private final AtomicLong limitedByAddress = new AtomicLong();
+
+  private final AtomicLong limitedByConcurrency = new AtomicLong();
+
+  private final AtomicLong evicted = new AtomicLong();
+
+  @PostConstruct
+  private void configure() {
+    final String header = servletContext.getInitParameter(ADDRESS_HEADER_PARAM);
+    addressHeader = (header == null || header.trim().isEmpty() ? null : header.trim());
+    byAddress = !"false".equals(servletContext.getInitParameter(BY_ADDRESS_PARAM));
+  }
+
+  /**
+   * Runs a write from the given request if its session and address have enough tokens, once the session has a free
+   * write slot.
+   *
+   * @param writes
+   *          The number of contacts written, at least 1.
+   * @throws WriteRateLimitedException
+   *           If the session or address has too few tokens, or the session's slots stay busy for too long.
+   */
+  public <T> T run(final HttpServletRequest request, final int writes, final Supplier<T> write) {
+    final long now = System.nanoTime();
+    sweep(now);
+
+    final HttpSession httpSession = request.getSession(false);
+    final Bucket session = (httpSession == null ? null
+            : sessions.computeIfAbsent(httpSession.getId(), id -> new Bucket(now, SESSION_WRITES_PER_SECOND,
+                    SESSION_BURST, MAX_CONCURRENT_WRITES_PER_SESSION)));
+    final Bucket address = (byAddress ? addresses.computeIfAbsent(clientAddress(request),
+            addr -> new Bucket(now, ADDRESS_WRITES_PER_SECOND, ADDRESS_BURST, 0)) : null);
+
+    if (session != null) {
+      final long wait = session.take(now, writes);
+      if (wait > 0) {
+        limitedBySession.incrementAndGet();
+        throw new WriteRateLimitedException("session", TimeUnit.NANOSECONDS.toMillis(wait));
+      }
+    }
+    final long wait = (address != null ? address.take(now, writes) : 0);
+    if (wait > 0) {
+      if (session != null) {
+        session.refund(writes);
+      }
+      limitedByAddress.incrementAndGet();
+      throw new WriteRateLimitedException("address", TimeUnit.NANOSECONDS.toMillis(wait));
+    }
+    if (session == null) {
+      admitted.incrementAndGet();
+      return write.get();
+    }
+
+    try {
+      if (!session.slots.tryAcquire(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+        session.refund(writes);
+        if (address != null) {
+          address.refund(writes);
+        }
+        limitedByConcurrency.incrementAndGet();
+        throw new WriteRateLimitedException("session", MAX_WAIT_MILLIS);
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a write slot", e);
+    }
+    admitted.incrementAndGet();
+    try {
+      return write.get();
+    }
+    finally {
+      session.slots.release();
+    }
+  }
+
+  public void run(final HttpServletRequest request, final int writes, final Runnable write) {
+    run(request, writes, () -> {
+      write.run();
+      return null;
+    });
+  }
+
+  public RateLimitMetrics getMetrics() {
+    return new RateLimitMetrics(admitted.get(), limitedBySession.get(), limitedByAddress.get(),
+            limitedByConcurrency.get(), sessions.size(), addresses.size(), evicted.get());
+  }
+
+  /**
+   * @return The value of the configured address header, or its last entry if it has several, or otherwise the address
+   *         the request came from.
+   */
+  private String clientAddress(final HttpServletRequest request) {
+    final String forwarded = (addressHeader != null ? request.getHeader(addressHeader) : null);
+    if (forwarded == null || forwarded.trim().isEmpty()) {
+      return request.getRemoteAddr();
+    }
+    return forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+  }
+
+  /**
+   * Removes idle buckets, at most once per {@link #IDLE_MILLIS}, on the thread of the first write after that time.
+   */
+  private void sweep(final long now) {
+    final long due = nextSweep.get();
+    if (now - due < 0 || !nextSweep.compareAndSet(due, now + TimeUnit.MILLISECONDS.toNanos(IDLE_MILLIS))) {
+      return;
+    }
+    final long idleSince = now - TimeUnit.MILLISECONDS.toNanos(IDLE_MILLIS);
+    // A write may still take tokens from a bucket as it is removed. They are forgotten, which only favours the client.
+    for (final Map<String, Bucket> buckets : Arrays.asList(sessions, addresses)) {
+      for (final Iterator<Bucket> i = buckets.values().iterator(); i.hasNext();) {
+        if (i.next().isIdle(idleSince)) {
+          i.remove();
+          evicted.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * A token bucket, stored as the time at which it would be full again (the generic cell rate algorithm), so that
+   * taking tokens is a single compare-and-set.
+   */
+  static class Bucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final int maxConcurrentWrites;
+    private final Semaphore slots;
+    private final AtomicLong fullAt;
+    private volatile long lastUsed;
+
+    Bucket(final long now, final int tokensPerSecond, final int burst, final int maxConcurrentWrites) {
+      this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / tokensPerSecond;
+      this.burstNanos = burst * nanosPerToken;
+      this.maxConcurrentWrites = maxConcurrentWrites;
+      this.slots = new Semaphore(maxConcurrentWrites, true);
+      this.fullAt = new AtomicLong(now);
+      this.lastUsed = now;
+    }
+
+    /**
+     * Takes tokens for the given number of writes. A write larger than the burst takes the whole burst.
+     *
+     * @return 0 if the tokens were taken, or otherwise the nanoseconds until there are enough.
+     */
+    long take(final long now, final int writes) {
+      lastUsed = now;
+      final long cost = Math.min((long) Math.max(1, writes) * nanosPerToken, burstNanos);
+      while (true) {
+        final long current = fullAt.get();
+        final long next = (current - now < 0 ? now : current) + cost;
+        final long wait = next - now - burstNanos;
+        if (wait > 0) {
+          return wait;
+        }
+        if (fullAt.compareAndSet(current, next)) {
+          return 0;
+        }
+      }
+    }
+
+    void refund(final int writes) {
+      fullAt.addAndGet(-Math.min((long) Math.max(1, writes) * nanosPerToken, burstNanos));
+    }
+
+    private boolean isIdle(final long idleSince) {
+      return lastUsed - idleSince < 0 && slots.availablePermits() == maxConcurrentWrites;
+    }
+
+  }
+
+}
@@ -25,14 +25,32 @@
   <![endif]-->
 
   <link href="<%=contextPath%>/css/application.css" rel="stylesheet">
+  <!-- Styles the pre-rendered contacts before Errai UI injects the same stylesheet. -->
+  <style type="text/css">
+${contactBootstrap.stylesheet}
+  </style>
   <script type="text/javascript">
     erraiJaxRsApplicationRoot = "rest";
+    // The first page of contacts, so the client can display them without waiting for a request.
+    erraiContactBootstrap = ${contactBootstrap.scriptLiteral};
+    // How the client calls the contact service: "rest" or "bus" (see errai-crud.transport in web.xml).
+    erraiContactTransport = "${contactBootstrap.transport}";
   </script>
   <script type="text/javascript" src="<%=contextPath%>/app/app.nocache.js"></script>
 
 </head>
 
 <body>
+  <!-- Contacts rendered on the server, displayed until the client renders the contact list. -->
+  <div id="prerendered-contacts" class="container">
+    <div class="row">
+      <div class="col-md-12">
+        <div class="row">
+${contactBootstrap.prerenderedContacts}
+        </div>
+      </div>
+    </div>
+  </div>
   <div id="rootPanel" class="container"></div>
   <div class="container">
     <hr>
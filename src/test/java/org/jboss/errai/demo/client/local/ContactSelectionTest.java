@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.errai.demo.client.local;
+
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.CREATE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.UPDATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.errai.demo.client.local.RemoteChangeQueue.Change;
+import org.jboss.errai.demo.client.shared.Contact;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that selected contacts stay selected when a batch of remote changes replaces the displayed list, as in
+ * {@code ContactListPage#applyRemoteChanges}.
+ */
+public class ContactSelectionTest {
+
+  private List<Contact> displayed;
+
+  private ContactPrefixIndex index;
+
+  private ContactSelection selection;
+
+  @Before
+  public void setup() {
+    displayed = new ArrayList<>(
+            Arrays.asList(contact(1, "Ada"), contact(2, "Bob"), contact(3, "Cy"), contact(4, "Di")));
+    index = new ContactPrefixIndex();
+    index.addAll(displayed);
+    selection = new ContactSelection();
+  }
+
+  @Test
+  public void keepsSelectionAcrossRemoteBatch() {
+    final Contact bob = displayed.get(1);
+    final Contact cy = displayed.get(2);
+    selection.add(bob);
+    selection.add(cy);
+
+    final Contact updatedBob = contact(2, "Bobby");
+    final List<Contact> replaced = RemoteChangeQueue.apply(displayed, Arrays.asList(
+            new Change(UPDATE, 2, updatedBob),
+            new Change(DELETE, 4, null),
+            new Change(CREATE, 5, contact(5, "Ed"))), null, index);
+    selection.retainIn(replaced);
+
+    assertEquals(2, selection.asList().size());
+    assertSame(updatedBob, selection.asList().get(0));
+    assertSame(cy, selection.asList().get(1));
+    assertTrue(selection.contains(replaced.get(1)));
+  }
+
+  @Test
+  public void keepsSelectionWhenSortedContactMoves() {
+    final Contact ada = displayed.get(0);
+    selection.add(ada);
+
+    final Contact updatedAda = contact(1, "Zoe");
+    final List<Contact> replaced = RemoteChangeQueue.apply(displayed,
+            Arrays.asList(new Change(UPDATE, 1, updatedAda)), new ContactSorter(ContactSortKey.FULLNAME), index);
+    selection.retainIn(replaced);
+
+    assertSame(updatedAda, replaced.get(replaced.size() - 1));
+    assertEquals(Arrays.asList(updatedAda), selection.asList());
+  }
+
+  @Test
+  public void dropsRemotelyDeletedContacts() {
+    selection.add(displayed.get(0));
+    selection.add(displayed.get(3));
+
+    final List<Contact> replaced = RemoteChangeQueue.apply(displayed,
+            Arrays.asList(new Change(DELETE, 4, null)), null, index);
+    selection.retainIn(replaced);
+
+    assertEquals(Arrays.asList(displayed.get(0)), selection.asList());
+  }
+
+  @Test
+  public void keepsUnsavedContactsByIdentity() {
+    final Contact unsaved = contact(0, "New");
+    displayed.add(unsaved);
+    selection.add(unsaved);
+
+    final List<Contact> replaced = RemoteChangeQueue.apply(displayed,
+            Arrays.asList(new Change(CREATE, 6, contact(6, "Other"))), null, index);
+    selection.retainIn(replaced);
+
+    assertEquals(Arrays.asList(unsaved), selection.asList());
+  }
+
+  private static Contact contact(final long id, final String fullname) {
+    final Contact contact = new Contact();
+    contact.setId(id);
+    contact.setFullname(fullname);
+    return contact;
+  }
+
+}
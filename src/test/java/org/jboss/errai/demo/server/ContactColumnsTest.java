@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that contacts written to {@link ContactColumns} are read back unchanged, and that older revisions do not
+ * replace newer ones.
+ */
+public class ContactColumnsTest {
+
+  private ContactColumns columns;
+
+  @Before
+  public void setup() {
+    columns = new ContactColumns(16);
+  }
+
+  @Test
+  public void readsBackEveryField() {
+    final Contact ada = contact(1, 10, "Ada Lovelace");
+    ada.setNickname("Ada");
+    ada.setPhonenumber("+44 20 7946 0000");
+    ada.setEmail("ada@example.com");
+    ada.setNotes("Wrote the first program");
+    ada.setBirthday(new Date(LocalDate.of(1815, 12, 10).toEpochDay() * 24 * 60 * 60 * 1000));
+    assertTrue(columns.put(ada));
+
+    final Contact read = columns.get(1);
+    assertEquals(1, read.getId());
+    assertEquals(10, read.getLastModified());
+    assertEquals("Ada Lovelace", read.getFullname());
+    assertEquals("Ada", read.getNickname());
+    assertEquals("+44 20 7946 0000", read.getPhonenumber());
+    assertEquals("ada@example.com", read.getEmail());
+    assertEquals("Wrote the first program", read.getNotes());
+    assertEquals(ada.getBirthday(), read.getBirthday());
+  }
+
+  @Test
+  public void readsBackMultiByteCharacters() {
+    // Two-, three-, and four-byte characters in UTF-8.
+    final String fullname = "Zo\u00eb \u0141ukasiewicz \u674e\u5c0f\u9f8d \ud83d\ude42";
+    columns.put(contact(1, 10, fullname));
+
+    assertEquals(fullname, columns.get(1).getFullname());
+  }
+
+  @Test
+  public void keepsMissingBirthdayAndEmptyStrings() {
+    final Contact contact = contact(1, 10, "");
+    contact.setNotes(null);
+    columns.put(contact);
+
+    final Contact read = columns.get(1);
+    assertNull(read.getBirthday());
+    assertNull(read.getBirthdayOfYear());
+    assertEquals("", read.getFullname());
+    assertNull(read.getNotes());
+  }
+
+  @Test
+  public void replacesOnlyWithNewerRevision() {
+    columns.put(contact(1, 10, "Ada"));
+
+    assertFalse(columns.put(contact(1, 9, "Older")));
+    assertEquals("Ada", columns.get(1).getFullname());
+    assertTrue(columns.put(contact(1, 11, "Newer")));
+    assertEquals("Newer", columns.get(1).getFullname());
+    assertEquals(1, columns.size());
+  }
+
+  @Test
+  public void removesContacts() {
+    columns.put(contact(1, 10, "Ada"));
+    columns.put(contact(2, 10, "Bob"));
+
+    assertTrue(columns.remove(1));
+    assertFalse(columns.remove(1));
+    assertNull(columns.get(1));
+    assertEquals("Bob", columns.get(2).getFullname());
+    assertEquals(1, columns.size());
+  }
+
+  @Test
+  public void growsAndPagesInIdOrder() {
+    for (long id = 100; id > 0; id--) {
+      columns.put(contact(id, 1, "Contact " + id));
+    }
+    columns.remove(50);
+    columns.put(contact(101, 1, "Contact 101"));
+
+    final List<Contact> page = columns.page(48, 3);
+    assertEquals(3, page.size());
+    assertEquals(49, page.get(0).getId());
+    assertEquals(51, page.get(1).getId());
+    assertEquals("Contact 52", page.get(2).getFullname());
+    assertEquals("Contact 101", columns.get(101).getFullname());
+    assertEquals(100, columns.size());
+  }
+
+  private static Contact contact(final long id, final long revision, final String fullname) {
+    final Contact contact = new Contact();
+    contact.setId(id);
+    contact.setLastModified(revision);
+    contact.setFullname(fullname);
+    return contact;
+  }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.CREATE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.DELETE;
+import static org.jboss.errai.demo.client.shared.Operation.OperationType.UPDATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.jboss.errai.demo.client.shared.Contact;
+import org.jboss.errai.demo.client.shared.ContactInterest;
+import org.jboss.errai.demo.client.shared.ContactOperation;
+import org.jboss.errai.demo.client.shared.Operation.OperationType;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks which clients {@link ContactSubscriptions} sends each kind of change to: clients showing the contact, clients
+ * whose filter matches it, and clients without a filter.
+ */
+public class ContactSubscriptionsTest {
+
+  private static final String TENANT = "acme";
+
+  private ContactSubscriptions subscriptions;
+
+  @Before
+  public void setup() {
+    subscriptions = new ContactSubscriptions();
+    subscriptions.subscribe("unfiltered", TENANT, new ContactInterest(null, Collections.<Long> emptyList()));
+    subscriptions.subscribe("ada-filter", TENANT, new ContactInterest("ada", Collections.<Long> emptyList()));
+    subscriptions.subscribe("bob-filter", TENANT, new ContactInterest("bob", Collections.<Long> emptyList()));
+    subscriptions.subscribe("showing-7", TENANT, new ContactInterest("zed", Arrays.asList(7L)));
+  }
+
+  @Test
+  public void sendsCreateToUnfilteredAndMatchingClients() {
+    assertEquals(new HashSet<>(Arrays.asList("unfiltered", "ada-filter")),
+            subscriptions.recipientsOf(change(CREATE, 9, "Ada Lovelace")));
+  }
+
+  @Test
+  public void sendsUpdateToMatchingAndShowingClients() {
+    assertEquals(new HashSet<>(Arrays.asList("ada-filter", "showing-7")),
+            subscriptions.recipientsOf(change(UPDATE, 7, "Ada Lovelace")));
+    assertEquals(Collections.singleton("bob-filter"), subscriptions.recipientsOf(change(UPDATE, 9, "Bob")));
+  }
+
+  @Test
+  public void sendsDeleteOnlyToShowingClients() {
+    assertEquals(Collections.singleton("showing-7"), subscriptions.recipientsOf(change(DELETE, 7, null)));
+    assertTrue(subscriptions.recipientsOf(change(DELETE, 9, null)).isEmpty());
+  }
+
+  @Test
+  public void replacesInterestOfSession() {
+    assertFalse(subscriptions.subscribe("showing-7", TENANT, new ContactInterest(null, Arrays.asList(8L))));
+
+    assertTrue(subscriptions.recipientsOf(change(DELETE, 7, null)).isEmpty());
+    assertEquals(Collections.singleton("showing-7"), subscriptions.recipientsOf(change(DELETE, 8, null)));
+    assertTrue(subscriptions.recipientsOf(change(CREATE, 9, "Cy")).contains("showing-7"));
+  }
+
+  @Test
+  public void sendsOnlyToClientsOfTenant() {
+    assertTrue(subscriptions.subscribe("other-tenant", "globex", new ContactInterest(null, Arrays.asList(7L))));
+
+    assertFalse(subscriptions.recipientsOf(change(CREATE, 9, "Ada")).contains("other-tenant"));
+    assertFalse(subscriptions.recipientsOf(change(DELETE, 7, null)).contains("other-tenant"));
+    assertTrue(subscriptions.recipientsOf(new ContactChange(DELETE, "initech", 7, 1, null)).isEmpty());
+  }
+
+  private static ContactChange change(final OperationType type, final long id, final String fullname) {
+    if (type == DELETE) {
+      return new ContactChange(type, TENANT, id, 1, null);
+    }
+    final Contact contact = new Contact();
+    contact.setId(id);
+    contact.setFullname(fullname);
+    return new ContactChange(type, TENANT, id, 1, new ContactOperation(contact, null, null));
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that {@link IdempotentWrites} runs a write once per tenant and key, and forgets outcomes once they are too old
+ * or too many.
+ */
+public class IdempotentWritesTest {
+
+  private long now;
+
+  private IdempotentWrites writes;
+
+  private final AtomicInteger runs = new AtomicInteger();
+
+  @Before
+  public void setup() {
+    now = 1000;
+    writes = new IdempotentWrites(() -> now);
+  }
+
+  @Test
+  public void returnsFirstOutcomeForRepeatedKey() {
+    assertEquals("first", writes.run("acme", "key", () -> write("first")));
+    assertEquals("first", writes.run("acme", "key", () -> write("second")));
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  public void alwaysRunsWritesWithoutKey() {
+    writes.run("acme", null, () -> write("first"));
+    writes.run("acme", null, () -> write("second"));
+
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void scopesKeysByTenant() {
+    writes.run("acme", "key", () -> write("acme"));
+
+    assertEquals("globex", writes.run("globex", "key", () -> write("globex")));
+    assertEquals(2, runs.get());
+  }
+
+  @Test
+  public void runsFailedWriteAgain() {
+    try {
+      writes.run("acme", "key", () -> {
+        throw new IllegalStateException("failed");
+      });
+      fail("The exception of the write should be thrown");
+    }
+    catch (final IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+
+    assertEquals("retried", writes.run("acme", "key", () -> write("retried")));
+  }
+
+  @Test
+  public void forgetsOutcomesAfterRetention() {
+    writes.run("acme", "key", () -> write("first"));
+
+    now += IdempotentWrites.RETENTION_MILLIS - 1;
+    assertEquals("first", writes.run("acme", "key", () -> write("second")));
+
+    now += 1;
+    assertEquals("third", writes.run("acme", "key", () -> write("third")));
+  }
+
+  @Test
+  public void forgetsOldestOutcomesBeyondMaxEntries() {
+    for (int i = 0; i < IdempotentWrites.MAX_ENTRIES; i++) {
+      writes.run("acme", "key" + i, () -> write("first"));
+    }
+    writes.run("acme", "newest", () -> write("first"));
+
+    assertEquals("second", writes.run("acme", "key0", () -> write("second")));
+    assertEquals("first", writes.run("acme", "newest", () -> write("second")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsLongKeys() {
+    final StringBuilder key = new StringBuilder();
+    while (key.length() <= IdempotentWrites.MAX_KEY_LENGTH) {
+      key.append('k');
+    }
+    writes.run("acme", key.toString(), () -> write("first"));
+  }
+
+  private String write(final String outcome) {
+    runs.incrementAndGet();
+    return outcome;
+  }
+
+}
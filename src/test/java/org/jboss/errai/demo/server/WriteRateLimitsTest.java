@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jboss.errai.demo.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.errai.demo.server.WriteRateLimits.Bucket;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the token buckets of {@link WriteRateLimits}: a bucket admits a burst, then refills at its rate.
+ */
+public class WriteRateLimitsTest {
+
+  private static final int TOKENS_PER_SECOND = 10;
+
+  private static final int BURST = 5;
+
+  private static final long NANOS_PER_TOKEN = TimeUnit.SECONDS.toNanos(1) / TOKENS_PER_SECOND;
+
+  private long now;
+
+  private Bucket bucket;
+
+  @Before
+  public void setup() {
+    now = TimeUnit.SECONDS.toNanos(100);
+    bucket = new Bucket(now, TOKENS_PER_SECOND, BURST, 1);
+  }
+
+  @Test
+  public void admitsBurstAndRejectsNextWrite() {
+    for (int i = 0; i < BURST; i++) {
+      assertEquals(0, bucket.take(now, 1));
+    }
+
+    assertEquals(NANOS_PER_TOKEN, bucket.take(now, 1));
+  }
+
+  @Test
+  public void refillsAtRate() {
+    bucket.take(now, BURST);
+
+    now += NANOS_PER_TOKEN - 1;
+    assertEquals(1, bucket.take(now, 1));
+
+    now += 1;
+    assertEquals(0, bucket.take(now, 1));
+    assertTrue(bucket.take(now, 1) > 0);
+  }
+
+  @Test
+  public void refillsNoMoreThanBurst() {
+    now += TimeUnit.MINUTES.toNanos(1);
+
+    assertEquals(0, bucket.take(now, BURST));
+    assertEquals(NANOS_PER_TOKEN, bucket.take(now, 1));
+  }
+
+  @Test
+  public void takesOneTokenPerWrite() {
+    assertEquals(0, bucket.take(now, BURST - 1));
+    assertEquals(0, bucket.take(now, 1));
+
+    assertEquals(2 * NANOS_PER_TOKEN, bucket.take(now, 2));
+  }
+
+  @Test
+  public void takesWholeBurstForLargerWrite() {
+    assertEquals(0, bucket.take(now, BURST * 10));
+
+    assertEquals(NANOS_PER_TOKEN, bucket.take(now, 1));
+  }
+
+  @Test
+  public void refundsTokens() {
+    bucket.take(now, BURST);
+    bucket.refund(1);
+
+    assertEquals(0, bucket.take(now, 1));
+    assertEquals(NANOS_PER_TOKEN, bucket.take(now, 1));
+  }
+
+}